@@ -18,13 +18,18 @@
  */
 package space.arim.libertybans.api.punish;
 
+import java.util.List;
+import java.util.Optional;
+
+import space.arim.omnibus.util.concurrent.ReactionStage;
+
 /**
  * Initial point for drafting punishments
  * 
  * @author A248
  *
  */
-public interface PunishmentDrafter {
+public interface PunishmentDrafter extends EnforcementOptionsFactory {
 
 	/**
 	 * Begins creating a draft punishment by returning a
@@ -34,4 +39,41 @@ public interface PunishmentDrafter {
 	 */
 	DraftPunishmentBuilder draftBuilder();
 
+	/**
+	 * Enacts many punishments at once, adding them to the database, then enforces them
+	 * according to the given options. <br>
+	 * <br>
+	 * This is equivalent to enacting each draft punishment individually, but is more efficient
+	 * when there are many punishments to enact. The draft punishments are enacted in order.
+	 * If the punishment type is a ban or mute, and there is already an active ban or mute for
+	 * the victim, including one enacted earlier in the same list, the corresponding element of
+	 * the resulting list is an empty optional. <br>
+	 * <br>
+	 * Punishments are enacted and enforced in groups. If enacting a group fails, the returned
+	 * future completes exceptionally, but the punishments of the previous groups remain enacted
+	 * and enforced. <br>
+	 * <br>
+	 * Enforcement options may be created using {@link #enforcementOptionsBuilder()}
+	 *
+	 * @param draftPunishments the draft punishments to enact
+	 * @param enforcementOptions the enforcement options. Can be used to disable enforcement entirely
+	 * @return a future which yields a list with one element for each draft punishment, in the same
+	 *         order, containing the punishment or an empty optional if there was a conflict
+	 */
+	ReactionStage<List<Optional<Punishment>>> enactPunishments(List<? extends DraftPunishment> draftPunishments,
+															   EnforcementOptions enforcementOptions);
+
+	/**
+	 * Enacts many punishments at once, adding them to the database, then fully enforces them. <br>
+	 * <br>
+	 * Same as {@link #enactPunishments(List, EnforcementOptions)} with the default enforcement options
+	 *
+	 * @param draftPunishments the draft punishments to enact
+	 * @return a future which yields a list with one element for each draft punishment, in the same
+	 *         order, containing the punishment or an empty optional if there was a conflict
+	 */
+	default ReactionStage<List<Optional<Punishment>>> enactPunishments(List<? extends DraftPunishment> draftPunishments) {
+		return enactPunishments(draftPunishments, enforcementOptionsBuilder().build());
+	}
+
 }
@@ -19,6 +19,7 @@
 
 package space.arim.libertybans.api.select;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -119,6 +120,21 @@ public interface PunishmentSelector {
 	 */
 	ReactionStage<Optional<Punishment>> getApplicablePunishment(UUID uuid, NetworkAddress address, PunishmentType type);
 
+	/**
+	 * Gets the applicable punishments of a certain type for many players at once. <br>
+	 * <br>
+	 * This is equivalent to calling {@link #getApplicablePunishment(UUID, NetworkAddress, PunishmentType)}
+	 * for each player, but is more efficient, since players are checked together rather than
+	 * one by one. It is therefore preferable when checking all online players.
+	 *
+	 * @param players the players' UUIDs, each mapped to the player's current address
+	 * @param type the punishment type
+	 * @return a future which yields the applicable punishments, keyed by player UUID. Players
+	 *         to whom no punishment is applicable are absent from the map.
+	 */
+	ReactionStage<Map<UUID, Punishment>> getApplicablePunishments(Map<UUID, NetworkAddress> players,
+																  PunishmentType type);
+
 	/**
 	 * Gets a cached mute for an online player, including the player's UUID and
 	 * address. <br>
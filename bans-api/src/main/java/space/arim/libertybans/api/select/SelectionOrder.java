@@ -29,6 +29,7 @@ import space.arim.omnibus.util.concurrent.ReactionStage;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Flow;
 
 /**
  * A selection which will match punishments in the database with certain
@@ -155,6 +156,38 @@ public interface SelectionOrder {
 	 */
 	ReactionStage<List<Punishment>> getAllSpecificPunishments();
 
+	/**
+	 * Publishes all punishments matching the given punishment selection, in the
+	 * same order as {@link #getAllSpecificPunishments()}. <br>
+	 * <br>
+	 * Unlike {@code getAllSpecificPunishments}, punishments are retrieved incrementally
+	 * as the subscriber requests them, so that only a bounded amount of punishments is held
+	 * in memory regardless of how many match. This is suited to processing very large
+	 * selections, such as the entire punishment history. <br>
+	 * <br>
+	 * Each subscription retrieves punishments anew. Since punishments are retrieved
+	 * in parts, punishments enacted or revoked during a subscription may or may
+	 * not be published.
+	 *
+	 * @return a publisher of all punishments matching this selection
+	 */
+	Flow.Publisher<Punishment> publishAllSpecificPunishments();
+
+	/**
+	 * Counts the punishments matching this selection, without retrieving them. <br>
+	 * <br>
+	 * The amount of punishments skipped or retrieved, and the minimum start time and ID,
+	 * are disregarded. That is, the count is of all punishments which would be matched
+	 * by this selection were it not paginated. <br>
+	 * <br>
+	 * The count may be cached for a short period, and is therefore not guaranteed
+	 * to reflect the latest punishments. Callers requiring an exact count should
+	 * instead use {@link #getAllSpecificPunishments()}
+	 *
+	 * @return a future which yields the amount of punishments matching this selection
+	 */
+	ReactionStage<Integer> countNumberOfPunishments();
+
 	/**
 	 * Whether this punishment selection is equal to another, i.e. if the other
 	 * selection would match the same punishments in all circumstances.
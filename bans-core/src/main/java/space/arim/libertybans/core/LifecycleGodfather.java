@@ -23,7 +23,12 @@ import jakarta.inject.Singleton;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.alts.AltCheckQueue;
+import space.arim.libertybans.core.alts.RecentConnections;
 import space.arim.libertybans.core.commands.extra.TabCompletion;
+import space.arim.libertybans.core.punish.AssociationBuffer;
+import space.arim.libertybans.core.selector.ActiveBanIndex;
+import space.arim.libertybans.core.selector.VictimFilter;
 import space.arim.libertybans.core.uuid.UUIDManager;
 import space.arim.omnibus.registry.Registration;
 import space.arim.omnibus.registry.RegistryPriorities;
@@ -41,6 +46,11 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 	private final AsynchronicityManager asyncManager;
 	private final Configs configs;
 	private final DatabaseManager databaseManager;
+	private final ActiveBanIndex banIndex;
+	private final VictimFilter victimFilter;
+	private final AssociationBuffer associationBuffer;
+	private final RecentConnections recentConnections;
+	private final AltCheckQueue altCheckQueue;
 	private final UUIDManager uuidManager;
 	private final TabCompletion tabCompletion;
 	private final EnvironmentManager envManager;
@@ -52,11 +62,17 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 
 	@Inject
 	public LifecycleGodfather(AsynchronicityManager asyncManager, Configs configs, DatabaseManager databaseManager,
-							  UUIDManager uuidManager, TabCompletion tabCompletion, EnvironmentManager envManager,
-							  LibertyBans api) {
+							  ActiveBanIndex banIndex, VictimFilter victimFilter, AssociationBuffer associationBuffer,
+							  RecentConnections recentConnections, AltCheckQueue altCheckQueue, UUIDManager uuidManager,
+							  TabCompletion tabCompletion, EnvironmentManager envManager, LibertyBans api) {
 		this.asyncManager = asyncManager;
 		this.configs = configs;
 		this.databaseManager = databaseManager;
+		this.banIndex = banIndex;
+		this.victimFilter = victimFilter;
+		this.associationBuffer = associationBuffer;
+		this.recentConnections = recentConnections;
+		this.altCheckQueue = altCheckQueue;
 		this.uuidManager = uuidManager;
 		this.tabCompletion = tabCompletion;
 		this.envManager = envManager;
@@ -69,6 +85,11 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 		asyncManager.startup();
 		configs.startup();
 		databaseManager.startup();
+		banIndex.startup();
+		victimFilter.startup();
+		associationBuffer.startup();
+		recentConnections.startup();
+		altCheckQueue.startup();
 		uuidManager.startup();
 		tabCompletion.startup();
 		envManager.startup();
@@ -86,6 +107,11 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 		asyncManager.restart();
 		configs.restart();
 		databaseManager.restart();
+		banIndex.restart();
+		victimFilter.restart();
+		associationBuffer.restart();
+		recentConnections.restart();
+		altCheckQueue.restart();
 		uuidManager.restart();
 		tabCompletion.restart();
 		envManager.startup();
@@ -96,6 +122,11 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 		envManager.shutdown();
 		tabCompletion.shutdown();
 		uuidManager.shutdown();
+		altCheckQueue.shutdown();
+		recentConnections.shutdown();
+		associationBuffer.shutdown();
+		victimFilter.shutdown();
+		banIndex.shutdown();
 		configs.shutdown();
 		databaseManager.shutdown();
 		asyncManager.shutdown();
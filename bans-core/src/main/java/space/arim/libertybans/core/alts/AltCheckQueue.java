@@ -0,0 +1,180 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.alts;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.selector.EnforcementConfig;
+import space.arim.libertybans.core.selector.LoginLatency;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.DelayCalculators;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the alts-auto-show alt-check in the background, after players are allowed to join. <br>
+ * <br>
+ * Pending checks are keyed by address, so that repeated joins from the same address are
+ * checked once, for the latest account to join. Checks are started in order of arrival,
+ * at most {@code max-checks-per-second} at a time.
+ *
+ */
+@Singleton
+public final class AltCheckQueue implements Part {
+
+	private final Configs configs;
+	private final EnhancedExecutor enhancedExecutor;
+	private final AltDetection altDetection;
+	private final AltNotification altNotification;
+	private final LoginLatency loginLatency;
+
+	/**
+	 * Pending checks in order of arrival. Guarded by {@code this}
+	 */
+	private final Map<NetworkAddress, PendingCheck> pending = new LinkedHashMap<>();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private ScheduledTask drainTask;
+
+	private static final Duration DRAIN_INTERVAL = Duration.ofSeconds(1L);
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public AltCheckQueue(Configs configs, EnhancedExecutor enhancedExecutor,
+						 AltDetection altDetection, AltNotification altNotification, LoginLatency loginLatency) {
+		this.configs = configs;
+		this.enhancedExecutor = enhancedExecutor;
+		this.altDetection = altDetection;
+		this.altNotification = altNotification;
+		this.loginLatency = loginLatency;
+	}
+
+	private EnforcementConfig.AltsAutoShow config() {
+		return configs.getMainConfig().enforcement().altsAutoShow();
+	}
+
+	@Override
+	public void startup() {
+		if (!config().enable()) {
+			return;
+		}
+		drainTask = enhancedExecutor.scheduleRepeating(
+				this::drain, DRAIN_INTERVAL, DelayCalculators.fixedDelay()
+		);
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		if (drainTask != null) {
+			drainTask.cancel();
+			drainTask = null;
+		}
+		synchronized (this) {
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Queues an alt-check for a player who has been allowed to join. Does nothing
+	 * if alts-auto-show is disabled.
+	 *
+	 * @param uuid the player's uuid
+	 * @param name the player's name
+	 * @param address the player's address
+	 */
+	public void queueCheck(UUID uuid, String name, NetworkAddress address) {
+		EnforcementConfig.AltsAutoShow config = config();
+		if (!config.enable()) {
+			return;
+		}
+		synchronized (this) {
+			if (!pending.containsKey(address) && pending.size() >= config.maxPendingChecks()) {
+				logger.debug("Skipping alt-check for {} because too many checks are pending", name);
+				return;
+			}
+			// Replacing an existing entry retains its position
+			pending.put(address, new PendingCheck(uuid, name));
+		}
+	}
+
+	private void drain() {
+		EnforcementConfig.AltsAutoShow config = config();
+		int permits = config.maxChecksPerSecond() - inFlight.get();
+		if (permits <= 0) {
+			return;
+		}
+		List<Map.Entry<NetworkAddress, PendingCheck>> checks = new ArrayList<>(permits);
+		synchronized (this) {
+			Iterator<Map.Entry<NetworkAddress, PendingCheck>> iterator = pending.entrySet().iterator();
+			while (checks.size() < permits && iterator.hasNext()) {
+				Map.Entry<NetworkAddress, PendingCheck> entry = iterator.next();
+				checks.add(Map.entry(entry.getKey(), entry.getValue()));
+				iterator.remove();
+			}
+		}
+		WhichAlts whichAlts = config.showWhichAlts();
+		for (Map.Entry<NetworkAddress, PendingCheck> check : checks) {
+			NetworkAddress address = check.getKey();
+			UUID uuid = check.getValue().uuid;
+			String name = check.getValue().name;
+
+			inFlight.incrementAndGet();
+			long start = loginLatency.start();
+			altDetection.detectAlts(uuid, address, whichAlts).thenAccept((detectedAlts) -> {
+				altNotification.notifyFoundAlts(uuid, name, address, detectedAlts);
+			}).whenComplete((ignore, ex) -> {
+				inFlight.decrementAndGet();
+				loginLatency.recordSince(LoginLatency.Stage.ALT_CHECK, start);
+				if (ex != null) {
+					logger.warn("Failed to check alts of {}", name, ex);
+				}
+			});
+		}
+	}
+
+	private static final class PendingCheck {
+
+		private final UUID uuid;
+		private final String name;
+
+		PendingCheck(UUID uuid, String name) {
+			this.uuid = uuid;
+			this.name = name;
+		}
+	}
+}
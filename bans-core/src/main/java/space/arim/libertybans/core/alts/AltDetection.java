@@ -41,10 +41,9 @@ import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
+import static space.arim.libertybans.core.schema.tables.Active.ACTIVE;
 import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
 import static space.arim.libertybans.core.schema.tables.LatestNames.LATEST_NAMES;
-import static space.arim.libertybans.core.schema.tables.SimpleBans.SIMPLE_BANS;
-import static space.arim.libertybans.core.schema.tables.SimpleMutes.SIMPLE_MUTES;
 
 public class AltDetection {
 
@@ -81,8 +80,10 @@ public class AltDetection {
 		// The detection kind is inferred while processing the results
 		final Instant currentTime = time.currentTimestamp();
 		var detectedAlt = ADDRESSES.as("detected_alt");
-		Field<Boolean> hasBan = DSL.field(SIMPLE_BANS.VICTIM_TYPE.isNotNull()).as("has_ban");
-		Field<Boolean> hasMute = DSL.field(SIMPLE_MUTES.VICTIM_TYPE.isNotNull()).as("has_mute");
+		var activeBans = ACTIVE.as("active_bans");
+		var activeMutes = ACTIVE.as("active_mutes");
+		Field<Boolean> hasBan = DSL.field(activeBans.VICTIM_TYPE.isNotNull()).as("has_ban");
+		Field<Boolean> hasMute = DSL.field(activeMutes.VICTIM_TYPE.isNotNull()).as("has_mute");
 		List<DetectedAlt> detectedAlts = context
 				.select(
 						detectedAlt.ADDRESS, detectedAlt.UUID,
@@ -98,13 +99,15 @@ public class AltDetection {
 				.innerJoin(LATEST_NAMES)
 				.on(LATEST_NAMES.UUID.eq(detectedAlt.UUID))
 				// Pair with bans
-				.leftJoin(SIMPLE_BANS)
-				.on(new VictimCondition(new SimpleViewFields(SIMPLE_BANS)).matchesUUID(detectedAlt.UUID))
-				.and(new EndTimeCondition(new SimpleViewFields(SIMPLE_BANS)).isNotExpired(currentTime))
+				.leftJoin(activeBans)
+				.on(activeBans.TYPE.eq(PunishmentType.BAN))
+				.and(new VictimCondition(new SimpleViewFields<>(activeBans)).matchesUUID(detectedAlt.UUID))
+				.and(new EndTimeCondition(activeBans.END).isNotExpired(currentTime))
 				// Pair with mutes
-				.leftJoin(SIMPLE_MUTES)
-				.on(new VictimCondition(new SimpleViewFields(SIMPLE_MUTES)).matchesUUID(detectedAlt.UUID))
-				.and(new EndTimeCondition(new SimpleViewFields(SIMPLE_MUTES)).isNotExpired(currentTime))
+				.leftJoin(activeMutes)
+				.on(activeMutes.TYPE.eq(PunishmentType.MUTE))
+				.and(new VictimCondition(new SimpleViewFields<>(activeMutes)).matchesUUID(detectedAlt.UUID))
+				.and(new EndTimeCondition(activeMutes.END).isNotExpired(currentTime))
 				// Select alts for the player in question
 				.where(ADDRESSES.UUID.eq(uuid))
 				// Filter non-expired alts
@@ -25,6 +25,7 @@ import space.arim.dazzleconf.annote.ConfDefault;
 import space.arim.dazzleconf.annote.ConfHeader;
 import space.arim.dazzleconf.annote.ConfKey;
 import space.arim.dazzleconf.annote.NumericRange;
+import space.arim.dazzleconf.annote.SubSection;
 
 @ConfHeader({
 		"Limits players connecting from the same IP address.",
@@ -54,4 +55,33 @@ public interface ConnectionLimitConfig {
 	@ConfComments("The message when a player is denied from joining due to the limit")
 	@ConfDefault.DefaultString("There have been too many connections from your IP address recently")
 	Component message();
+
+	@ConfKey("in-memory")
+	@SubSection
+	InMemory inMemory();
+
+	@ConfHeader({
+			"Counts recent joins in memory rather than querying the database on each join.",
+			"",
+			"Joins are only counted while the plugin is running. If you run multiple instances against the same database,",
+			"each instance counts only the joins it sees itself, unless seed-from-database is enabled,",
+			"in which case recent joins are loaded from the database at startup."})
+	interface InMemory {
+
+		@ConfComments("Whether to enable this feature")
+		@ConfDefault.DefaultBoolean(false)
+		boolean enable();
+
+		@ConfKey("max-tracked-addresses")
+		@ConfComments({"The maximum amount of IP addresses to track at once.",
+				"When exceeded, the least recently seen addresses are forgotten."})
+		@ConfDefault.DefaultInteger(10000)
+		@NumericRange(min = 1)
+		int maxTrackedAddresses();
+
+		@ConfKey("seed-from-database")
+		@ConfComments("Whether to load recent joins from the database at startup")
+		@ConfDefault.DefaultBoolean(false)
+		boolean seedFromDatabase();
+	}
 }
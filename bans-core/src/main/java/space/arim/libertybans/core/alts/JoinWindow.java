@@ -0,0 +1,122 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.alts;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size buffer of the most recent joins from a single address. <br>
+ * <br>
+ * Like the addresses table, each player is counted once, at the time of their latest join.
+ * Once the buffer is full, the oldest join is overwritten. Since the connection limiter only
+ * needs to know whether more than {@code limit} joins occurred, a capacity of {@code limit + 1}
+ * suffices.
+ *
+ */
+final class JoinWindow {
+
+	private long[] uuidKeys;
+	private long[] times;
+	private int size;
+
+	JoinWindow(int capacity) {
+		uuidKeys = new long[capacity];
+		times = new long[capacity];
+	}
+
+	/**
+	 * Records a join
+	 *
+	 * @param uuidKey the player's uuid, as a key
+	 * @param time the join time, in epoch seconds
+	 * @param capacity the desired capacity. If this differs from the current capacity, the buffer is resized
+	 */
+	synchronized void record(long uuidKey, long time, int capacity) {
+		if (capacity != times.length) {
+			resize(capacity);
+		}
+		record0(uuidKey, time);
+	}
+
+	private void record0(long uuidKey, long time) {
+		for (int n = 0; n < size; n++) {
+			if (uuidKeys[n] == uuidKey) {
+				if (time > times[n]) {
+					times[n] = time;
+				}
+				return;
+			}
+		}
+		if (size < times.length) {
+			uuidKeys[size] = uuidKey;
+			times[size] = time;
+			size++;
+			return;
+		}
+		int oldest = 0;
+		for (int n = 1; n < size; n++) {
+			if (times[n] < times[oldest]) {
+				oldest = n;
+			}
+		}
+		if (time > times[oldest]) {
+			uuidKeys[oldest] = uuidKey;
+			times[oldest] = time;
+		}
+	}
+
+	private void resize(int capacity) {
+		long[] oldUuidKeys = uuidKeys;
+		long[] oldTimes = times;
+		int oldSize = size;
+		uuidKeys = new long[capacity];
+		times = new long[capacity];
+		size = 0;
+		for (int n = 0; n < oldSize; n++) {
+			record0(oldUuidKeys[n], oldTimes[n]);
+		}
+	}
+
+	/**
+	 * Counts the joins at or after the given time
+	 *
+	 * @param cutoff the earliest time to count, in epoch seconds
+	 * @return the amount of joins
+	 */
+	synchronized int countSince(long cutoff) {
+		int count = 0;
+		for (int n = 0; n < size; n++) {
+			if (times[n] >= cutoff) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	static long uuidKey(long mostSigBits, long leastSigBits) {
+		return mostSigBits ^ (leastSigBits * 0x9E3779B97F4A7C15L);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "JoinWindow{" +
+				"times=" + Arrays.toString(Arrays.copyOf(times, size)) +
+				'}';
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.alts;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import net.kyori.adventure.text.Component;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+
+/**
+ * In-memory alternative to the join counting performed by {@link ConnectionLimiter}. <br>
+ * <br>
+ * Keeps a {@link JoinWindow} per address, bounded by the amount of tracked addresses.
+ * Addresses which have not been seen for the limiter's duration are dropped.
+ *
+ */
+@Singleton
+public final class RecentConnections implements Part {
+
+	private final Configs configs;
+	private final Provider<InternalDatabase> dbProvider;
+	private final Time time;
+
+	private volatile Cache<NetworkAddress, JoinWindow> windows;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public RecentConnections(Configs configs, Provider<InternalDatabase> dbProvider, Time time) {
+		this.configs = configs;
+		this.dbProvider = dbProvider;
+		this.time = time;
+	}
+
+	private ConnectionLimitConfig config() {
+		return configs.getMainConfig().enforcement().connectionLimiter();
+	}
+
+	@Override
+	public void startup() {
+		startup(null);
+	}
+
+	private void startup(Cache<NetworkAddress, JoinWindow> previous) {
+		ConnectionLimitConfig config = config();
+		if (!config.enable() || !config.inMemory().enable()) {
+			return;
+		}
+		Cache<NetworkAddress, JoinWindow> windows = Caffeine.newBuilder()
+				.maximumSize(config.inMemory().maxTrackedAddresses())
+				.expireAfterAccess(Duration.ofSeconds(config.durationSeconds()))
+				.ticker(time.toCaffeineTicker())
+				.build();
+		if (previous != null) {
+			// Carry over joins counted before the reload
+			windows.putAll(previous.asMap());
+		}
+		this.windows = windows;
+		if (previous == null && config.inMemory().seedFromDatabase()) {
+			seed(windows, config);
+		}
+	}
+
+	private void seed(Cache<NetworkAddress, JoinWindow> windows, ConnectionLimitConfig config) {
+		Instant timeBeforeDuration = time.currentTimestamp().minusSeconds(config.durationSeconds());
+		int capacity = config.limit() + 1;
+		dbProvider.get().query(SQLFunction.readOnly(SQLFunction.Staleness.REPLICA_LAG, (context) -> {
+			return context
+					.select(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
+					.from(ADDRESSES)
+					.where(ADDRESSES.UPDATED.greaterOrEqual(timeBeforeDuration))
+					.fetch();
+		})).thenAccept((joins) -> {
+			for (var join : joins) {
+				record(windows, join.value1(), join.value2(), join.value3(), capacity);
+			}
+			logger.debug("Seeded {} recent joins into the connection limiter", joins.size());
+		}).exceptionally((ex) -> {
+			logger.warn("Failed to seed recent joins for the connection limiter", ex);
+			return null;
+		});
+	}
+
+	@Override
+	public void restart() {
+		Cache<NetworkAddress, JoinWindow> previous = windows;
+		windows = null;
+		startup(previous);
+	}
+
+	@Override
+	public void shutdown() {
+		windows = null;
+	}
+
+	/**
+	 * Whether recent joins are counted in memory
+	 *
+	 * @return true if enabled
+	 */
+	public boolean isEnabled() {
+		return windows != null;
+	}
+
+	/**
+	 * Records a join. Does nothing if not enabled. Recording the same join twice has no further effect.
+	 *
+	 * @param uuid the player's uuid
+	 * @param address the player's address
+	 * @param currentTime the current time
+	 */
+	public void recordJoin(UUID uuid, NetworkAddress address, Instant currentTime) {
+		Cache<NetworkAddress, JoinWindow> windows = this.windows;
+		if (windows != null) {
+			record(windows, uuid, address, currentTime, config().limit() + 1);
+		}
+	}
+
+	private static void record(Cache<NetworkAddress, JoinWindow> windows,
+							   UUID uuid, NetworkAddress address, Instant time, int capacity) {
+		windows.get(address, (a) -> new JoinWindow(capacity)).record(
+				JoinWindow.uuidKey(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()),
+				time.getEpochSecond(), capacity);
+	}
+
+	/**
+	 * Determines whether the limit has been exceeded, equivalent to
+	 * {@link ConnectionLimiter#hasExceededLimit(org.jooq.DSLContext, NetworkAddress, Instant)}
+	 *
+	 * @param address the address
+	 * @param currentTime the current time
+	 * @return the denial message if the limit is exceeded, null otherwise
+	 */
+	public @Nullable Component hasExceededLimit(NetworkAddress address, Instant currentTime) {
+		Cache<NetworkAddress, JoinWindow> windows = this.windows;
+		if (windows == null) {
+			return null;
+		}
+		JoinWindow window = windows.getIfPresent(address);
+		if (window == null) {
+			return null;
+		}
+		ConnectionLimitConfig config = config();
+		long timeBeforeDuration = currentTime.getEpochSecond() - config.durationSeconds();
+		if (window.countSince(timeBeforeDuration) > config.limit()) {
+			return config.message();
+		}
+		return null;
+	}
+}
@@ -20,16 +20,31 @@
 package space.arim.libertybans.core.commands;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import space.arim.api.env.PlatformHandle;
 import space.arim.libertybans.bootstrap.BaseFoundation;
 import space.arim.libertybans.bootstrap.plugin.PluginInfo;
 import space.arim.libertybans.core.config.MessagesConfig;
 import space.arim.libertybans.core.env.CmdSender;
 import space.arim.libertybans.core.env.Environment;
+import space.arim.libertybans.core.punish.LoginAdmission;
+import space.arim.libertybans.core.selector.LatencyHistogram;
+import space.arim.libertybans.core.selector.LoginLatency;
+import space.arim.libertybans.core.selector.VictimFilter;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
@@ -41,14 +56,28 @@ public class AdminCommands extends AbstractSubCommandGroup {
 	private final Provider<BaseFoundation> foundation;
 	private final Provider<Environment> environment;
 	private final PlatformHandle envHandle;
+	private final LoginAdmission loginAdmission;
+	private final VictimFilter victimFilter;
+	private final LoginLatency loginLatency;
+	private final Time time;
+	private final Path folder;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
 	public AdminCommands(Dependencies dependencies, Provider<BaseFoundation> foundation,
-			Provider<Environment> environment, PlatformHandle envHandle) {
+			Provider<Environment> environment, PlatformHandle envHandle, LoginAdmission loginAdmission,
+			VictimFilter victimFilter, LoginLatency loginLatency, Time time,
+			@Named("folder") Path folder) {
 		super(dependencies, Arrays.stream(Type.values()).map(Type::toString));
 		this.foundation = foundation;
 		this.environment = environment;
 		this.envHandle = envHandle;
+		this.loginAdmission = loginAdmission;
+		this.victimFilter = victimFilter;
+		this.loginLatency = loginLatency;
+		this.time = time;
+		this.folder = folder;
 	}
 
 	private MessagesConfig.Admin adminConfig() {
@@ -62,13 +91,18 @@ public class AdminCommands extends AbstractSubCommandGroup {
 	
 	@Override
 	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+		if (argIndex == 0 && arg.equals(Type.LATENCY.toString())
+				&& sender.hasPermission("libertybans.admin.latency")) {
+			return Stream.of("export", "reset");
+		}
 		return Stream.empty();
 	}
 	
 	private enum Type {
 		RELOAD,
 		RESTART,
-		DEBUG;
+		DEBUG,
+		LATENCY;
 		
 		@Override
 		public String toString() {
@@ -100,6 +134,9 @@ public class AdminCommands extends AbstractSubCommandGroup {
 			case DEBUG:
 				debugCmd();
 				break;
+			case LATENCY:
+				latencyCmd();
+				break;
 			default:
 				throw new IllegalArgumentException("Command mismatch");
 			}
@@ -133,9 +170,49 @@ public class AdminCommands extends AbstractSubCommandGroup {
 			List<String> debugInfo = List.of(
 					"Version: " + PluginInfo.VERSION,
 					"Platform Category: " + environmentImplName.substring(0, environmentImplName.length() - 3),
-					"Platform Version: " + envHandle.getPlatformVersion()); // TODO add more debug information
+					"Platform Version: " + envHandle.getPlatformVersion(),
+					"Logins queued: " + loginAdmission.queuedLogins()
+							+ ", shed: " + loginAdmission.shedLogins()
+							+ ", timed out: " + loginAdmission.timedOutLogins(),
+					"Victim filter false positive rate: "
+							+ String.format(Locale.ROOT, "%.4f", victimFilter.falsePositiveRate())); // TODO add more debug information
 			debugInfo.forEach(sender()::sendLiteralMessage);
 		}
+
+		private void latencyCmd() {
+			String action = (command().hasNext()) ? command().next().toLowerCase(Locale.ROOT) : "";
+			switch (action) {
+			case "export":
+				LocalDateTime now = LocalDateTime.ofInstant(
+						time.currentTimestamp(), config().dateFormatting().zoneId());
+				Path exportFile = folder.resolve("login-latency-"
+						+ now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")) + ".csv");
+				try (Writer writer = Files.newBufferedWriter(exportFile)) {
+					loginLatency.exportCsv(writer);
+				} catch (IOException ex) {
+					logger.warn("Failed to export login latency to {}", exportFile, ex);
+					sender().sendLiteralMessage("&cFailed to export login latency. Please check the server console.");
+					return;
+				}
+				sender().sendLiteralMessage("Exported login latency to " + folder.relativize(exportFile));
+				break;
+			case "reset":
+				loginLatency.reset();
+				sender().sendLiteralMessage("Reset login latency");
+				break;
+			default:
+				sender().sendLiteralMessage("Login latency in milliseconds (p50 / p90 / p99 / max):");
+				for (LoginLatency.Stage stage : LoginLatency.Stage.values()) {
+					LatencyHistogram.Snapshot snapshot = loginLatency.snapshot(stage);
+					sender().sendLiteralMessage(String.format(Locale.ROOT, "%s: %.2f / %.2f / %.2f / %.2f (count %d)",
+							stage,
+							snapshot.valueAtPercentile(50D) / 1_000D, snapshot.valueAtPercentile(90D) / 1_000D,
+							snapshot.valueAtPercentile(99D) / 1_000D, snapshot.max() / 1_000D,
+							snapshot.count()));
+				}
+				break;
+			}
+		}
 		
 	}
 
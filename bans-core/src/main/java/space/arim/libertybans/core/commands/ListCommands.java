@@ -25,10 +25,10 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
 import space.arim.api.jsonchat.adventure.util.ComponentText;
 import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.Operator;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.Victim;
 import space.arim.libertybans.api.punish.Punishment;
-import space.arim.libertybans.api.select.PunishmentSelector;
 import space.arim.libertybans.api.select.SelectionOrder;
 import space.arim.libertybans.api.select.SelectionOrderBuilder;
 import space.arim.libertybans.api.select.SelectionPredicate;
@@ -39,6 +39,7 @@ import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.config.ListSection;
 import space.arim.libertybans.core.config.ListSection.ListType;
 import space.arim.libertybans.core.env.CmdSender;
+import space.arim.libertybans.core.selector.InternalSelector;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
@@ -54,17 +55,25 @@ import static space.arim.libertybans.api.select.SelectionPredicate.matchingAnyOf
 @Singleton
 public class ListCommands extends AbstractSubCommandGroup {
 
-	private final PunishmentSelector selector;
+	private final InternalSelector selector;
 	private final InternalFormatter formatter;
 	private final TabCompletion tabCompletion;
+	private final PageCursors pageCursors;
+
+	/**
+	 * The maximum amount of pages walked forward from a known page. Beyond this, the
+	 * beginning of the selected page is found by skipping instead
+	 */
+	private static final int MAX_PAGES_PER_WALK_STEP = 10;
 	
 	@Inject
-	public ListCommands(Dependencies dependencies, PunishmentSelector selector,
-						InternalFormatter formatter, TabCompletion tabCompletion) {
+	public ListCommands(Dependencies dependencies, InternalSelector selector,
+						InternalFormatter formatter, TabCompletion tabCompletion, PageCursors pageCursors) {
 		super(dependencies, "banlist", "mutelist", "history", "warns", "blame");
 		this.selector = selector;
 		this.formatter = formatter;
 		this.tabCompletion = tabCompletion;
+		this.pageCursors = pageCursors;
 	}
 	
 	@Override
@@ -162,11 +171,63 @@ public class ListCommands extends AbstractSubCommandGroup {
 				return completedFuture(null);
 			}
 			int perPage = section.perPage();
-			SelectionOrder selection = selectionOrderBuilder
-					.skipFirstRetrieved(perPage * (selectedPage - 1))
-					.limitToRetrieve(perPage)
-					.build();
-			return continueWithPageAndSelection(selection, selectedPage);
+			// Cursors are keyed by the selection prior to pagination
+			SelectionOrder unpaginated = selectionOrderBuilder.build();
+			Operator operator = sender().getOperator();
+			PageCursors.KnownPage knownPage = pageCursors.nearestKnownPage(operator, unpaginated, perPage, selectedPage);
+			// Only the banlist and mutelist show the amount of pages
+			ReactionStage<Integer> futureCount = (listType.requiresTarget()) ?
+					completedFuture(0) : unpaginated.countNumberOfPunishments();
+			return walkToPage(
+					selectionOrderBuilder, unpaginated, operator, knownPage.page(), knownPage.cursor(), selectedPage
+			).thenCompose((punishments) -> {
+				return futureCount.thenCompose((count) -> {
+					// The count may be slightly outdated
+					int maxPage = Math.max((count + perPage - 1) / perPage, selectedPage);
+					return showPunishmentsOnPage(punishments, selectedPage, maxPage);
+				});
+			});
+		}
+
+		/**
+		 * Seeks to a known page, then walks forward to the selected page, retrieving the pages
+		 * in between and recording their cursors. If the selected page is too far from the known
+		 * page, its beginning is found by skipping, without retrieving the pages in between.
+		 *
+		 * @param selectionOrderBuilder the selection builder
+		 * @param unpaginated the selection, without any pagination
+		 * @param operator the sender's operator
+		 * @param page the known page
+		 * @param cursor the cursor at which the known page begins, or null for the first page
+		 * @param selectedPage the selected page
+		 * @return the punishments on the selected page
+		 */
+		private ReactionStage<List<Punishment>> walkToPage(SelectionOrderBuilder selectionOrderBuilder,
+														   SelectionOrder unpaginated, Operator operator,
+														   int page, PageCursors.Cursor cursor, int selectedPage) {
+			int perPage = section.perPage();
+			if (cursor != null) {
+				selectionOrderBuilder.seekAfter(cursor.startTime(), cursor.id());
+			}
+			int pagesToSkip = Math.max(selectedPage - page, 0);
+			if (pagesToSkip > MAX_PAGES_PER_WALK_STEP) {
+				return selector.getBoundaryAfterSkipping(
+						selectionOrderBuilder.build(), perPage * pagesToSkip, PageCursors.Cursor::new
+				).thenCompose((selectedPageCursor) -> {
+					if (selectedPageCursor == null) {
+						// The list ends before the selected page
+						return completedFuture(List.of());
+					}
+					return walkToPage(selectionOrderBuilder, unpaginated, operator,
+							selectedPage, selectedPageCursor, selectedPage);
+				});
+			}
+			// Retrieve the skipped pages and the selected page together
+			SelectionOrder selection = selectionOrderBuilder.limitToRetrieve(perPage * (pagesToSkip + 1)).build();
+			return selection.getAllSpecificPunishments().thenApply((walked) -> {
+				pageCursors.recordPages(operator, unpaginated, perPage, page, walked);
+				return walked.subList(Math.min(perPage * pagesToSkip, walked.size()), walked.size());
+			});
 		}
 
 		private int parsePage() {
@@ -182,12 +243,6 @@ public class ListCommands extends AbstractSubCommandGroup {
 			return page;
 		}
 
-		private ReactionStage<Void> continueWithPageAndSelection(SelectionOrder selectionOrder, int page) {
-			return selectionOrder.getAllSpecificPunishments().thenCompose((punishments) -> {
-				return showPunishmentsOnPage(punishments, page);
-			});
-		}
-
 		private String replaceTargetIn(String str) {
 			return (target == null) ? str : str.replace("%TARGET%", target);
 		}
@@ -207,7 +262,7 @@ public class ListCommands extends AbstractSubCommandGroup {
 			}
 		}
 
-		private CentralisedFuture<Void> showPunishmentsOnPage(List<Punishment> punishments, int page) {
+		private CentralisedFuture<Void> showPunishmentsOnPage(List<Punishment> punishments, int page, int maxPage) {
 			if (punishments.isEmpty()) {
 				noPunishmentsOnThisPage(page);
 				return completedFuture(null);
@@ -222,12 +277,14 @@ public class ListCommands extends AbstractSubCommandGroup {
 			String pageString = Integer.toString(page);
 			String nextPageString = Integer.toString(page + 1);
 			String previousPageString = Integer.toString(page - 1);
+			String maxPageString = Integer.toString(maxPage);
 			class HeaderFooterReplacer implements UnaryOperator<String> {
 				@Override
 				public String apply(String str) {
 					str = str.replace("%PAGE%", pageString)
 							.replace("%NEXTPAGE%", nextPageString)
-							.replace("%PREVIOUSPAGE%", previousPageString);
+							.replace("%PREVIOUSPAGE%", previousPageString)
+							.replace("%MAXPAGE%", maxPageString);
 					return replaceTargetIn(str);
 				}
 			}
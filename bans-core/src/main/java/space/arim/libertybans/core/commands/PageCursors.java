@@ -0,0 +1,172 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.commands;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Singleton;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.select.SelectionOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers where each page of a list command begins, so that later pages can be
+ * selected by seeking after a known punishment rather than by skipping. <br>
+ * <br>
+ * A page without a cursor is reached by seeking from the nearest earlier page which
+ * has one and walking forward, which records cursors for the pages passed on the way. <br>
+ * <br>
+ * Cursors are kept per sender and per selection, and are forgotten shortly after
+ * the sender stops paging.
+ *
+ */
+@Singleton
+public final class PageCursors {
+
+	private final Cache<ListKey, Map<Integer, Cursor>> cursors = Caffeine.newBuilder()
+			.expireAfterAccess(Duration.ofMinutes(5L))
+			.maximumSize(1_000L)
+			.build();
+
+	private static final int MAX_PAGES_PER_LIST = 500;
+
+	/**
+	 * Finds the nearest page, at or before the given page, whose beginning is known. The first
+	 * page is always known, since it begins at the start of the list.
+	 *
+	 * @param sender the sender paging through the list
+	 * @param selection the selection, without any pagination
+	 * @param perPage the amount of punishments per page
+	 * @param page the page
+	 * @return the nearest known page
+	 */
+	KnownPage nearestKnownPage(Operator sender, SelectionOrder selection, int perPage, int page) {
+		Map<Integer, Cursor> pages = cursors.getIfPresent(new ListKey(sender, selection, perPage));
+		if (pages != null) {
+			for (int candidate = Math.min(page, MAX_PAGES_PER_LIST); candidate > 1; candidate--) {
+				Cursor cursor = pages.get(candidate);
+				if (cursor != null) {
+					return new KnownPage(candidate, cursor);
+				}
+			}
+		}
+		return new KnownPage(1, null);
+	}
+
+	/**
+	 * Records consecutive pages of punishments, beginning with the given page. For each
+	 * full page, the cursor at which the following page begins is remembered.
+	 *
+	 * @param sender the sender paging through the list
+	 * @param selection the selection, without any pagination
+	 * @param perPage the amount of punishments per page
+	 * @param firstPage the page with which the punishments begin
+	 * @param punishments the punishments on the pages, in order
+	 */
+	void recordPages(Operator sender, SelectionOrder selection, int perPage, int firstPage,
+					 List<Punishment> punishments) {
+		if (punishments.size() < perPage || firstPage >= MAX_PAGES_PER_LIST) {
+			return;
+		}
+		Map<Integer, Cursor> pages = cursors.get(
+				new ListKey(sender, selection, perPage), (k) -> new ConcurrentHashMap<>());
+		int page = firstPage;
+		for (int index = perPage - 1; index < punishments.size() && page < MAX_PAGES_PER_LIST; index += perPage) {
+			Punishment last = punishments.get(index);
+			pages.put(++page, new Cursor(last.getStartDate(), last.getIdentifier()));
+		}
+	}
+
+	static final class KnownPage {
+
+		private final int page;
+		private final @Nullable Cursor cursor;
+
+		KnownPage(int page, @Nullable Cursor cursor) {
+			this.page = page;
+			this.cursor = cursor;
+		}
+
+		int page() {
+			return page;
+		}
+
+		/**
+		 * Gets the cursor at which the page begins
+		 *
+		 * @return the cursor, or null for the first page
+		 */
+		@Nullable Cursor cursor() {
+			return cursor;
+		}
+	}
+
+	static final class Cursor {
+
+		private final Instant startTime;
+		private final long id;
+
+		Cursor(Instant startTime, long id) {
+			this.startTime = startTime;
+			this.id = id;
+		}
+
+		Instant startTime() {
+			return startTime;
+		}
+
+		long id() {
+			return id;
+		}
+	}
+
+	private static final class ListKey {
+
+		private final Operator sender;
+		private final SelectionOrder selection;
+		private final int perPage;
+
+		ListKey(Operator sender, SelectionOrder selection, int perPage) {
+			this.sender = sender;
+			this.selection = selection;
+			this.perPage = perPage;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			ListKey listKey = (ListKey) o;
+			return perPage == listKey.perPage && sender.equals(listKey.sender) && selection.equals(listKey.selection);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(sender, selection, perPage);
+		}
+	}
+}
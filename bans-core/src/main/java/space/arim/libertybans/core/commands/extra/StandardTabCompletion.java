@@ -68,7 +68,7 @@ public final class StandardTabCompletion implements TabCompletion {
 					.buildAsync((key, executor) -> {
 						InternalDatabase database = dbProvider.get();
 						Instant currentTimeMinusRetention = time.currentTimestamp().minus(retention);
-						return database.query(SQLFunction.readOnly((context) -> {
+						return database.query(SQLFunction.readOnly(SQLFunction.Staleness.REPLICA_LAG, (context) -> {
 							return Set.copyOf(context
 									.select(NAMES.NAME)
 									.from(NAMES)
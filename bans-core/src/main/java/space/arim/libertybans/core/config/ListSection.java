@@ -94,7 +94,7 @@ public interface ListSection {
 		
 		@Override
 		@ConfKey("layout.footer")
-		@DefaultStrings({"&7Page &e%PAGE%&7.||ttp:Click for next page||cmd:/libertybans banlist %NEXTPAGE%"})
+		@DefaultStrings({"&7Page &e%PAGE%&7 of &e%MAXPAGE%&7.||ttp:Click for next page||cmd:/libertybans banlist %NEXTPAGE%"})
 		ComponentText layoutFooter();
 		
 	}
@@ -139,7 +139,7 @@ public interface ListSection {
 		
 		@Override
 		@ConfKey("layout.footer")
-		@DefaultStrings({"&7Page &e%PAGE%&7.||ttp:Click for next page||cmd:/libertybans mutelist %NEXTPAGE%"})
+		@DefaultStrings({"&7Page &e%PAGE%&7 of &e%MAXPAGE%&7.||ttp:Click for next page||cmd:/libertybans mutelist %NEXTPAGE%"})
 		ComponentText layoutFooter();
 		
 	}
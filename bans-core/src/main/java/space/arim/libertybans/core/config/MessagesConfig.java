@@ -73,6 +73,7 @@ import space.arim.libertybans.core.alts.AltsSection;
 		"%TARGET% - the original target argument of a command. For example, in '/ipban Player1', %TARGET% is Player1",
 		"%NEXTPAGE% - the number of the next page of a list like history",
 		"%PREVIOUSPAGE% - the number of the previous page of a list like history",
+		"%MAXPAGE% - the number of pages of the banlist or mutelist",
 		"",
 		""})
 public interface MessagesConfig {
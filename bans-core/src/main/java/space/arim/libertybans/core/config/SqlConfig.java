@@ -20,10 +20,13 @@
 package space.arim.libertybans.core.config;
 
 import space.arim.dazzleconf.annote.ConfComments;
+import space.arim.dazzleconf.annote.ConfDefault.DefaultBoolean;
+import space.arim.dazzleconf.annote.ConfDefault.DefaultDouble;
 import space.arim.dazzleconf.annote.ConfDefault.DefaultInteger;
 import space.arim.dazzleconf.annote.ConfDefault.DefaultString;
 import space.arim.dazzleconf.annote.ConfHeader;
 import space.arim.dazzleconf.annote.ConfKey;
+import space.arim.dazzleconf.annote.NumericRange;
 import space.arim.dazzleconf.annote.SubSection;
 import space.arim.libertybans.core.database.DatabaseSettingsConfig;
 
@@ -58,6 +61,43 @@ import space.arim.libertybans.core.database.DatabaseSettingsConfig;
 		""})
 public interface SqlConfig extends DatabaseSettingsConfig {
 
+	@ConfKey("read-replica")
+	@SubSection
+	ReadReplica readReplica();
+
+	@ConfHeader({"An optional read-only replica of your database. Requires MariaDB, MySQL, PostgreSQL, or CockroachDB.",
+			"",
+			"If enabled, queries which only read data, such as those used for /history, /alts and tab completion,",
+			"are sent to the replica. If the replica is unavailable, the main database is used instead.",
+			"Replication itself must be set up in your database; LibertyBans does not manage it."})
+	interface ReadReplica {
+
+		@ConfComments("Whether to use a read replica")
+		@DefaultBoolean(false)
+		boolean enable();
+
+		@ConfKey("connection-pool-size")
+		@ConfComments("How large should the connection pool for the replica be?")
+		@DefaultInteger(4)
+		@NumericRange(min = 1)
+		int poolSize();
+
+		@ConfKey("auth-details")
+		@SubSection
+		@ConfComments("Authentication details for the replica. The other connection settings are shared with the main database.")
+		AuthDetails authDetails();
+
+		@ConfKey("read-own-writes-millis")
+		@ConfComments({"Replicas may lag slightly behind the main database. Queries which must see this instance's",
+				"own writes, such as checking whether a player is banned or muted, use the main database",
+				"for this many milliseconds after this instance of LibertyBans writes to the database.",
+				"Other read queries always use the replica. Set to 0 to always use the replica for these queries."})
+		@DefaultInteger(2000)
+		@NumericRange(min = 0)
+		int readOwnWritesMillis();
+
+	}
+
 	@ConfKey("mute-caching")
 	@SubSection
 	MuteCaching muteCaching();
@@ -91,10 +131,115 @@ public interface SqlConfig extends DatabaseSettingsConfig {
 		@DefaultString("EXPIRE_AFTER_ACCESS")
 		ExpirationSemantic expirationSemantic();
 
+		@ConfKey("negative-expiration-time-seconds")
+		@ConfComments({"How long it takes the knowledge that a player is not muted to expire.",
+				"Cached mutes always expire no later than the mute itself."})
+		@DefaultInteger(60)
+		@NumericRange(min = 0)
+		int negativeExpirationTimeSeconds();
+
 		enum ExpirationSemantic {
 			EXPIRE_AFTER_ACCESS,
 			EXPIRE_AFTER_WRITE
 		}
+
+		@ConfKey("prefetch-on-join")
+		@ConfComments({"Whether to look up a player's mute while checking whether they may join,",
+				"so that their first chat message or command does not have to wait for the database."})
+		@DefaultBoolean(true)
+		boolean prefetchOnJoin();
+	}
+
+	@ConfKey("ban-index")
+	@SubSection
+	BanIndex banIndex();
+
+	@ConfHeader({"An optional in-memory index of all active bans, used to check joining players",
+			"without querying the database for their bans.",
+			"",
+			"The index is loaded when LibertyBans starts and kept up to date as punishments are made and undone.",
+			"It is used with the LENIENT and NORMAL address strictness settings. With STRICT, the database is always queried.",
+			"",
+			"Do not enable this if you run multiple instances of LibertyBans on the same database",
+			"without also enabling synchronization, or if any other program may add or remove bans in the database."})
+	interface BanIndex {
+
+		@ConfComments("Whether to enable the active ban index")
+		@DefaultBoolean(false)
+		boolean enable();
+
+	}
+
+	@ConfKey("association-buffer")
+	@SubSection
+	AssociationBuffer associationBuffer();
+
+	@ConfHeader({"When players join, their names and addresses are recorded in the database.",
+			"By default, this is done while checking whether the player is banned.",
+			"",
+			"With the association buffer enabled, names and addresses are instead queued and written",
+			"in batches shortly afterward. This reduces the time taken to check a joining player.",
+			"As a consequence, alt detection and the connection limiter may briefly not see the latest joins.",
+			"The buffer is not used with the STRICT address strictness, which relies on the latest addresses."})
+	interface AssociationBuffer {
+
+		@ConfComments("Whether to enable the association buffer")
+		@DefaultBoolean(false)
+		boolean enable();
+
+		@ConfKey("flush-interval-millis")
+		@ConfComments("How often queued names and addresses are written, in milliseconds")
+		@DefaultInteger(1000)
+		@NumericRange(min = 50, max = 30_000)
+		int flushIntervalMillis();
+
+		@ConfKey("max-batch-size")
+		@ConfComments({"Queued names and addresses are written immediately once this many have accumulated.",
+				"This is also the maximum amount written at once."})
+		@DefaultInteger(250)
+		@NumericRange(min = 1)
+		int maxBatchSize();
+
+		@ConfKey("deduplication-window-seconds")
+		@ConfComments({"If the same player joins with the same name and address again within this many seconds,",
+				"the join is not written again. Set to 0 to disable deduplication."})
+		@DefaultInteger(60)
+		@NumericRange(min = 0)
+		int deduplicationWindowSeconds();
+
+	}
+
+	@ConfKey("victim-filter")
+	@SubSection
+	VictimFilter victimFilter();
+
+	@ConfHeader({"An optional compact filter over the players and addresses which are banned or muted.",
+			"When a player is definitely not banned or muted, the database is not queried.",
+			"",
+			"Like the ban index, this should not be enabled if other instances of LibertyBans use",
+			"the same database without synchronization, or if other programs modify punishments."})
+	interface VictimFilter {
+
+		@ConfComments("Whether to enable the victim filter")
+		@DefaultBoolean(false)
+		boolean enable();
+
+		@ConfKey("false-positive-rate")
+		@ConfComments({"The target rate at which the filter reports a player who may be punished, but is not.",
+				"Lower values use more memory."})
+		@DefaultDouble(0.01)
+		double falsePositiveRateConfigured();
+
+		default double falsePositiveRate() {
+			return Math.min(0.5, Math.max(0.000_001, falsePositiveRateConfigured()));
+		}
+
+		@ConfKey("rebuild-interval-minutes")
+		@ConfComments("How often the filter is rebuilt in order to discard expired punishments, in minutes")
+		@DefaultInteger(60)
+		@NumericRange(min = 1)
+		int rebuildIntervalMinutes();
+
 	}
 
 	@SubSection
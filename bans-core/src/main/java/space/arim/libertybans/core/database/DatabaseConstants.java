@@ -36,6 +36,7 @@ public final class DatabaseConstants {
 	static final boolean AUTOCOMMIT = false;
 	static final int FETCH_SIZE = 1000;
 	static final long SOCKET_TIMEOUT = Duration.ofSeconds(30L).toMillis();
+	static final int PREPARED_STATEMENT_CACHE_SIZE = 250;
 
 	public static final String LIBERTYBANS_08X_FLYWAY_TABLE = "libertybans_flyway";
 	public static final Name LIBERTYBANS_08X_FLYWAY_TABLE_NAME = DSL.quotedName("flyway");
@@ -51,7 +52,7 @@ public final class DatabaseConstants {
 	public static Table<?>[] allTables(TableOrder tableOrder) {
 		// Referees first, referents last with respect to foreign keys
 		Table<?>[] tables = new Table[] {
-				NAMES, ADDRESSES, HISTORY, BANS, MUTES, WARNS, PUNISHMENTS, VICTIMS, MESSAGES, REVISION
+				NAMES, LATEST_NAMES, ADDRESSES, HISTORY, BANS, MUTES, WARNS, ACTIVE, PUNISHMENTS, VICTIMS, MESSAGES, REVISION
 		};
 		if (tableOrder == TableOrder.REFERENTS_FIRST) {
 			// Reverse array
@@ -86,7 +87,7 @@ public final class DatabaseConstants {
 
 	public static Table<?>[] allViews() {
 		return new Table[] {
-				LATEST_NAMES, LATEST_ADDRESSES, STRICT_LINKS,
+				LATEST_ADDRESSES, STRICT_LINKS,
 				APPLICABLE_ACTIVE, APPLICABLE_BANS, APPLICABLE_MUTES, APPLICABLE_WARNS,
 				SIMPLE_ACTIVE, SIMPLE_HISTORY, SIMPLE_BANS, SIMPLE_MUTES, SIMPLE_WARNS
 		};
@@ -25,6 +25,8 @@ import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 
 import space.arim.libertybans.core.punish.GlobalEnforcement;
+import space.arim.libertybans.core.punish.VictimIdCache;
+import space.arim.libertybans.core.selector.PunishmentCache;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
@@ -43,19 +45,24 @@ public class DatabaseManager implements Part {
 	private final Configs configs;
 	private final Time time;
 	private final GlobalEnforcement globalEnforcement;
+	private final PunishmentCache punishmentCache;
+	private final VictimIdCache victimIdCache;
 
 	private volatile StandardDatabase database;
 
 	@Inject
 	public DatabaseManager(@Named("folder") Path folder, FactoryOfTheFuture futuresFactory,
 						   EnhancedExecutor enhancedExecutor, Configs configs, Time time,
-						   GlobalEnforcement globalEnforcement) {
+						   GlobalEnforcement globalEnforcement, PunishmentCache punishmentCache,
+						   VictimIdCache victimIdCache) {
 		this.folder = folder;
 		this.futuresFactory = futuresFactory;
 		this.enhancedExecutor = enhancedExecutor;
 		this.configs = configs;
 		this.time = time;
 		this.globalEnforcement = globalEnforcement;
+		this.punishmentCache = punishmentCache;
+		this.victimIdCache = victimIdCache;
 	}
 
 	public FactoryOfTheFuture futuresFactory() {
@@ -114,6 +121,17 @@ public class DatabaseManager implements Part {
 
 		database.startTasks(time);
 		this.database = database;
+		// The new database may differ from the previous one
+		clearCaches();
+	}
+
+	/**
+	 * Discards cached data which refers to rows in the database
+	 *
+	 */
+	void clearCaches() {
+		punishmentCache.clear();
+		victimIdCache.clear();
 	}
 
 	@Override
@@ -84,12 +84,16 @@ public class DatabaseSettings {
 	 * @return the data source
 	 */
 	public HikariDataSource createDataSource(DatabaseSettingsConfig config) {
+		return new HikariDataSource(createHikariConfig(config));
+	}
+
+	private HikariConfig createHikariConfig(DatabaseSettingsConfig config) {
 		this.config = config;
 		vendor = config.vendor();
 		hikariConf = new HikariConfig();
 
 		setHikariConfig();
-		return new HikariDataSource(hikariConf);
+		return hikariConf;
 	}
 
 	/**
@@ -100,15 +104,41 @@ public class DatabaseSettings {
 	 */
 	public DatabaseResult create(DatabaseSettingsConfig config) {
 		HikariDataSource hikariDataSource = createDataSource(config);
+		Vendor vendor = this.vendor;
+		int threadPoolSize = hikariConf.getMaximumPoolSize();
+
+		HikariDataSource replicaDataSource = null;
+		long readOwnWritesMillis = 0L;
+		if (config instanceof SqlConfig && ((SqlConfig) config).readReplica().enable()) {
+			SqlConfig sqlConfig = (SqlConfig) config;
+			SqlConfig.AuthDetails replicaAuthDetails = sqlConfig.readReplica().authDetails();
+			if (replicaAuthDetails.username().equals("defaultuser")
+					|| replicaAuthDetails.password().equals("defaultpass")) {
+				logger.warn("The read replica authentication details are still set to the default values. " +
+						"The read replica will not be used.");
+			} else if (vendor.isRemote()) {
+				try {
+					replicaDataSource = createReplicaDataSource(folder, manager, sqlConfig);
+					threadPoolSize += replicaDataSource.getMaximumPoolSize();
+					readOwnWritesMillis = sqlConfig.readReplica().readOwnWritesMillis();
+				} catch (RuntimeException ex) {
+					logger.warn("Unable to connect to the read replica. The main database will be used instead.", ex);
+				}
+			} else {
+				logger.warn("A read replica cannot be used with a local database. The read replica will not be used.");
+			}
+		}
 
 		JooqContext jooqContext = new JooqContext(vendor.dialect());
 		ExecutorService threadPool = Executors.newFixedThreadPool(
-				hikariConf.getMaximumPoolSize(),
+				threadPoolSize,
 				SimpleThreadFactory.create("Database")
 		);
 		StandardDatabase database  = new StandardDatabase(
-				manager, vendor, hikariDataSource,
-				new JooqQueryExecutor(jooqContext, hikariDataSource, manager.futuresFactory(), threadPool),
+				manager, vendor, hikariDataSource, replicaDataSource,
+				new JooqQueryExecutor(
+						jooqContext, hikariDataSource, replicaDataSource, Duration.ofMillis(readOwnWritesMillis),
+						manager.futuresFactory(), threadPool),
 				threadPool
 		);
 
@@ -123,6 +153,16 @@ public class DatabaseSettings {
 		return new DatabaseResult(database, true);
 	}
 
+	private static HikariDataSource createReplicaDataSource(Path folder, DatabaseManager manager,
+														   SqlConfig sqlConfig) {
+		// Separate settings, so that the main database's settings are left untouched
+		DatabaseSettings replicaSettings = new DatabaseSettings(folder, manager);
+		HikariConfig replicaConf = replicaSettings.createHikariConfig(new ReplicaSettingsConfig(sqlConfig));
+		replicaConf.setPoolName("LibertyBansReplicaPool-" + replicaSettings.vendor);
+		replicaConf.setReadOnly(true);
+		return new HikariDataSource(replicaConf);
+	}
+
 	private void setHikariConfig() {
 		setUsernameAndPassword();
 		setConfiguredDriver();
@@ -269,6 +309,12 @@ public class DatabaseSettings {
 			// https://github.com/brettwooldridge/HikariCP/wiki/Rapid-Recovery#mysql
 			properties.put("socketTimeout", DatabaseConstants.SOCKET_TIMEOUT);
 
+			// Cache prepared statements, which frequently executed queries reuse
+			properties.put("useServerPrepStmts", true);
+			properties.put("cachePrepStmts", true);
+			properties.put("prepStmtCacheSize", DatabaseConstants.PREPARED_STATEMENT_CACHE_SIZE);
+			properties.put("prepStmtCacheSqlLimit", 2048);
+
 			// Properties preceding can be overridden
 			properties.putAll(config.mariaDb().connectionProperties());
 			// Properties following cannot be overridden
@@ -285,6 +331,9 @@ public class DatabaseSettings {
 			// https://github.com/brettwooldridge/HikariCP/wiki/Rapid-Recovery#postgresql
 			properties.put("socketTimeout", DatabaseConstants.SOCKET_TIMEOUT);
 
+			// Cache prepared statements, which frequently executed queries reuse
+			properties.put("preparedStatementCacheQueries", DatabaseConstants.PREPARED_STATEMENT_CACHE_SIZE);
+
 			// Properties preceding can be overridden
 			properties.putAll(config.postgres().connectionProperties());
 			break;
@@ -123,8 +123,8 @@ public interface DatabaseSettingsConfig {
 				"characterEncoding", "UTF-8",
 				"useServerPrepStmts", "true",
 				"cachePrepStmts", "true",
-				"prepStmtCacheSize", "25",
-				"prepStmtCacheSqlLimit", "1024"})
+				"prepStmtCacheSize", "250",
+				"prepStmtCacheSqlLimit", "2048"})
 		Map<String, String> connectionProperties();
 
 	}
@@ -139,7 +139,7 @@ public interface DatabaseSettingsConfig {
 		@ConfKey("connection-properties")
 		@ConfComments("Connection properties to be applied to database connections")
 		@ConfDefault.DefaultMap({
-				"preparedStatementCacheQueries", "25"})
+				"preparedStatementCacheQueries", "250"})
 		Map<String, String> connectionProperties();
 
 	}
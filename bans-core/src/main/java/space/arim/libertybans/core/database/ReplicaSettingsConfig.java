@@ -0,0 +1,77 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.database;
+
+import space.arim.libertybans.core.config.SqlConfig;
+
+/**
+ * Connection settings for the read replica, using the replica's authentication details
+ * and pool size and otherwise the settings of the main database
+ *
+ */
+final class ReplicaSettingsConfig implements DatabaseSettingsConfig {
+
+	private final SqlConfig config;
+
+	ReplicaSettingsConfig(SqlConfig config) {
+		this.config = config;
+	}
+
+	@Override
+	public Vendor vendor() {
+		return config.vendor();
+	}
+
+	@Override
+	public int poolSize() {
+		return config.readReplica().poolSize();
+	}
+
+	@Override
+	public Timeouts timeouts() {
+		return config.timeouts();
+	}
+
+	@Override
+	public AuthDetails authDetails() {
+		return config.readReplica().authDetails();
+	}
+
+	@Override
+	public MariaDbConfig mariaDb() {
+		return config.mariaDb();
+	}
+
+	@Override
+	public PostgresConfig postgres() {
+		return config.postgres();
+	}
+
+	@Override
+	public boolean useTraditionalJdbcUrl() {
+		return config.useTraditionalJdbcUrl();
+	}
+
+	@Override
+	public String toString() {
+		return "ReplicaSettingsConfig{" +
+				"config=" + config +
+				'}';
+	}
+}
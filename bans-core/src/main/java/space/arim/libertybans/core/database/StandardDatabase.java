@@ -47,6 +47,7 @@ import java.time.Instant;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 
+import static space.arim.libertybans.core.schema.Tables.ACTIVE;
 import static space.arim.libertybans.core.schema.Tables.PUNISHMENTS;
 
 public final class StandardDatabase implements InternalDatabase, AutoCloseable {
@@ -54,6 +55,7 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 	private final DatabaseManager manager;
 	private final Vendor vendor;
 	private final HikariDataSource dataSource;
+	private final HikariDataSource replicaDataSource;
 	private final QueryExecutor queryExecutor;
 	private final ExecutorService threadPool;
 	private final PunishmentDatabase external = new External();
@@ -63,11 +65,12 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
-	StandardDatabase(DatabaseManager manager, Vendor vendor,
-					 HikariDataSource dataSource, QueryExecutor queryExecutor, ExecutorService threadPool) {
+	StandardDatabase(DatabaseManager manager, Vendor vendor, HikariDataSource dataSource,
+					 HikariDataSource replicaDataSource, QueryExecutor queryExecutor, ExecutorService threadPool) {
 		this.manager = manager;
 		this.vendor = vendor;
 		this.dataSource = dataSource;
+		this.replicaDataSource = replicaDataSource;
 		this.queryExecutor = queryExecutor;
 		this.threadPool = threadPool;
 	}
@@ -106,6 +109,9 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 	@Override
 	public void close() {
 		dataSource.close();
+		if (replicaDataSource != null) {
+			replicaDataSource.close();
+		}
 		threadPool.shutdown();
 	}
 	
@@ -163,6 +169,12 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 						.where(PUNISHMENTS.END.notEqual(Instant.MAX))
 						.and(PUNISHMENTS.END.lessThan(currentTime))
 				)).execute();
+		context
+				.deleteFrom(ACTIVE)
+				.where(ACTIVE.TYPE.eq(type))
+				.and(ACTIVE.END.notEqual(Instant.MAX))
+				.and(ACTIVE.END.lessThan(currentTime))
+				.execute();
 	}
 
 	@Override
@@ -172,6 +184,7 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 				context.deleteFrom(table).execute();
 			}
 		}).join();
+		manager.clearCaches();
 	}
 
 	@Override
@@ -21,14 +21,19 @@ package space.arim.libertybans.core.database.execute;
 
 import org.jooq.DSLContext;
 import org.jooq.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.libertybans.core.punish.MiscUtil;
 import space.arim.omnibus.util.ArraysUtil;
+import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
@@ -37,15 +42,68 @@ public final class JooqQueryExecutor implements QueryExecutor {
 
 	private final JooqContext jooqContext;
 	private final DataSource dataSource;
+	private final DataSource replicaDataSource;
+	private final long readOwnWritesNanos;
 	private final FactoryOfTheFuture futuresFactory;
 	private final Executor threadPool;
 
+	/**
+	 * Time of the last write, according to {@link System#nanoTime()}. Only used with a replica,
+	 * for read-only queries which must see this instance's own writes
+	 */
+	private volatile long lastWriteNanos;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
 	public JooqQueryExecutor(JooqContext jooqContext, DataSource dataSource,
 							 FactoryOfTheFuture futuresFactory, Executor threadPool) {
+		this(jooqContext, dataSource, null, Duration.ZERO, futuresFactory, threadPool);
+	}
+
+	/**
+	 * Creates an executor which sends read-only queries to a replica. If the replica cannot be used,
+	 * read-only queries fall back to the main data source.
+	 *
+	 * @param jooqContext the jooq context
+	 * @param dataSource the main data source
+	 * @param replicaDataSource the replica data source, or {@code null} for none
+	 * @param readOwnWrites the period after a write in which read-only queries requiring
+	 *                      {@link SQLFunction.Staleness#OWN_WRITES} use the main data source
+	 * @param futuresFactory the futures factory
+	 * @param threadPool the thread pool
+	 */
+	public JooqQueryExecutor(JooqContext jooqContext, DataSource dataSource, DataSource replicaDataSource,
+							 Duration readOwnWrites, FactoryOfTheFuture futuresFactory, Executor threadPool) {
 		this.jooqContext = Objects.requireNonNull(jooqContext, "jooqContext");
 		this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+		this.replicaDataSource = replicaDataSource;
+		this.readOwnWritesNanos = readOwnWrites.toNanos();
 		this.futuresFactory = Objects.requireNonNull(futuresFactory, "futuresFactory");
 		this.threadPool = Objects.requireNonNull(threadPool, "threadPool");
+		lastWriteNanos = System.nanoTime() - readOwnWritesNanos;
+	}
+
+	private boolean useReplica(SQLFunction<?> command) {
+		if (replicaDataSource == null || !command.isReadOnly()) {
+			return false;
+		}
+		SQLFunction.Staleness staleness = command.staleness();
+		switch (staleness) {
+		case REPLICA_LAG:
+			return true;
+		case OWN_WRITES:
+			return System.nanoTime() - lastWriteNanos >= readOwnWritesNanos;
+		case NONE:
+			return false;
+		default:
+			throw MiscUtil.unknownStaleness(staleness);
+		}
+	}
+
+	private void recordWrite() {
+		if (replicaDataSource != null) {
+			lastWriteNanos = System.nanoTime();
+		}
 	}
 
 	private static <E extends Throwable> E rollbackBeforeThrow(Connection connection, E reason) throws E {
@@ -58,6 +116,21 @@ public final class JooqQueryExecutor implements QueryExecutor {
 	}
 
 	private <R> R obtainUnfailing(SQLFunction<R> command) {
+		if (useReplica(command)) {
+			try {
+				return obtainUnfailing(replicaDataSource, command);
+			} catch (DataAccessException ex) {
+				logger.debug("Read-only query failed on the replica. Falling back to the main database", ex);
+			}
+		}
+		R value = obtainUnfailing(dataSource, command);
+		if (!command.isReadOnly()) {
+			recordWrite();
+		}
+		return value;
+	}
+
+	private <R> R obtainUnfailing(DataSource dataSource, SQLFunction<R> command) {
 		try (Connection connection = dataSource.getConnection()) {
 			if (command.isReadOnly()) {
 				connection.setReadOnly(true);
@@ -128,6 +201,10 @@ public final class JooqQueryExecutor implements QueryExecutor {
 						continue;
 					}
 					throw rollbackBeforeThrow(connection, ex);
+				} catch (RetryTransactionException ex) {
+					// Retry
+					serializationFailures = ArraysUtil.expandAndInsert(serializationFailures, ex, 0);
+					continue;
 				} catch (RuntimeException ex) {
 					throw rollbackBeforeThrow(connection, ex);
 				}
@@ -142,6 +219,7 @@ public final class JooqQueryExecutor implements QueryExecutor {
 						}
 						throw rollbackBeforeThrow(connection, new DataAccessException("Unable to commit", ex));
 					}
+					recordWrite();
 				}
 				return value;
 			}
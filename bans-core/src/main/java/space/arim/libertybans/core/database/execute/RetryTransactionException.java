@@ -0,0 +1,35 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.database.execute;
+
+/**
+ * Thrown within a transaction which cannot proceed now, but may succeed if retried. For example,
+ * a row committed by a concurrent transaction may not be visible until the next attempt. <br>
+ * <br>
+ * The transaction is rolled back and retried by {@link QueryExecutor#queryWithRetry(int, SQLTransactionalFunction)}
+ * and the related methods, the same as for a serialization failure.
+ *
+ */
+public final class RetryTransactionException extends RuntimeException {
+
+	public RetryTransactionException(String message) {
+		super(message);
+	}
+
+}
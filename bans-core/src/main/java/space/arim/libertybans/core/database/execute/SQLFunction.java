@@ -21,15 +21,48 @@ package space.arim.libertybans.core.database.execute;
 
 import org.jooq.DSLContext;
 
+import java.util.Objects;
+
 public interface SQLFunction<R> {
 
 	default boolean isReadOnly() {
 		return false;
 	}
 
+	/**
+	 * How stale the data read by this function may be, if it is read-only. Determines
+	 * whether the function may be run against a read replica
+	 *
+	 * @return the staleness tolerated
+	 */
+	default Staleness staleness() {
+		return Staleness.OWN_WRITES;
+	}
+
 	R obtain(DSLContext context) throws RuntimeException;
 
+	/**
+	 * Creates a read-only function which must see the writes made by this instance.
+	 * Reads which tolerate replica lag should opt in with {@link Staleness#REPLICA_LAG}
+	 *
+	 * @param command the function
+	 * @param <R> the return type
+	 * @return the read-only function
+	 */
 	static <R> SQLFunction<R> readOnly(SQLFunction<R> command) {
+		return readOnly(Staleness.OWN_WRITES, command);
+	}
+
+	/**
+	 * Creates a read-only function
+	 *
+	 * @param staleness the staleness tolerated by the function
+	 * @param command the function
+	 * @param <R> the return type
+	 * @return the read-only function
+	 */
+	static <R> SQLFunction<R> readOnly(Staleness staleness, SQLFunction<R> command) {
+		Objects.requireNonNull(staleness, "staleness");
 		return new SQLFunction<>() {
 
 			@Override
@@ -37,10 +70,35 @@ public interface SQLFunction<R> {
 				return true;
 			}
 
+			@Override
+			public Staleness staleness() {
+				return staleness;
+			}
+
 			@Override
 			public R obtain(DSLContext context) throws RuntimeException {
 				return command.obtain(context);
 			}
 		};
 	}
+
+	/**
+	 * How stale the data read by a read-only function may be
+	 *
+	 */
+	enum Staleness {
+		/**
+		 * Any replication lag is tolerated. The read replica is used if there is one
+		 */
+		REPLICA_LAG,
+		/**
+		 * Writes made by this instance must be visible. The read replica is used only
+		 * if this instance has not written for the configured duration
+		 */
+		OWN_WRITES,
+		/**
+		 * Data must be current. The main database is always used
+		 */
+		NONE
+	}
 }
@@ -19,6 +19,7 @@
 
 package space.arim.libertybans.core.database.jooq;
 
+import org.jooq.Configuration;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.conf.MappedSchema;
@@ -26,6 +27,7 @@ import org.jooq.conf.MappedTable;
 import org.jooq.conf.RenderMapping;
 import org.jooq.conf.Settings;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
 
 import java.sql.Connection;
 import java.util.Objects;
@@ -33,21 +35,18 @@ import java.util.regex.Pattern;
 
 public final class JooqContext {
 
-	private final SQLDialect dialect;
-
-	public JooqContext(SQLDialect dialect) {
-		this.dialect = Objects.requireNonNull(dialect, "dialect");
-	}
-
 	private static final Pattern MATCH_ALL_EXCEPT_INFORMATION_SCHEMA = Pattern.compile("^(?!INFORMATION_SCHEMA)(.*?)$");
 	static final Pattern MATCH_ALL = Pattern.compile("^(.*?)$");
 	static final String REPLACEMENT = "libertybans_$0";
 
-	public DSLContext createContext(Connection connection) {
-		return DSL.using(
-				connection,
-				dialect,
-				new Settings()
+	private final SQLDialect dialect;
+	private final Configuration configuration;
+
+	public JooqContext(SQLDialect dialect) {
+		this.dialect = Objects.requireNonNull(dialect, "dialect");
+		configuration = new DefaultConfiguration()
+				.set(dialect)
+				.set(new Settings()
 						.withRenderSchema(false)
 						.withRenderMapping(new RenderMapping()
 								.withSchemata(new MappedSchema()
@@ -58,7 +57,20 @@ public final class JooqContext {
 										)
 								)
 						)
-		);
+				);
+	}
+
+	/**
+	 * Creates a context using the given connection. <br>
+	 * <br>
+	 * The settings and dialect are shared between all contexts, and only the connection
+	 * differs. The shared configuration must not be modified.
+	 *
+	 * @param connection the connection
+	 * @return the context
+	 */
+	public DSLContext createContext(Connection connection) {
+		return DSL.using(configuration.derive(connection));
 	}
 
 	@Override
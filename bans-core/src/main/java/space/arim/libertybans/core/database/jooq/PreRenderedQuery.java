@@ -0,0 +1,211 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.database.jooq;
+
+import org.jooq.DSLContext;
+import org.jooq.DataType;
+import org.jooq.Field;
+import org.jooq.Param;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A query whose SQL is rendered once per dialect, then reused with different bind values. <br>
+ * <br>
+ * The template builds the query using {@link DSL#param(String, Field)} for each value which
+ * differs between executions. A parameter may appear more than once. All other values in the
+ * template are constants, and are inlined into the rendered SQL. Executing the query binds
+ * values to the rendered SQL as plain SQL, so the query tree is neither rebuilt nor rendered again.
+ *
+ * @param <Q> the query type
+ */
+public final class PreRenderedQuery<Q extends Query> {
+
+	private final Function<DSLContext, Q> template;
+	private final List<String> parameterNames;
+	private final boolean resultQuery;
+
+	private volatile Rendered rendered;
+
+	private PreRenderedQuery(Function<DSLContext, Q> template, List<String> parameterNames, boolean resultQuery) {
+		this.template = Objects.requireNonNull(template, "template");
+		this.parameterNames = List.copyOf(parameterNames);
+		this.resultQuery = resultQuery;
+	}
+
+	/**
+	 * Creates from a query template
+	 *
+	 * @param template the query template
+	 * @param parameterNames the names of the parameters, in the order their values are given when binding
+	 * @return the pre-rendered query
+	 */
+	public static PreRenderedQuery<Query> query(Function<DSLContext, Query> template, String...parameterNames) {
+		return new PreRenderedQuery<>(template, Arrays.asList(parameterNames), false);
+	}
+
+	/**
+	 * Creates from a result query template
+	 *
+	 * @param template the result query template
+	 * @param parameterNames the names of the parameters, in the order their values are given when binding
+	 * @param <R> the record type
+	 * @return the pre-rendered result query
+	 */
+	public static <R extends Record> PreRenderedQuery<ResultQuery<R>> resultQuery(
+			Function<DSLContext, ResultQuery<R>> template, String...parameterNames) {
+		return new PreRenderedQuery<>(template, Arrays.asList(parameterNames), true);
+	}
+
+	/**
+	 * Binds values to the query, rendering it first if it has not been rendered for the context's dialect
+	 *
+	 * @param context the query context
+	 * @param values the parameter values, in the order the parameter names were given
+	 * @return the query, ready for execution
+	 */
+	@SuppressWarnings("unchecked")
+	public Q bind(DSLContext context, Object...values) {
+		if (values.length != parameterNames.size()) {
+			throw new IllegalArgumentException(
+					"Expected " + parameterNames.size() + " values but received " + values.length);
+		}
+		Rendered rendered = this.rendered;
+		if (rendered == null || rendered.dialect != context.dialect()) {
+			this.rendered = rendered = render(context);
+		}
+		Object[] bindings = new Object[rendered.parameterIndexes.length];
+		for (int n = 0; n < bindings.length; n++) {
+			int parameterIndex = rendered.parameterIndexes[n];
+			bindings[n] = DSL.val(values[parameterIndex], rendered.dataTypes[parameterIndex]);
+		}
+		if (resultQuery) {
+			// A record of degree N implements RecordN, so the record type is preserved
+			return (Q) context.resultQuery(rendered.sql, bindings).coerce(rendered.fields);
+		}
+		return (Q) context.query(rendered.sql, bindings);
+	}
+
+	private Rendered render(DSLContext context) {
+		Q query = template.apply(context);
+		DataType<?>[] dataTypes = new DataType<?>[parameterNames.size()];
+		for (Param<?> param : context.extractParams(query).values()) {
+			int parameterIndex = parameterNames.indexOf(param.getParamName());
+			if (parameterIndex != -1) {
+				dataTypes[parameterIndex] = param.getDataType();
+			}
+		}
+		for (int n = 0; n < dataTypes.length; n++) {
+			if (dataTypes[n] == null) {
+				throw new IllegalStateException("Parameter " + parameterNames.get(n) + " is absent from the query");
+			}
+		}
+		String namedSql = context.renderNamedOrInlinedParams(query);
+		List<Integer> parameterIndexes = new ArrayList<>();
+		String sql = replaceNamedParameters(namedSql, parameterNames, parameterIndexes);
+		Field<?>[] fields = (resultQuery) ? ((ResultQuery<?>) query).fields() : null;
+		return new Rendered(
+				context.dialect(), sql,
+				parameterIndexes.stream().mapToInt(Integer::intValue).toArray(), dataTypes, fields
+		);
+	}
+
+	/**
+	 * Replaces named parameters, as in {@code :name}, with JDBC placeholders. Quoted text,
+	 * whether identifiers or literals, is left untouched.
+	 *
+	 * @param namedSql the sql with named parameters
+	 * @param parameterNames the parameter names
+	 * @param parameterIndexes to which to add the index of each parameter replaced, in order of appearance
+	 * @return the sql with placeholders
+	 */
+	static String replaceNamedParameters(String namedSql, List<String> parameterNames,
+										 List<Integer> parameterIndexes) {
+		StringBuilder sql = new StringBuilder(namedSql.length());
+		char quote = 0;
+		int n = 0;
+		while (n < namedSql.length()) {
+			char c = namedSql.charAt(n);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '"' || c == '`') {
+				quote = c;
+			} else if (c == ':') {
+				int end = n + 1;
+				while (end < namedSql.length() && isIdentifierPart(namedSql.charAt(end))) {
+					end++;
+				}
+				int parameterIndex = parameterNames.indexOf(namedSql.substring(n + 1, end));
+				if (parameterIndex != -1) {
+					sql.append('?');
+					parameterIndexes.add(parameterIndex);
+					n = end;
+					continue;
+				}
+			}
+			sql.append(c);
+			n++;
+		}
+		if (quote != 0) {
+			throw new IllegalStateException("Unterminated quote in " + namedSql);
+		}
+		return sql.toString();
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+	}
+
+	private static final class Rendered {
+
+		private final SQLDialect dialect;
+		private final String sql;
+		private final int[] parameterIndexes;
+		private final DataType<?>[] dataTypes;
+		private final Field<?>[] fields;
+
+		private Rendered(SQLDialect dialect, String sql, int[] parameterIndexes,
+						 DataType<?>[] dataTypes, Field<?>[] fields) {
+			this.dialect = dialect;
+			this.sql = sql;
+			this.parameterIndexes = parameterIndexes;
+			this.dataTypes = dataTypes;
+			this.fields = fields;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PreRenderedQuery{" +
+				"parameterNames=" + parameterNames +
+				", resultQuery=" + resultQuery +
+				'}';
+	}
+}
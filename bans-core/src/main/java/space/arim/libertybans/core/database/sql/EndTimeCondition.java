@@ -41,6 +41,10 @@ public final class EndTimeCondition {
 		return endField.eq(Instant.MAX).or(endField.greaterThan(currentTime));
 	}
 
+	public Condition isNotExpired(Field<Instant> currentTime) {
+		return endField.eq(Instant.MAX).or(endField.greaterThan(currentTime));
+	}
+
 	@Override
 	public String toString() {
 		return "EndTimeCondition{" +
@@ -58,6 +58,14 @@ public final class SequenceValue<R extends Number> {
 		}
 	}
 
+	public R retrieveNextValue(DSLContext context) {
+		Field<R> nextValue = nextValue(context);
+		if (context.family() == SQLDialect.MYSQL) {
+			return lastValueForMySQL;
+		}
+		return context.select(nextValue).fetchSingle().value1();
+	}
+
 	public Field<R> lastValueInSession(DSLContext context) {
 		if (context.family() == SQLDialect.MYSQL) {
 			if (lastValueForMySQL == null) {
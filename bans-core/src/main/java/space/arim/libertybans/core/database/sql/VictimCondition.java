@@ -25,6 +25,7 @@ import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.Victim;
 import space.arim.libertybans.core.punish.MiscUtil;
 
+import java.util.Collection;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -54,6 +55,18 @@ public final class VictimCondition {
 				);
 	}
 
+	public Condition simplyMatchesAny(Collection<UUID> uuids, Collection<NetworkAddress> addresses) {
+		// Equivalent to simplyMatches for any of the UUIDs and addresses
+		return fields.victimType().eq(Victim.VictimType.PLAYER).and(fields.victimUuid().in(uuids))
+				.or(
+						fields.victimType().eq(Victim.VictimType.ADDRESS).and(fields.victimAddress().in(addresses))
+				).or(
+						fields.victimType().eq(Victim.VictimType.COMPOSITE).and(
+								fields.victimUuid().in(uuids).or(fields.victimAddress().in(addresses))
+						)
+				);
+	}
+
 	public Condition matchesUUID(Field<UUID> uuid) {
 		// (victim_type = PLAYER OR victim_type = COMPOSITE) AND (victim_uuid = uuid)
 		return fields.victimType().eq(Victim.VictimType.PLAYER)
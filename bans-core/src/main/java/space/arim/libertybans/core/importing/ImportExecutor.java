@@ -28,6 +28,7 @@ import space.arim.libertybans.core.service.Time;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.punish.Enaction;
 import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.punish.VictimIdCache;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
@@ -45,17 +46,20 @@ public class ImportExecutor {
 	private final ImportFunction importFunction;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
+	private final VictimIdCache victimIdCache;
 	private final Time time;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
 	public ImportExecutor(FactoryOfTheFuture futuresFactory, ImportFunction importFunction,
-						  Provider<InternalDatabase> dbProvider, PunishmentCreator creator, Time time) {
+						  Provider<InternalDatabase> dbProvider, PunishmentCreator creator,
+						  VictimIdCache victimIdCache, Time time) {
 		this.futuresFactory = futuresFactory;
 		this.importFunction = importFunction;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
+		this.victimIdCache = victimIdCache;
 		this.time = time;
 	}
 
@@ -102,7 +106,7 @@ public class ImportExecutor {
 							punishment.foreignId(), punishment.victimInfo());
 					return;
 				}
-				addEnaction(importSink, punishment, new Enaction(enactionOrder.get(), creator));
+				addEnaction(importSink, punishment, new Enaction(enactionOrder.get(), creator, victimIdCache));
 				addImplicitNameAddressRecord(importSink, punishment);
 			});
 		}
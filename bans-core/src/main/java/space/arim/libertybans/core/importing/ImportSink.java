@@ -64,6 +64,8 @@ class ImportSink {
 				enaction.enactHistorical(context);
 			}
 		});
+		// Committed by now
+		enaction.publishVictimId();
 	}
 
 	void addNameAddressRecord(NameAddressRecord nameAddressRecord) {
@@ -20,13 +20,18 @@
 package space.arim.libertybans.core.punish;
 
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Query;
+import org.jooq.impl.DSL;
 import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.database.jooq.PreRenderedQuery;
 
 import java.time.Instant;
 import java.util.Objects;
 import java.util.UUID;
 
 import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+import static space.arim.libertybans.core.schema.tables.LatestNames.LATEST_NAMES;
 import static space.arim.libertybans.core.schema.tables.Names.NAMES;
 
 public final class Association {
@@ -34,6 +39,44 @@ public final class Association {
 	private final UUID uuid;
 	private final DSLContext context;
 
+	private static final PreRenderedQuery<Query> UPSERT_CURRENT_NAME = PreRenderedQuery.query((context) -> {
+		Field<Instant> currentTime = DSL.param("currentTime", NAMES.UPDATED);
+		return context
+				.insertInto(NAMES)
+				.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
+				.values(DSL.param("uuid", NAMES.UUID), DSL.param("name", NAMES.NAME), currentTime)
+				.onConflict(NAMES.UUID, NAMES.NAME)
+				.doUpdate()
+				.set(NAMES.UPDATED, currentTime);
+	}, "uuid", "name", "currentTime");
+
+	private static final PreRenderedQuery<Query> UPSERT_CURRENT_ADDRESS = PreRenderedQuery.query((context) -> {
+		Field<Instant> currentTime = DSL.param("currentTime", ADDRESSES.UPDATED);
+		return context
+				.insertInto(ADDRESSES)
+				.columns(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
+				.values(DSL.param("uuid", ADDRESSES.UUID), DSL.param("address", ADDRESSES.ADDRESS), currentTime)
+				.onConflict(ADDRESSES.UUID, ADDRESSES.ADDRESS)
+				.doUpdate()
+				.set(ADDRESSES.UPDATED, currentTime);
+	}, "uuid", "address", "currentTime");
+
+	private static final PreRenderedQuery<Query> UPSERT_LATEST_NAME = PreRenderedQuery.query((context) -> {
+		Field<String> name = DSL.param("name", LATEST_NAMES.NAME);
+		Field<Instant> time = DSL.param("time", LATEST_NAMES.UPDATED);
+		return context
+				.insertInto(LATEST_NAMES)
+				.columns(LATEST_NAMES.UUID, LATEST_NAMES.NAME, LATEST_NAMES.UPDATED)
+				.values(DSL.param("uuid", LATEST_NAMES.UUID), name, time)
+				.onConflict(LATEST_NAMES.UUID)
+				.doUpdate()
+				// The name is assigned first, since MySQL applies assignments in order
+				.set(LATEST_NAMES.NAME, DSL
+						.when(LATEST_NAMES.UPDATED.lessOrEqual(time), name)
+						.otherwise(LATEST_NAMES.NAME))
+				.set(LATEST_NAMES.UPDATED, DSL.greatest(LATEST_NAMES.UPDATED, time));
+	}, "uuid", "name", "time");
+
 	public Association(UUID uuid, DSLContext context) {
 		this.uuid = Objects.requireNonNull(uuid, "uuid");
 		this.context = Objects.requireNonNull(context, "context");
@@ -42,14 +85,8 @@ public final class Association {
 	public void associateCurrentName(String name, Instant currentTime) {
 		Objects.requireNonNull(name, "name");
 		Objects.requireNonNull(currentTime, "currentTime");
-		context
-				.insertInto(NAMES)
-				.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
-				.values(uuid, name, currentTime)
-				.onConflict(NAMES.UUID, NAMES.NAME)
-				.doUpdate()
-				.set(NAMES.UPDATED, currentTime)
-				.execute();
+		UPSERT_CURRENT_NAME.bind(context, uuid, name, currentTime).execute();
+		upsertLatestName(context, uuid, name, currentTime).execute();
 	}
 
 	public void associatePastName(String name, Instant pastTime) {
@@ -62,19 +99,27 @@ public final class Association {
 				.onConflict(NAMES.UUID, NAMES.NAME)
 				.doNothing()
 				.execute();
+		upsertLatestName(context, uuid, name, pastTime).execute();
+	}
+
+	/**
+	 * Creates a query recording the given name as the player's latest name, unless a
+	 * more recent name is already recorded
+	 *
+	 * @param context the query context
+	 * @param uuid the player's uuid
+	 * @param name the name
+	 * @param time the time the name was used
+	 * @return the upsert query
+	 */
+	static Query upsertLatestName(DSLContext context, UUID uuid, String name, Instant time) {
+		return UPSERT_LATEST_NAME.bind(context, uuid, name, time);
 	}
 
 	public void associateCurrentAddress(NetworkAddress address, Instant currentTime) {
 		Objects.requireNonNull(address, "address");
 		Objects.requireNonNull(currentTime, "currentTime");
-		context
-				.insertInto(ADDRESSES)
-				.columns(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
-				.values(uuid, address, currentTime)
-				.onConflict(ADDRESSES.UUID, ADDRESSES.ADDRESS)
-				.doUpdate()
-				.set(ADDRESSES.UPDATED, currentTime)
-				.execute();
+		UPSERT_CURRENT_ADDRESS.bind(context, uuid, address, currentTime).execute();
 	}
 
 	public void associatePastAddress(NetworkAddress address, Instant pastTime) {
@@ -0,0 +1,326 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.DelayCalculators;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+import static space.arim.libertybans.core.schema.tables.Names.NAMES;
+
+/**
+ * Write-behind buffer for the name and address associations made when players join. <br>
+ * <br>
+ * Associations are queued and written in batches, either periodically or once enough have
+ * accumulated. Repeated joins with the same name and address are written once per deduplication window.
+ *
+ */
+@Singleton
+public final class AssociationBuffer implements Part {
+
+	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
+	private final EnhancedExecutor enhancedExecutor;
+	private final Provider<QueryExecutor> queryExecutor;
+	private final Time time;
+
+	private final Queue<PendingAssociation> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queueSize = new AtomicInteger();
+	private final AtomicBoolean flushing = new AtomicBoolean();
+
+	private volatile Settings settings;
+	private ScheduledTask flushTask;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public AssociationBuffer(Configs configs, FactoryOfTheFuture futuresFactory, EnhancedExecutor enhancedExecutor,
+							 Provider<QueryExecutor> queryExecutor, Time time) {
+		this.configs = configs;
+		this.futuresFactory = futuresFactory;
+		this.enhancedExecutor = enhancedExecutor;
+		this.queryExecutor = queryExecutor;
+		this.time = time;
+	}
+
+	@Override
+	public void startup() {
+		SqlConfig.AssociationBuffer config = configs.getSqlConfig().associationBuffer();
+		if (!config.enable()) {
+			return;
+		}
+		settings = new Settings(config, time);
+		flushTask = enhancedExecutor.scheduleRepeating(
+				this::flushAsync,
+				Duration.ofMillis(config.flushIntervalMillis()),
+				DelayCalculators.fixedDelay()
+		);
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		if (flushTask != null) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+		Settings settings = this.settings;
+		if (settings != null) {
+			this.settings = null;
+			// Write whatever remains before the database is closed
+			try {
+				while (queueSize.get() > 0) {
+					flush(settings.maxBatchSize).join();
+				}
+			} catch (CompletionException ex) {
+				logger.warn("Failed to write queued name and address associations", ex);
+			}
+		}
+	}
+
+	/**
+	 * Whether associations should be queued in this buffer rather than written immediately
+	 *
+	 * @return true if enabled
+	 */
+	public boolean isEnabled() {
+		return settings != null;
+	}
+
+	/**
+	 * Queues the current name and address of a player
+	 *
+	 * @param uuid the player's uuid
+	 * @param name the player's name
+	 * @param address the player's address
+	 * @param currentTime the current time
+	 */
+	public void queueCurrentAssociation(UUID uuid, String name, NetworkAddress address, Instant currentTime) {
+		Settings settings = this.settings;
+		if (settings == null) {
+			throw new IllegalStateException("Association buffer is not enabled");
+		}
+		PendingAssociation association = new PendingAssociation(uuid, name, address, currentTime);
+		if (settings.recentlyQueued != null
+				&& settings.recentlyQueued.asMap().putIfAbsent(association.withoutTime(), Boolean.TRUE) != null) {
+			// Repeat join within the deduplication window
+			return;
+		}
+		queue.offer(association);
+		if (queueSize.incrementAndGet() >= settings.maxBatchSize) {
+			flushAsync();
+		}
+	}
+
+	private void flushAsync() {
+		Settings settings = this.settings;
+		if (settings == null || queueSize.get() == 0 || !flushing.compareAndSet(false, true)) {
+			return;
+		}
+		flush(settings.maxBatchSize).whenComplete((ignore, ex) -> {
+			flushing.set(false);
+			if (ex != null) {
+				logger.warn("Failed to write queued name and address associations", ex);
+			}
+		});
+	}
+
+	private CentralisedFuture<Void> flush(int maxBatchSize) {
+		// Combine repeated associations, keeping the latest time
+		Map<PendingAssociation, Instant> names = new HashMap<>();
+		Map<PendingAssociation, Instant> addresses = new HashMap<>();
+		List<PendingAssociation> drained = new ArrayList<>();
+		PendingAssociation association;
+		while (drained.size() < maxBatchSize && (association = queue.poll()) != null) {
+			queueSize.decrementAndGet();
+			drained.add(association);
+			names.merge(new PendingAssociation(association.uuid, association.name, null, null),
+					association.time, PendingAssociation::latest);
+			addresses.merge(new PendingAssociation(association.uuid, null, association.address, null),
+					association.time, PendingAssociation::latest);
+		}
+		if (drained.isEmpty()) {
+			return futuresFactory.completedFuture(null);
+		}
+		logger.trace("Writing {} queued associations", drained.size());
+		return queryExecutor.get().executeWithRetry((context, transaction) -> {
+			writeNames(context, names);
+			writeAddresses(context, addresses);
+		}).whenComplete((ignore, ex) -> {
+			if (ex != null) {
+				// Queue the associations again, so that the next flush writes them
+				for (PendingAssociation failed : drained) {
+					queue.offer(failed);
+				}
+				queueSize.addAndGet(drained.size());
+			}
+		});
+	}
+
+	private static void writeNames(DSLContext context, Map<PendingAssociation, Instant> names) {
+		// Consistent ordering reduces lock contention between concurrent writers
+		List<Map.Entry<PendingAssociation, Instant>> entries = new ArrayList<>(names.entrySet());
+		entries.sort(Map.Entry.comparingByKey(PendingAssociation.ORDER_BY_UUID_THEN_NAME));
+		List<Query> upserts = new ArrayList<>(2 * entries.size());
+		for (Map.Entry<PendingAssociation, Instant> entry : entries) {
+			PendingAssociation name = entry.getKey();
+			Instant time = entry.getValue();
+			upserts.add(context
+					.insertInto(NAMES)
+					.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
+					.values(name.uuid, name.name, time)
+					.onConflict(NAMES.UUID, NAMES.NAME)
+					.doUpdate()
+					.set(NAMES.UPDATED, time));
+			upserts.add(Association.upsertLatestName(context, name.uuid, name.name, time));
+		}
+		context.batch(upserts).execute();
+	}
+
+	private static void writeAddresses(DSLContext context, Map<PendingAssociation, Instant> addresses) {
+		List<Map.Entry<PendingAssociation, Instant>> entries = new ArrayList<>(addresses.entrySet());
+		entries.sort(Map.Entry.comparingByKey(PendingAssociation.ORDER_BY_UUID_THEN_ADDRESS));
+		List<Query> upserts = new ArrayList<>(entries.size());
+		for (Map.Entry<PendingAssociation, Instant> entry : entries) {
+			PendingAssociation address = entry.getKey();
+			Instant time = entry.getValue();
+			upserts.add(context
+					.insertInto(ADDRESSES)
+					.columns(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
+					.values(address.uuid, address.address, time)
+					.onConflict(ADDRESSES.UUID, ADDRESSES.ADDRESS)
+					.doUpdate()
+					.set(ADDRESSES.UPDATED, time));
+		}
+		context.batch(upserts).execute();
+	}
+
+	private static final class Settings {
+
+		final int maxBatchSize;
+		final Cache<PendingAssociation, Boolean> recentlyQueued;
+
+		Settings(SqlConfig.AssociationBuffer config, Time time) {
+			maxBatchSize = config.maxBatchSize();
+			int deduplicationWindow = config.deduplicationWindowSeconds();
+			recentlyQueued = (deduplicationWindow == 0) ? null : Caffeine.newBuilder()
+					.ticker(time.toCaffeineTicker())
+					.expireAfterWrite(Duration.ofSeconds(deduplicationWindow))
+					.build();
+		}
+	}
+
+	private static final class PendingAssociation {
+
+		final UUID uuid;
+		final String name;
+		final NetworkAddress address;
+		final Instant time;
+
+		static final Comparator<PendingAssociation> ORDER_BY_UUID_THEN_NAME =
+				Comparator.<PendingAssociation, UUID>comparing((association) -> association.uuid)
+						.thenComparing((association) -> association.name);
+		static final Comparator<PendingAssociation> ORDER_BY_UUID_THEN_ADDRESS =
+				Comparator.<PendingAssociation, UUID>comparing((association) -> association.uuid)
+						.thenComparing((association) -> association.address.toString());
+
+		PendingAssociation(UUID uuid, String name, NetworkAddress address, Instant time) {
+			this.uuid = Objects.requireNonNull(uuid, "uuid");
+			this.name = name;
+			this.address = address;
+			this.time = time;
+		}
+
+		PendingAssociation withoutTime() {
+			return new PendingAssociation(uuid, name, address, null);
+		}
+
+		static Instant latest(Instant time1, Instant time2) {
+			return (time1.compareTo(time2) >= 0) ? time1 : time2;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			PendingAssociation that = (PendingAssociation) o;
+			return uuid.equals(that.uuid) && Objects.equals(name, that.name)
+					&& Objects.equals(address, that.address) && Objects.equals(time, that.time);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = uuid.hashCode();
+			result = 31 * result + Objects.hashCode(name);
+			result = 31 * result + Objects.hashCode(address);
+			result = 31 * result + Objects.hashCode(time);
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return "PendingAssociation{" +
+					"uuid=" + uuid +
+					", name='" + name + '\'' +
+					", address=" + address +
+					", time=" + time +
+					'}';
+		}
+	}
+
+}
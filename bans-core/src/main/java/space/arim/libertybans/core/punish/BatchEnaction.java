@@ -0,0 +1,317 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish;
+
+import org.jooq.DSLContext;
+import org.jooq.Row3;
+import org.jooq.Row4;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.database.execute.RetryTransactionException;
+import space.arim.libertybans.core.database.sql.FixedVictimData;
+import space.arim.libertybans.core.database.sql.SequenceValue;
+import space.arim.libertybans.core.database.sql.SerializedVictim;
+import space.arim.libertybans.core.database.sql.TableForType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.jooq.impl.DSL.row;
+import static org.jooq.impl.DSL.val;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_PUNISHMENT_IDS;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_VICTIM_IDS;
+import static space.arim.libertybans.core.schema.tables.Active.ACTIVE;
+import static space.arim.libertybans.core.schema.tables.History.HISTORY;
+import static space.arim.libertybans.core.schema.tables.Punishments.PUNISHMENTS;
+import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
+
+/**
+ * Enacts many active punishments in a single transaction. <br>
+ * <br>
+ * Unlike {@link Enaction}, conflicts are detected up front, by querying the active
+ * punishments of the victims, so that conflicting punishments are never inserted.
+ * Ids are retrieved from the sequences in advance, which allows each table to be
+ * written to with a single multi-row insert.
+ *
+ */
+final class BatchEnaction {
+
+	private final List<Enaction.OrderDetails> orders;
+	private final PunishmentCreator creator;
+	private final VictimIdCache victimIdCache;
+
+	/**
+	 * The victims and victim ids used by the last successful enactment, if not yet cached
+	 */
+	private final Map<FixedVictimData, Integer> victimIdsToPublish = new HashMap<>();
+
+	BatchEnaction(List<Enaction.OrderDetails> orders, PunishmentCreator creator, VictimIdCache victimIdCache) {
+		this.orders = List.copyOf(orders);
+		this.creator = creator;
+		this.victimIdCache = victimIdCache;
+	}
+
+	List<Enaction.OrderDetails> orders() {
+		return orders;
+	}
+
+	/**
+	 * Caches the victim ids used by the last successful enactment. Must only be called
+	 * after the transaction in which the punishments were enacted has committed
+	 *
+	 */
+	void publishVictimIds() {
+		victimIdsToPublish.forEach(victimIdCache::publish);
+		victimIdsToPublish.clear();
+	}
+
+	/**
+	 * Enacts the punishments
+	 *
+	 * @param context the query context, within a transaction
+	 * @return the punishments, in the order of the orders, or null for each conflicting punishment
+	 */
+	List<Punishment> enact(DSLContext context) {
+		victimIdsToPublish.clear();
+
+		int size = orders.size();
+		List<FixedVictimData> victims = new ArrayList<>(size);
+		for (Enaction.OrderDetails order : orders) {
+			MiscUtil.checkNoCompositeVictimWildcards(order.victim());
+			victims.add(FixedVictimData.from(new SerializedVictim(order.victim())));
+		}
+		// A singular punishment conflicts with an active punishment, or an earlier order
+		Map<PunishmentType, Set<FixedVictimData>> occupiedVictims = selectOccupiedVictims(context, victims);
+		boolean[] conflicts = new boolean[size];
+		Set<FixedVictimData> victimsToEnact = new HashSet<>();
+		for (int n = 0; n < size; n++) {
+			PunishmentType type = orders.get(n).type();
+			FixedVictimData victim = victims.get(n);
+			if (type.isSingular()
+					&& !occupiedVictims.computeIfAbsent(type, (t) -> new HashSet<>()).add(victim)) {
+				conflicts[n] = true;
+			} else {
+				victimsToEnact.add(victim);
+			}
+		}
+		Map<FixedVictimData, Integer> victimIds = obtainVictimIds(context, victimsToEnact);
+
+		SequenceValue<Long> punishmentIdSequence = new SequenceValue<>(LIBERTYBANS_PUNISHMENT_IDS);
+
+		var punishmentsInsert = context
+				.insertInto(PUNISHMENTS)
+				.columns(
+						PUNISHMENTS.ID, PUNISHMENTS.TYPE,
+						PUNISHMENTS.OPERATOR, PUNISHMENTS.REASON,
+						PUNISHMENTS.SCOPE, PUNISHMENTS.START, PUNISHMENTS.END);
+		var activeInsert = context
+				.insertInto(ACTIVE)
+				.columns(
+						ACTIVE.ID, ACTIVE.TYPE,
+						ACTIVE.VICTIM_TYPE, ACTIVE.VICTIM_UUID, ACTIVE.VICTIM_ADDRESS,
+						ACTIVE.OPERATOR, ACTIVE.REASON,
+						ACTIVE.SCOPE, ACTIVE.START, ACTIVE.END);
+		var historyInsert = context
+				.insertInto(HISTORY)
+				.columns(HISTORY.ID, HISTORY.VICTIM);
+		long[] punishmentIds = new long[size];
+		Set<PunishmentType> activeTypes = EnumSet.noneOf(PunishmentType.class);
+		List<Punishment> punishments = new ArrayList<>(size);
+		for (int n = 0; n < size; n++) {
+			if (conflicts[n]) {
+				punishments.add(null);
+				continue;
+			}
+			Enaction.OrderDetails order = orders.get(n);
+			FixedVictimData victim = victims.get(n);
+			long id = punishmentIdSequence.retrieveNextValue(context);
+			punishmentIds[n] = id;
+
+			PunishmentType type = order.type();
+			punishmentsInsert = punishmentsInsert.values(
+					id, type, order.operator(), order.reason(), order.scope(), order.start(), order.end());
+			if (type != PunishmentType.KICK) {
+				activeTypes.add(type);
+				activeInsert = activeInsert.values(
+						id, type, victim.type(), victim.uuid(), victim.address(),
+						order.operator(), order.reason(), order.scope(), order.start(), order.end());
+			}
+			historyInsert = historyInsert.values(id, victimIds.get(victim));
+
+			Punishment punishment = creator.createPunishment(
+					id, type, order.victim(), order.operator(), order.reason(), order.scope(), order.start(), order.end());
+			if (punishment == null) { // Shouldn't happen
+				throw new IllegalStateException("Internal error: Unable to create punishment for id " + id);
+			}
+			punishments.add(punishment);
+		}
+		if (victimsToEnact.isEmpty()) {
+			// Every order conflicts
+			return punishments;
+		}
+		punishmentsInsert.execute();
+		for (PunishmentType type : activeTypes) {
+			var dataTable = new TableForType(type).dataTable();
+			var dataInsert = context
+					.insertInto(dataTable.table())
+					.columns(dataTable.id(), dataTable.victimId());
+			int expectedCount = 0;
+			for (int n = 0; n < size; n++) {
+				if (!conflicts[n] && orders.get(n).type() == type) {
+					dataInsert = dataInsert.values(punishmentIds[n], victimIds.get(victims.get(n)));
+					expectedCount++;
+				}
+			}
+			if (type.isSingular()) {
+				int insertCount = dataInsert.onDuplicateKeyIgnore().execute();
+				if (insertCount != expectedCount) {
+					// Another transaction enacted a conflicting punishment since we checked
+					throw new RetryTransactionException("Punishment was enacted concurrently");
+				}
+			} else {
+				dataInsert.execute();
+			}
+		}
+		if (!activeTypes.isEmpty()) {
+			activeInsert.execute();
+		}
+		historyInsert.execute();
+		return punishments;
+	}
+
+	private Map<PunishmentType, Set<FixedVictimData>> selectOccupiedVictims(DSLContext context,
+																			  List<FixedVictimData> victims) {
+		List<Row4<PunishmentType, Victim.VictimType, UUID, NetworkAddress>> rows = new ArrayList<>();
+		for (int n = 0; n < orders.size(); n++) {
+			PunishmentType type = orders.get(n).type();
+			if (type.isSingular()) {
+				FixedVictimData victim = victims.get(n);
+				rows.add(row(
+						val(type, ACTIVE.TYPE), val(victim.type(), ACTIVE.VICTIM_TYPE),
+						val(victim.uuid(), ACTIVE.VICTIM_UUID), val(victim.address(), ACTIVE.VICTIM_ADDRESS)));
+			}
+		}
+		Map<PunishmentType, Set<FixedVictimData>> occupiedVictims = new EnumMap<>(PunishmentType.class);
+		if (rows.isEmpty()) {
+			return occupiedVictims;
+		}
+		context
+				.select(ACTIVE.TYPE, ACTIVE.VICTIM_TYPE, ACTIVE.VICTIM_UUID, ACTIVE.VICTIM_ADDRESS)
+				.from(ACTIVE)
+				.where(row(ACTIVE.TYPE, ACTIVE.VICTIM_TYPE, ACTIVE.VICTIM_UUID, ACTIVE.VICTIM_ADDRESS).in(rows))
+				.fetch()
+				.forEach((record) -> {
+					occupiedVictims
+							.computeIfAbsent(record.value1(), (t) -> new HashSet<>())
+							.add(new FixedVictimData(record.value2(), record.value3(), record.value4()));
+				});
+		return occupiedVictims;
+	}
+
+	private Map<FixedVictimData, Integer> obtainVictimIds(DSLContext context, Set<FixedVictimData> victims) {
+		Map<FixedVictimData, Integer> victimIds = new HashMap<>();
+		Set<FixedVictimData> uncachedVictims = new HashSet<>();
+		for (FixedVictimData victim : victims) {
+			Integer cachedVictimId = victimIdCache.getIfPresent(victim);
+			if (cachedVictimId == null) {
+				uncachedVictims.add(victim);
+			} else {
+				victimIds.put(victim, cachedVictimId);
+			}
+		}
+		if (uncachedVictims.isEmpty()) {
+			return victimIds;
+		}
+		Map<FixedVictimData, Integer> selectedVictimIds = selectVictimIds(context, uncachedVictims);
+		List<FixedVictimData> newVictims = new ArrayList<>();
+		for (FixedVictimData victim : uncachedVictims) {
+			if (!selectedVictimIds.containsKey(victim)) {
+				newVictims.add(victim);
+			}
+		}
+		if (!newVictims.isEmpty()) {
+			SequenceValue<Integer> victimIdSequence = new SequenceValue<>(LIBERTYBANS_VICTIM_IDS);
+
+			Map<FixedVictimData, Integer> newVictimIds = new HashMap<>();
+			var insert = context
+					.insertInto(VICTIMS)
+					.columns(VICTIMS.ID, VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS);
+			for (FixedVictimData victim : newVictims) {
+				int newVictimId = victimIdSequence.retrieveNextValue(context);
+				newVictimIds.put(victim, newVictimId);
+				insert = insert.values(newVictimId, victim.type(), victim.uuid(), victim.address());
+			}
+			int insertCount = insert
+					.onConflict(VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS)
+					.doNothing()
+					.execute();
+			if (insertCount != newVictims.size()) {
+				// Another transaction inserted some of the same victims since we checked
+				newVictimIds = selectVictimIds(context, newVictims);
+				if (newVictimIds.size() != newVictims.size()) {
+					// The rows are not visible to this transaction, but will be after a retry
+					throw new RetryTransactionException("Victims were inserted concurrently");
+				}
+			}
+			selectedVictimIds.putAll(newVictimIds);
+		}
+		victimIdsToPublish.putAll(selectedVictimIds);
+		victimIds.putAll(selectedVictimIds);
+		return victimIds;
+	}
+
+	private static Map<FixedVictimData, Integer> selectVictimIds(DSLContext context,
+																 Collection<FixedVictimData> victims) {
+		List<Row3<Victim.VictimType, UUID, NetworkAddress>> rows = new ArrayList<>(victims.size());
+		for (FixedVictimData victim : victims) {
+			rows.add(row(
+					val(victim.type(), VICTIMS.TYPE), val(victim.uuid(), VICTIMS.UUID),
+					val(victim.address(), VICTIMS.ADDRESS)));
+		}
+		Map<FixedVictimData, Integer> victimIds = new HashMap<>();
+		context
+				.select(VICTIMS.ID, VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS)
+				.from(VICTIMS)
+				.where(row(VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS).in(rows))
+				.fetch()
+				.forEach((record) -> {
+					victimIds.put(new FixedVictimData(record.value2(), record.value3(), record.value4()), record.value1());
+				});
+		return victimIds;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchEnaction{" +
+				"orders=" + orders +
+				", creator=" + creator +
+				'}';
+	}
+}
@@ -26,6 +26,7 @@ import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.Victim;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.core.database.execute.RetryTransactionException;
 import space.arim.libertybans.core.database.execute.Transaction;
 import space.arim.libertybans.core.database.sql.FixedVictimData;
 import space.arim.libertybans.core.database.sql.SequenceValue;
@@ -41,6 +42,7 @@ import static java.util.Objects.requireNonNull;
 import static org.jooq.impl.DSL.val;
 import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_PUNISHMENT_IDS;
 import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_VICTIM_IDS;
+import static space.arim.libertybans.core.schema.tables.Active.ACTIVE;
 import static space.arim.libertybans.core.schema.tables.History.HISTORY;
 import static space.arim.libertybans.core.schema.tables.Punishments.PUNISHMENTS;
 import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
@@ -49,10 +51,18 @@ public class Enaction {
 
 	private final OrderDetails orderDetails;
 	private final PunishmentCreator creator;
+	private final VictimIdCache victimIdCache;
 
-	public Enaction(OrderDetails orderDetails, PunishmentCreator creator) {
+	/**
+	 * The victim and victim id used by the last successful enactment, if not yet cached
+	 */
+	private FixedVictimData victimDataToPublish;
+	private int victimIdToPublish;
+
+	public Enaction(OrderDetails orderDetails, PunishmentCreator creator, VictimIdCache victimIdCache) {
 		this.orderDetails = orderDetails;
 		this.creator = creator;
+		this.victimIdCache = victimIdCache;
 	}
 
 	public OrderDetails orderDetails() {
@@ -67,7 +77,20 @@ public class Enaction {
 		return enact(context, null, false);
 	}
 
+	/**
+	 * Caches the victim id used by the last successful enactment. Must only be called
+	 * after the transaction in which the punishment was enacted has committed
+	 *
+	 */
+	public void publishVictimId() {
+		if (victimDataToPublish != null) {
+			victimIdCache.publish(victimDataToPublish, victimIdToPublish);
+			victimDataToPublish = null;
+		}
+	}
+
 	private Punishment enact(DSLContext context, Transaction transaction, boolean active) {
+		victimDataToPublish = null;
 
 		final PunishmentType type = orderDetails.type();
 		final Victim victim = orderDetails.victim();
@@ -94,30 +117,36 @@ public class Enaction {
 				.execute();
 
 		Field<Long> punishmentIdField = punishmentIdSequence.lastValueInSession(context);
-		Field<Integer> victimIdField;
-		{
-			VictimData victimData = FixedVictimData.from(new SerializedVictim(victim));
-			Integer existingVictimId = context
-					.select(VICTIMS.ID)
-					.from(VICTIMS)
-					.where(new VictimCondition(new VictimTableFields()).matchesVictim(victimData))
-					.fetchOne(VICTIMS.ID);
-			if (existingVictimId == null) {
-				context
-						.insertInto(VICTIMS)
-						.columns(VICTIMS.ID, VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS)
-						.values(
-								victimIdSequence.nextValue(context),
-								val(victimData.type(), VICTIMS.TYPE),
-								val(victimData.uuid(), VICTIMS.UUID),
-								val(victimData.address(), VICTIMS.ADDRESS)
-						)
-						.execute();
-				victimIdField = victimIdSequence.lastValueInSession(context);
-			} else {
-				victimIdField = val(existingVictimId, VICTIMS.ID);
+		FixedVictimData victimData = FixedVictimData.from(new SerializedVictim(victim));
+		Integer cachedVictimId = victimIdCache.getIfPresent(victimData);
+		Integer victimId = cachedVictimId;
+		if (victimId == null) {
+			victimId = selectVictimId(context, victimData);
+		}
+		if (victimId == null) {
+			int insertCount = context
+					.insertInto(VICTIMS)
+					.columns(VICTIMS.ID, VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS)
+					.values(
+							victimIdSequence.nextValue(context),
+							val(victimData.type(), VICTIMS.TYPE),
+							val(victimData.uuid(), VICTIMS.UUID),
+							val(victimData.address(), VICTIMS.ADDRESS)
+					)
+					.onConflict(VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS)
+					.doNothing()
+					.execute();
+			if (insertCount == 0) {
+				// Another transaction inserted the same victim since we checked
+				victimId = selectVictimId(context, victimData);
+				if (victimId == null) {
+					// The row is not visible to this transaction, but will be after a retry
+					throw new RetryTransactionException("Victim was inserted concurrently");
+				}
 			}
 		}
+		Field<Integer> victimIdField = (victimId == null) ?
+				victimIdSequence.lastValueInSession(context) : val(victimId, VICTIMS.ID);
 		if (active && type != PunishmentType.KICK) {
 			var dataTable = new TableForType(type).dataTable();
 			if (type.isSingular()) {
@@ -139,16 +168,35 @@ public class Enaction {
 						.values(punishmentIdField, victimIdField)
 						.execute();
 			}
+			context
+					.insertInto(ACTIVE)
+					.columns(
+							ACTIVE.ID, ACTIVE.TYPE,
+							ACTIVE.VICTIM_TYPE, ACTIVE.VICTIM_UUID, ACTIVE.VICTIM_ADDRESS,
+							ACTIVE.OPERATOR, ACTIVE.REASON,
+							ACTIVE.SCOPE, ACTIVE.START, ACTIVE.END)
+					.values(
+							punishmentIdField, val(type, ACTIVE.TYPE),
+							val(victimData.type(), ACTIVE.VICTIM_TYPE),
+							val(victimData.uuid(), ACTIVE.VICTIM_UUID),
+							val(victimData.address(), ACTIVE.VICTIM_ADDRESS),
+							val(operator, ACTIVE.OPERATOR), val(reason, ACTIVE.REASON),
+							val(scope, ACTIVE.SCOPE), val(start, ACTIVE.START), val(end, ACTIVE.END))
+					.execute();
 		}
 		context
 				.insertInto(HISTORY)
 				.columns(HISTORY.ID, HISTORY.VICTIM)
 				.values(punishmentIdField, victimIdField)
 				.execute();
-		long id = context
-				.select(punishmentIdField)
-				.fetchSingle()
-				.value1();
+		var ids = context
+				.select(punishmentIdField, victimIdField)
+				.fetchSingle();
+		long id = ids.value1();
+		if (cachedVictimId == null) {
+			victimDataToPublish = victimData;
+			victimIdToPublish = ids.value2();
+		}
 		Punishment punishment = creator.createPunishment(id, type, victim, operator, reason, scope, start, end);
 		if (punishment == null) { // Shouldn't happen
 			throw new IllegalStateException("Internal error: Unable to create punishment for id " + id);
@@ -156,6 +204,14 @@ public class Enaction {
 		return punishment;
 	}
 
+	private static Integer selectVictimId(DSLContext context, VictimData victimData) {
+		return context
+				.select(VICTIMS.ID)
+				.from(VICTIMS)
+				.where(new VictimCondition(new VictimTableFields()).matchesVictim(victimData))
+				.fetchOne(VICTIMS.ID);
+	}
+
 	public static final class OrderDetails {
 
 		private final PunishmentType type;
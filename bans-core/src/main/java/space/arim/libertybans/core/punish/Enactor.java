@@ -25,31 +25,60 @@ import jakarta.inject.Singleton;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.DraftPunishment;
 import space.arim.libertybans.api.punish.DraftPunishmentBuilder;
+import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.punish.PunishmentDrafter;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.scope.InternalScopeManager;
+import space.arim.libertybans.core.selector.ActiveBanIndex;
+import space.arim.libertybans.core.selector.VictimFilter;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ReactionStage;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Singleton
-public class Enactor implements PunishmentDrafter {
+public class Enactor implements PunishmentDrafter, EnforcementOpts.Factory {
+
+	/**
+	 * Maximum number of punishments enacted, and enforced together, in a single transaction by
+	 * {@link #enactPunishments(List, EnforcementOptions)}
+	 */
+	private static final int PUNISHMENTS_PER_TRANSACTION = 200;
+
+	private final FactoryOfTheFuture futuresFactory;
 
 	private final InternalScopeManager scopeManager;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
 	private final Time time;
+	private final ActiveBanIndex banIndex;
+	private final VictimFilter victimFilter;
+	private final VictimIdCache victimIdCache;
+	private final Provider<GlobalEnforcement> enforcement;
 
 	@Inject
-	public Enactor(InternalScopeManager scopeManager, Provider<InternalDatabase> dbProvider,
-				   PunishmentCreator creator, Time time) {
+	public Enactor(FactoryOfTheFuture futuresFactory, InternalScopeManager scopeManager,
+				   Provider<InternalDatabase> dbProvider, PunishmentCreator creator, Time time,
+				   ActiveBanIndex banIndex, VictimFilter victimFilter, VictimIdCache victimIdCache,
+				   Provider<GlobalEnforcement> enforcement) {
+		this.futuresFactory = futuresFactory;
 		this.scopeManager = scopeManager;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
 		this.time = time;
+		this.banIndex = banIndex;
+		this.victimFilter = victimFilter;
+		this.victimIdCache = victimIdCache;
+		this.enforcement = enforcement;
 	}
 
 	@Override
@@ -61,26 +90,106 @@ public class Enactor implements PunishmentDrafter {
 		return scopeManager;
 	}
 
+	private static Enaction.OrderDetails createOrderDetails(DraftPunishment draftPunishment, Instant start) {
+		final Duration duration = draftPunishment.getDuration();
+		final Instant end = (duration.isZero()) ?
+				Punishment.PERMANENT_END_DATE : start.plusSeconds(duration.toSeconds());
+
+		return new Enaction.OrderDetails(
+				draftPunishment.getType(), draftPunishment.getVictim(), draftPunishment.getOperator(),
+				draftPunishment.getReason(), draftPunishment.getScope(), start, end);
+	}
+
+	private Enaction createEnaction(DraftPunishment draftPunishment, Instant start) {
+		return new Enaction(createOrderDetails(draftPunishment, start), creator, victimIdCache);
+	}
+
+	private void punishmentEnacted(Enaction enaction, Punishment punishment) {
+		enaction.publishVictimId();
+		punishmentEnacted(punishment);
+	}
+
+	private void punishmentEnacted(Punishment punishment) {
+		banIndex.punishmentEnacted(punishment);
+		victimFilter.punishmentEnacted(punishment);
+	}
+
 	CentralisedFuture<Punishment> enactPunishment(DraftPunishment draftPunishment) {
 		InternalDatabase database = dbProvider.get();
 
 		final PunishmentType type = draftPunishment.getType();
-		final Duration duration = draftPunishment.getDuration();
 		final Instant start = time.currentTimestamp();
-		final Instant end = (duration.isZero()) ?
-				Punishment.PERMANENT_END_DATE : start.plusSeconds(duration.toSeconds());
-
-		Enaction enaction = new Enaction(
-				new Enaction.OrderDetails(
-						type, draftPunishment.getVictim(), draftPunishment.getOperator(),
-						draftPunishment.getReason(), draftPunishment.getScope(), start, end),
-				creator);
+		Enaction enaction = createEnaction(draftPunishment, start);
 
 		return database.queryWithRetry((context, transaction) -> {
 			if (type != PunishmentType.KICK) {
 				database.clearExpiredPunishments(context, type, start);
 			}
 			return enaction.enactActive(context, transaction);
+		}).thenApply((punishment) -> {
+			if (punishment != null) {
+				punishmentEnacted(enaction, punishment);
+			}
+			return punishment;
+		});
+	}
+
+	@Override
+	public ReactionStage<List<Optional<Punishment>>> enactPunishments(List<? extends DraftPunishment> draftPunishments,
+																	  EnforcementOptions enforcementOptions) {
+		InternalDatabase database = dbProvider.get();
+
+		final Instant start = time.currentTimestamp();
+		List<Enaction.OrderDetails> orders = new ArrayList<>(draftPunishments.size());
+		for (DraftPunishment draftPunishment : draftPunishments) {
+			orders.add(createOrderDetails(draftPunishment, start));
+		}
+		List<Optional<Punishment>> results = new ArrayList<>(orders.size());
+		CentralisedFuture<?> future = futuresFactory.completedFuture(null);
+		for (int from = 0; from < orders.size(); from += PUNISHMENTS_PER_TRANSACTION) {
+			BatchEnaction batchEnaction = new BatchEnaction(
+					orders.subList(from, Math.min(from + PUNISHMENTS_PER_TRANSACTION, orders.size())),
+					creator, victimIdCache);
+			future = future.thenCompose((ignore) -> {
+				return enactChunk(database, batchEnaction, start, (EnforcementOpts) enforcementOptions);
+			}).thenAccept((punishments) -> {
+				for (Punishment punishment : punishments) {
+					results.add(Optional.ofNullable(punishment));
+				}
+			});
+		}
+		return future.thenApply((ignore) -> results);
+	}
+
+	/*
+	 * Enacts a chunk of punishments in a single transaction, then enforces the enacted
+	 * punishments once the transaction has committed. A failure in a later chunk thus
+	 * leaves the punishments of this chunk enacted and enforced
+	 */
+	private CentralisedFuture<List<Punishment>> enactChunk(InternalDatabase database, BatchEnaction batchEnaction,
+														   Instant start, EnforcementOpts enforcementOptions) {
+		Set<PunishmentType> types = EnumSet.noneOf(PunishmentType.class);
+		for (Enaction.OrderDetails order : batchEnaction.orders()) {
+			types.add(order.type());
+		}
+		types.remove(PunishmentType.KICK);
+		return database.queryWithRetry((context, transaction) -> {
+			for (PunishmentType type : types) {
+				database.clearExpiredPunishments(context, type, start);
+			}
+			return batchEnaction.enact(context);
+		}).thenCompose((punishments) -> {
+			batchEnaction.publishVictimIds();
+			List<Punishment> enacted = new ArrayList<>(punishments.size());
+			for (Punishment punishment : punishments) {
+				if (punishment != null) {
+					punishmentEnacted(punishment);
+					enacted.add(punishment);
+				}
+			}
+			return enforcement.get()
+					.enforceAll(enacted, enforcementOptions)
+					.thenApply((ignore) -> punishments);
 		});
 	}
 
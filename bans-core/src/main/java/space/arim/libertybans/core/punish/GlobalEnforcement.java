@@ -23,6 +23,8 @@ import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
+import java.util.List;
+
 /**
  * Enforcement of a punishment across an entire network, as opposed to a single server,
  * hence "global"
@@ -32,6 +34,15 @@ public interface GlobalEnforcement extends Runnable {
 
 	CentralisedFuture<?> enforce(Punishment punishment, EnforcementOpts enforcementOptions);
 
+	/**
+	 * Enforces many punishments at once, dispatching their synchronization messages together
+	 *
+	 * @param punishments the punishments
+	 * @param enforcementOptions the enforcement options, applied to every punishment
+	 * @return a future completed when enforcement is finished
+	 */
+	CentralisedFuture<?> enforceAll(List<Punishment> punishments, EnforcementOpts enforcementOptions);
+
 	CentralisedFuture<?> unenforce(Punishment punishment, EnforcementOpts enforcementOptions);
 
 	CentralisedFuture<?> unenforce(long id, PunishmentType type, EnforcementOpts enforcementOptions);
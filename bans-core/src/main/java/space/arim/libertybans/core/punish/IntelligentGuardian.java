@@ -28,14 +28,17 @@ import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.selector.InternalSelector;
+import space.arim.libertybans.core.selector.LoginLatency;
 import space.arim.libertybans.core.selector.MuteCache;
 import space.arim.libertybans.core.uuid.UUIDManager;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Singleton
 public final class IntelligentGuardian implements Guardian {
@@ -46,25 +49,37 @@ public final class IntelligentGuardian implements Guardian {
 	private final InternalFormatter formatter;
 	private final UUIDManager uuidManager;
 	private final MuteCache muteCache;
+	private final LoginAdmission loginAdmission;
+	private final LoginLatency loginLatency;
+
+	private volatile MuteCommandMatcher muteCommandMatcher;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
 	public IntelligentGuardian(Configs configs, FactoryOfTheFuture futuresFactory,
 							   InternalSelector selector, InternalFormatter formatter,
-							   UUIDManager uuidManager, MuteCache muteCache) {
+							   UUIDManager uuidManager, MuteCache muteCache, LoginAdmission loginAdmission,
+							   LoginLatency loginLatency) {
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.selector = selector;
 		this.formatter = formatter;
 		this.uuidManager = uuidManager;
 		this.muteCache = muteCache;
+		this.loginAdmission = loginAdmission;
+		this.loginLatency = loginLatency;
 	}
 
 	@Override
 	public CentralisedFuture<Component> executeAndCheckConnection(UUID uuid, String name, NetworkAddress address) {
 		uuidManager.addCache(uuid, name);
-		return selector.executeAndCheckConnection(uuid, name, address)
+		long start = loginLatency.start();
+		CentralisedFuture<Component> result = loginAdmission
+				.admit(uuid, () -> {
+					loginLatency.recordSince(LoginLatency.Stage.ADMISSION_WAIT, start);
+					return selector.executeAndCheckConnection(uuid, name, address);
+				})
 				.exceptionally((ex) -> {
 					logger.error("Unable to execute incoming connection", ex);
 					return null;
@@ -74,7 +89,14 @@ public final class IntelligentGuardian implements Guardian {
 				 * and therefore prevents exceptions from being swallowed.
 				 */
 				.copy()
-				.orTimeout(10, TimeUnit.SECONDS);
+				.orTimeout(LoginAdmission.LOGIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+		result.whenComplete((ignore, ex) -> {
+			loginLatency.recordSince(LoginLatency.Stage.TOTAL, start);
+			if (ex instanceof TimeoutException) {
+				loginAdmission.recordTimeout();
+			}
+		});
+		return result;
 	}
 
 	@Override
@@ -91,39 +113,13 @@ public final class IntelligentGuardian implements Guardian {
 	}
 
 	private boolean blockForMuted(String command) {
-		String[] words = command.split(" ");
-		// Handle commands with colons
-		if (words[0].indexOf(':') != -1) {
-			words[0] = words[0].split(":", 2)[1];
-		}
-		for (String muteCommand : configs.getMainConfig().enforcement().muteCommands()) {
-			if (muteCommandMatches(words, muteCommand)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	private static boolean muteCommandMatches(String[] commandWords, String muteCommand) {
-		// Basic equality check
-		if (commandWords[0].equalsIgnoreCase(muteCommand)) {
-			return true;
-		}
-		// Advanced equality check
-		// Essentially a case-insensitive "startsWith" for arrays
-		if (muteCommand.indexOf(' ') != -1) {
-			String[] muteCommandWords = muteCommand.split(" ");
-			if (muteCommandWords.length > commandWords.length) {
-				return false;
-			}
-			for (int n = 0; n < muteCommandWords.length; n++) {
-				if (!muteCommandWords[n].equalsIgnoreCase(commandWords[n])) {
-					return false;
-				}
-			}
-			return true;
+		Set<String> muteCommands = configs.getMainConfig().enforcement().muteCommands();
+		MuteCommandMatcher muteCommandMatcher = this.muteCommandMatcher;
+		if (muteCommandMatcher == null || !muteCommandMatcher.isCompiledFrom(muteCommands)) {
+			// Configuration was loaded or reloaded
+			this.muteCommandMatcher = muteCommandMatcher = MuteCommandMatcher.compile(muteCommands);
 		}
-		return false;
+		return muteCommandMatcher.matches(command);
 	}
 
 }
@@ -0,0 +1,283 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import net.kyori.adventure.text.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.env.EnvEnforcer;
+import space.arim.libertybans.core.selector.LoginAdmissionConfig;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the amount of concurrent checks on joining players. Checks beyond the in-flight limit
+ * wait in a bounded queue; beyond that, the configured overload policy applies.
+ *
+ */
+@Singleton
+public final class LoginAdmission {
+
+	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
+	private final EnvEnforcer<?> envEnforcer;
+	private final Time time;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final Queue<PendingLogin> waiting = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger waitingCount = new AtomicInteger();
+	private final Queue<PendingLogin> deferred = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger deferredCount = new AtomicInteger();
+	private final Cache<UUID, Optional<Component>> recentDecisions;
+
+	private final LongAdder queuedLogins = new LongAdder();
+	private final LongAdder shedLogins = new LongAdder();
+	private final LongAdder timedOutLogins = new LongAdder();
+
+	/**
+	 * How long a joining player may be checked before the check times out
+	 */
+	static final Duration LOGIN_TIMEOUT = Duration.ofSeconds(10L);
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public LoginAdmission(Configs configs, FactoryOfTheFuture futuresFactory, EnvEnforcer<?> envEnforcer, Time time) {
+		this.configs = configs;
+		this.futuresFactory = futuresFactory;
+		this.envEnforcer = envEnforcer;
+		this.time = time;
+		recentDecisions = Caffeine.newBuilder()
+				.ticker(time.toCaffeineTicker())
+				.expireAfterWrite(Duration.ofMinutes(30L))
+				.maximumSize(10_000L)
+				.build();
+	}
+
+	private LoginAdmissionConfig config() {
+		return configs.getMainConfig().enforcement().loginAdmission();
+	}
+
+	/**
+	 * Runs or queues the check on a joining player
+	 *
+	 * @param uuid the player's uuid
+	 * @param check the check to run
+	 * @return a future yielding the denial message, or {@code null} if the player may join
+	 */
+	CentralisedFuture<Component> admit(UUID uuid, Supplier<CentralisedFuture<Component>> check) {
+		LoginAdmissionConfig config = config();
+		if (!config.enable()) {
+			return check.get();
+		}
+		if (tryAcquire(config.maxInFlight())) {
+			return run(uuid, check);
+		}
+		if (waitingCount.incrementAndGet() <= config.queueDepth()) {
+			queuedLogins.increment();
+			PendingLogin pending = new PendingLogin(uuid, check);
+			waiting.offer(pending);
+			// A check may have finished in the meantime
+			drain();
+			return pending.result;
+		}
+		waitingCount.decrementAndGet();
+		shedLogins.increment();
+		return shed(config, uuid, check);
+	}
+
+	private CentralisedFuture<Component> shed(LoginAdmissionConfig config, UUID uuid,
+											  Supplier<CentralisedFuture<Component>> check) {
+		LoginAdmissionConfig.OverloadPolicy policy = config.overloadPolicy();
+		switch (policy) {
+		case DENY:
+			return futuresFactory.completedFuture(config.overloadMessage());
+		case ALLOW_WITH_DEFERRED_CHECK:
+			if (deferredCount.incrementAndGet() > config.queueDepth()) {
+				deferredCount.decrementAndGet();
+				// The player could not be checked later, so must not be allowed
+				logger.debug("Denying player {} because too many deferred checks are pending", uuid);
+				return futuresFactory.completedFuture(config.overloadMessage());
+			}
+			deferred.offer(new PendingLogin(uuid, check));
+			drain();
+			return futuresFactory.completedFuture(null);
+		case FAIL_OPEN:
+			Optional<Component> recentDecision = recentDecisions.getIfPresent(uuid);
+			return futuresFactory.completedFuture((recentDecision == null) ? null : recentDecision.orElse(null));
+		default:
+			throw MiscUtil.unknownEnumEntry(policy);
+		}
+	}
+
+	private boolean tryAcquire(int maxInFlight) {
+		int current;
+		do {
+			current = inFlight.get();
+			if (current >= maxInFlight) {
+				return false;
+			}
+		} while (!inFlight.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	/*
+	 * Runs a check for which a slot has already been acquired
+	 */
+	private CentralisedFuture<Component> run(UUID uuid, Supplier<CentralisedFuture<Component>> check) {
+		CentralisedFuture<Component> future;
+		try {
+			future = check.get();
+		} catch (RuntimeException ex) {
+			release();
+			throw ex;
+		}
+		future.whenComplete((decision, ex) -> {
+			if (ex == null) {
+				recentDecisions.put(uuid, Optional.ofNullable(decision));
+			}
+			release();
+		});
+		return future;
+	}
+
+	private void release() {
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	private void drain() {
+		while (!waiting.isEmpty() || !deferred.isEmpty()) {
+			if (!tryAcquire(config().maxInFlight())) {
+				return;
+			}
+			PendingLogin next = waiting.poll();
+			if (next != null) {
+				waitingCount.decrementAndGet();
+				if (time.arbitraryNanoTime() - next.queuedAt > LOGIN_TIMEOUT.toNanos()) {
+					// The player has already timed out. Since the player was never checked, deny
+					next.result.complete(config().overloadMessage());
+					inFlight.decrementAndGet();
+					continue;
+				}
+				PendingLogin pending = next;
+				run(pending.uuid, pending.check).whenComplete((decision, ex) -> {
+					if (ex == null) {
+						pending.result.complete(decision);
+					} else {
+						pending.result.completeExceptionally(ex);
+					}
+				});
+				continue;
+			}
+			next = deferred.poll();
+			if (next != null) {
+				deferredCount.decrementAndGet();
+				UUID uuid = next.uuid;
+				CentralisedFuture<Component> deferredCheck;
+				try {
+					deferredCheck = run(uuid, next.check);
+				} catch (RuntimeException ex) {
+					deferredCheckFailed(uuid, ex);
+					continue;
+				}
+				deferredCheck.whenComplete((decision, ex) -> {
+					if (ex != null) {
+						deferredCheckFailed(uuid, ex);
+					} else if (decision != null) {
+						kickIfOnline(envEnforcer, uuid, decision);
+					}
+				});
+				continue;
+			}
+			inFlight.decrementAndGet();
+		}
+	}
+
+	private void deferredCheckFailed(UUID uuid, Throwable ex) {
+		logger.warn("Failed to check player {} after allowing them to join", uuid, ex);
+		// The player was never checked, so must not be allowed
+		kickIfOnline(envEnforcer, uuid, config().overloadMessage());
+	}
+
+	private static <P> void kickIfOnline(EnvEnforcer<P> envEnforcer, UUID uuid, Component message) {
+		envEnforcer.doForPlayerIfOnline(uuid, (player) -> envEnforcer.kickPlayer(player, message));
+	}
+
+	void recordTimeout() {
+		timedOutLogins.increment();
+	}
+
+	/**
+	 * Gets the amount of joining players which had to wait to be checked
+	 *
+	 * @return the amount of queued logins
+	 */
+	public long queuedLogins() {
+		return queuedLogins.sum();
+	}
+
+	/**
+	 * Gets the amount of joining players handled by the overload policy
+	 *
+	 * @return the amount of shed logins
+	 */
+	public long shedLogins() {
+		return shedLogins.sum();
+	}
+
+	/**
+	 * Gets the amount of joining players whose checks timed out
+	 *
+	 * @return the amount of timed out logins
+	 */
+	public long timedOutLogins() {
+		return timedOutLogins.sum();
+	}
+
+	private final class PendingLogin {
+
+		final UUID uuid;
+		final Supplier<CentralisedFuture<Component>> check;
+		final CentralisedFuture<Component> result = futuresFactory.newIncompleteFuture();
+		final long queuedAt = time.arbitraryNanoTime();
+
+		PendingLogin(UUID uuid, Supplier<CentralisedFuture<Component>> check) {
+			this.uuid = uuid;
+			this.check = check;
+		}
+	}
+
+}
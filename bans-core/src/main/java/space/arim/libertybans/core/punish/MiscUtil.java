@@ -24,6 +24,7 @@ import space.arim.libertybans.api.Operator;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.Victim;
 import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.database.execute.SQLFunction;
 import space.arim.libertybans.core.selector.AddressStrictness;
 import space.arim.libertybans.core.selector.SyncEnforcement;
 
@@ -103,6 +104,10 @@ public final class MiscUtil {
 	public static RuntimeException unknownVendor(Vendor vendor) {
 		return unknownEnumEntry(vendor);
 	}
+
+	public static RuntimeException unknownStaleness(SQLFunction.Staleness staleness) {
+		return unknownEnumEntry(staleness);
+	}
 	
 	static RuntimeException unknownEnumEntry(Enum<?> value) {
 		return new UnknownEnumEntryException(value);
@@ -0,0 +1,145 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Matches executed commands against the mute-commands list. <br>
+ * <br>
+ * The list is compiled into a case-insensitive trie of characters, spaces included.
+ * A command matches if it starts with an entry followed by either a space or the end
+ * of the command. The namespace of the command, as in "pluginname:cmd", is ignored.
+ * Matching does not allocate.
+ *
+ */
+final class MuteCommandMatcher {
+
+	private final Set<String> muteCommands;
+	private final Node root;
+
+	private MuteCommandMatcher(Set<String> muteCommands, Node root) {
+		this.muteCommands = muteCommands;
+		this.root = root;
+	}
+
+	static MuteCommandMatcher compile(Set<String> muteCommands) {
+		Node root = new Node();
+		for (String muteCommand : muteCommands) {
+			// Trailing spaces have no effect
+			int length = muteCommand.length();
+			while (length > 0 && muteCommand.charAt(length - 1) == ' ') {
+				length--;
+			}
+			Node node = root;
+			for (int n = 0; n < length; n++) {
+				node = node.childOrCreate(canonicalise(muteCommand.charAt(n)));
+			}
+			node.terminal = true;
+		}
+		return new MuteCommandMatcher(muteCommands, root);
+	}
+
+	/**
+	 * Whether this matcher was compiled from the given mute commands
+	 *
+	 * @param muteCommands the mute commands
+	 * @return true if compiled from equal mute commands
+	 */
+	boolean isCompiledFrom(Set<String> muteCommands) {
+		return this.muteCommands == muteCommands || this.muteCommands.equals(muteCommands);
+	}
+
+	boolean matches(String command) {
+		int start = 0;
+		// Handle commands with colons
+		for (int n = 0; n < command.length(); n++) {
+			char c = command.charAt(n);
+			if (c == ' ') {
+				break;
+			}
+			if (c == ':') {
+				start = n + 1;
+				break;
+			}
+		}
+		Node node = root;
+		for (int n = start; n < command.length(); n++) {
+			char c = command.charAt(n);
+			if (c == ' ' && node.terminal) {
+				return true;
+			}
+			node = node.child(canonicalise(c));
+			if (node == null) {
+				return false;
+			}
+		}
+		return node.terminal;
+	}
+
+	/**
+	 * Maps characters which are equal ignoring case to the same character,
+	 * consistent with {@link String#equalsIgnoreCase(String)}
+	 *
+	 * @param c the character
+	 * @return the canonical character
+	 */
+	private static char canonicalise(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	private static final class Node {
+
+		private static final char[] NO_KEYS = new char[0];
+		private static final Node[] NO_CHILDREN = new Node[0];
+
+		/**
+		 * Sorted keys, each matched with the child at the same index
+		 */
+		private char[] keys = NO_KEYS;
+		private Node[] children = NO_CHILDREN;
+		private boolean terminal;
+
+		Node child(char key) {
+			int index = Arrays.binarySearch(keys, key);
+			return (index >= 0) ? children[index] : null;
+		}
+
+		Node childOrCreate(char key) {
+			int index = Arrays.binarySearch(keys, key);
+			if (index >= 0) {
+				return children[index];
+			}
+			int insertionPoint = -(index + 1);
+			char[] newKeys = new char[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insertionPoint);
+			System.arraycopy(children, 0, newChildren, 0, insertionPoint);
+			System.arraycopy(keys, insertionPoint, newKeys, insertionPoint + 1, keys.length - insertionPoint);
+			System.arraycopy(children, insertionPoint, newChildren, insertionPoint + 1, children.length - insertionPoint);
+			Node child = new Node();
+			newKeys[insertionPoint] = key;
+			newChildren[insertionPoint] = child;
+			keys = newKeys;
+			children = newChildren;
+			return child;
+		}
+	}
+}
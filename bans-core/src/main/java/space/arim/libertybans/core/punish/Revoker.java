@@ -33,9 +33,12 @@ import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.punish.RevocationOrder;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.database.sql.EndTimeCondition;
+import space.arim.libertybans.core.database.sql.SimpleViewFields;
 import space.arim.libertybans.core.database.sql.TableForType;
 import space.arim.libertybans.core.database.sql.VictimCondition;
 import space.arim.libertybans.core.database.sql.VictimFields;
+import space.arim.libertybans.core.selector.ActiveBanIndex;
+import space.arim.libertybans.core.selector.VictimFilter;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
@@ -44,8 +47,8 @@ import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import java.time.Instant;
 import java.util.List;
 
+import static space.arim.libertybans.core.schema.tables.Active.ACTIVE;
 import static space.arim.libertybans.core.schema.tables.Punishments.PUNISHMENTS;
-import static space.arim.libertybans.core.schema.tables.SimpleActive.SIMPLE_ACTIVE;
 import static space.arim.libertybans.core.schema.tables.SimpleHistory.SIMPLE_HISTORY;
 
 @Singleton
@@ -56,17 +59,22 @@ public class Revoker implements InternalRevoker {
 	private final PunishmentCreator creator;
 	private final GlobalEnforcement enforcement;
 	private final Time time;
+	private final ActiveBanIndex banIndex;
+	private final VictimFilter victimFilter;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
 	public Revoker(FactoryOfTheFuture futuresFactory, Provider<InternalDatabase> dbProvider,
-				   PunishmentCreator creator, GlobalEnforcement enforcement, Time time) {
+				   PunishmentCreator creator, GlobalEnforcement enforcement, Time time, ActiveBanIndex banIndex,
+				   VictimFilter victimFilter) {
 		this.futuresFactory = futuresFactory;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
 		this.enforcement = enforcement;
 		this.time = time;
+		this.banIndex = banIndex;
+		this.victimFilter = victimFilter;
 	}
 
 	FactoryOfTheFuture futuresFactory() {
@@ -120,6 +128,10 @@ public class Revoker implements InternalRevoker {
 			assert deleteCount == 0;
 			return false;
 		}
+		context
+				.deleteFrom(ACTIVE)
+				.where(ACTIVE.ID.eq(id))
+				.execute();
 		boolean wasNotExpired = context.fetchExists(context
 				.selectFrom(PUNISHMENTS)
 				.where(PUNISHMENTS.ID.eq(id))
@@ -142,6 +154,10 @@ public class Revoker implements InternalRevoker {
 		if (deleteCount != 1) {
 			return null;
 		}
+		context
+				.deleteFrom(ACTIVE)
+				.where(ACTIVE.ID.eq(id))
+				.execute();
 		Punishment result = context
 				.select(
 						SIMPLE_HISTORY.VICTIM_TYPE, SIMPLE_HISTORY.VICTIM_UUID, SIMPLE_HISTORY.VICTIM_ADDRESS,
@@ -165,6 +181,10 @@ public class Revoker implements InternalRevoker {
 		InternalDatabase database = dbProvider.get();
 		return database.queryWithRetry((context, transaction) -> {
 			return deleteActivePunishmentByIdAndType(context, id, type);
+		}).thenApply((revoked) -> {
+			banIndex.punishmentRevoked(id);
+			victimFilter.punishmentRevoked(id);
+			return revoked;
 		});
 	}
 
@@ -176,6 +196,10 @@ public class Revoker implements InternalRevoker {
 		InternalDatabase database = dbProvider.get();
 		return database.queryWithRetry((context, transaction) -> {
 			return deleteAndGetActivePunishmentByIdAndType(context, id, type);
+		}).thenApply((punishment) -> {
+			banIndex.punishmentRevoked(id);
+			victimFilter.punishmentRevoked(id);
+			return punishment;
 		});
 	}
 
@@ -183,15 +207,19 @@ public class Revoker implements InternalRevoker {
 		InternalDatabase database = dbProvider.get();
 		return database.queryWithRetry((context, transaction) -> {
 			PunishmentType type = context
-					.select(SIMPLE_ACTIVE.TYPE)
-					.from(SIMPLE_ACTIVE)
-					.where(SIMPLE_ACTIVE.ID.eq(id))
-					.fetchSingle(SIMPLE_ACTIVE.TYPE);
+					.select(ACTIVE.TYPE)
+					.from(ACTIVE)
+					.where(ACTIVE.ID.eq(id))
+					.fetchSingle(ACTIVE.TYPE);
 			logger.trace("type={} in undoPunishmentById", type);
 			if (type == null || !deleteActivePunishmentByIdAndType(context, id, type)) {
 				return null;
 			}
 			return type;
+		}).thenApply((type) -> {
+			banIndex.punishmentRevoked(id);
+			victimFilter.punishmentRevoked(id);
+			return type;
 		});
 	}
 
@@ -199,15 +227,19 @@ public class Revoker implements InternalRevoker {
 		InternalDatabase database = dbProvider.get();
 		return database.queryWithRetry((context, transaction) -> {
 			PunishmentType type = context
-					.select(SIMPLE_ACTIVE.TYPE)
-					.from(SIMPLE_ACTIVE)
-					.where(SIMPLE_ACTIVE.ID.eq(id))
-					.fetchSingle(SIMPLE_ACTIVE.TYPE);
+					.select(ACTIVE.TYPE)
+					.from(ACTIVE)
+					.where(ACTIVE.ID.eq(id))
+					.fetchSingle(ACTIVE.TYPE);
 			logger.trace("type={} in undoAndGetPunishmentById", type);
 			if (type == null) {
 				return null;
 			}
 			return deleteAndGetActivePunishmentByIdAndType(context, id, type);
+		}).thenApply((punishment) -> {
+			banIndex.punishmentRevoked(id);
+			victimFilter.punishmentRevoked(id);
+			return punishment;
 		});
 	}
 
@@ -226,17 +258,24 @@ public class Revoker implements InternalRevoker {
 																   final List<Victim> victims) {
 		InternalDatabase database = dbProvider.get();
 		return database.queryWithRetry((context, transaction) -> {
-			var simpleView = new TableForType(type).simpleView();
+			var active = new SimpleViewFields<>(ACTIVE);
 			Long id = context
-					.select(simpleView.id())
-					.from(simpleView.table())
-					.where(matchesAnyVictim(simpleView, victims))
-					.fetchAny(simpleView.id());
+					.select(active.id())
+					.from(active.table())
+					.where(active.type().eq(type))
+					.and(matchesAnyVictim(active, victims))
+					.fetchAny(active.id());
 			logger.trace("id={} in undoPunishmentByTypeAndVictim", id);
 			if (id == null || !deleteActivePunishmentByIdAndType(context, id, type)) {
 				return null;
 			}
 			return id;
+		}).thenApply((id) -> {
+			if (id != null) {
+				banIndex.punishmentRevoked(id);
+				victimFilter.punishmentRevoked(id);
+			}
+			return id;
 		});
 	}
 
@@ -244,17 +283,24 @@ public class Revoker implements InternalRevoker {
 																			   final List<Victim> victims) {
 		InternalDatabase database = dbProvider.get();
 		return database.queryWithRetry((context, transaction) -> {
-			var simpleView = new TableForType(type).simpleView();
+			var active = new SimpleViewFields<>(ACTIVE);
 			Long id = context
-					.select(simpleView.id())
-					.from(simpleView.table())
-					.where(matchesAnyVictim(simpleView, victims))
-					.fetchAny(simpleView.id());
+					.select(active.id())
+					.from(active.table())
+					.where(active.type().eq(type))
+					.and(matchesAnyVictim(active, victims))
+					.fetchAny(active.id());
 			logger.trace("id={} in undoAndGetPunishmentByTypeAndVictim", id);
 			if (id == null) {
 				return null;
 			}
 			return deleteAndGetActivePunishmentByIdAndType(context, id, type);
+		}).thenApply((punishment) -> {
+			if (punishment != null) {
+				banIndex.punishmentRevoked(punishment.getIdentifier());
+				victimFilter.punishmentRevoked(punishment.getIdentifier());
+			}
+			return punishment;
 		});
 	}
 	
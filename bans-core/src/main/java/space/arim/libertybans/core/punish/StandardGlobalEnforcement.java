@@ -34,6 +34,9 @@ import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 @Singleton
@@ -66,7 +69,7 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 		return handleSynchronizedEnforcement(
 				() -> enforcer.enforceWithoutSynchronization(punishment, enforcementOptions),
 				enforcementOptions,
-				new SynchronizationMessage(punishment, Mode.DO, enforcementOptions)
+				dispatchMessage(new SynchronizationMessage(punishment, Mode.DO, enforcementOptions))
 		);
 	}
 
@@ -76,7 +79,7 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 		return handleSynchronizedEnforcement(
 				() -> enforcer.unenforceWithoutSynchronization(punishment, enforcementOptions),
 				enforcementOptions,
-				new SynchronizationMessage(punishment, Mode.UNDO, enforcementOptions)
+				dispatchMessage(new SynchronizationMessage(punishment, Mode.UNDO, enforcementOptions))
 		);
 	}
 
@@ -86,20 +89,50 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 		return handleSynchronizedEnforcement(
 				() -> enforcer.unenforceWithoutSynchronization(id, type, enforcementOptions),
 				enforcementOptions,
-				new SynchronizationMessage(id, type, Mode.UNDO, enforcementOptions)
+				dispatchMessage(new SynchronizationMessage(id, type, Mode.UNDO, enforcementOptions))
 		);
 	}
 
+	// Comes from Enactor#enactPunishments
+	@Override
+	public CentralisedFuture<?> enforceAll(List<Punishment> punishments, EnforcementOpts enforcementOptions) {
+		if (punishments.isEmpty()) {
+			return futuresFactory.completedFuture(null);
+		}
+		return handleSynchronizedEnforcement(
+				() -> {
+					List<CentralisedFuture<Void>> futures = new ArrayList<>(punishments.size());
+					for (Punishment punishment : punishments) {
+						futures.add(enforcer.enforceWithoutSynchronization(punishment, enforcementOptions));
+					}
+					return futuresFactory.allOf(futures);
+				},
+				enforcementOptions,
+				(messenger) -> {
+					byte[][] messages = new byte[punishments.size()][];
+					for (int n = 0; n < messages.length; n++) {
+						messages[n] = synchronizationProtocol.serializeMessage(
+								new SynchronizationMessage(punishments.get(n), Mode.DO, enforcementOptions));
+					}
+					return messenger.dispatchAll(messages);
+				}
+		);
+	}
+
+	private Function<SynchronizationMessenger, CentralisedFuture<?>> dispatchMessage(SynchronizationMessage message) {
+		return (messenger) -> messenger.dispatch(synchronizationProtocol.serializeMessage(message));
+	}
+
 	private CentralisedFuture<?> handleSynchronizedEnforcement(Supplier<CentralisedFuture<?>> localEnforcement,
 															   EnforcementOptions enforcementOptions,
-															   SynchronizationMessage message) {
+															   Function<SynchronizationMessenger, CentralisedFuture<?>> dispatch) {
 		EnforcementOptions.Enforcement enforcement = enforcementOptions.enforcement();
 		switch (enforcement) {
 		case GLOBAL:
 			if (configs.getSqlConfig().synchronization().enabled()) {
 				// Need to dispatch message to other instances
 				return localEnforcement.get().thenCompose((ignore) -> {
-					return synchronizationMessenger.get().dispatch(synchronizationProtocol.serializeMessage(message));
+					return dispatch.apply(synchronizationMessenger.get());
 				});
 			}
 			return localEnforcement.get();
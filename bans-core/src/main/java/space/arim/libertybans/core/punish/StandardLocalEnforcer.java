@@ -48,8 +48,11 @@ import space.arim.libertybans.core.env.EnvEnforcer;
 import space.arim.libertybans.core.env.ExactTargetMatcher;
 import space.arim.libertybans.core.env.TargetMatcher;
 import space.arim.libertybans.core.env.UUIDTargetMatcher;
+import space.arim.libertybans.core.selector.ActiveBanIndex;
 import space.arim.libertybans.core.selector.AddressStrictness;
 import space.arim.libertybans.core.selector.MuteCache;
+import space.arim.libertybans.core.selector.PunishmentCounts;
+import space.arim.libertybans.core.selector.VictimFilter;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
@@ -71,13 +74,17 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 	private final InternalFormatter formatter;
 	private final MuteCache muteCache;
 	private final EnvEnforcer<?> envEnforcer;
+	private final ActiveBanIndex banIndex;
+	private final VictimFilter victimFilter;
+	private final PunishmentCounts punishmentCounts;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
 	public StandardLocalEnforcer(Configs configs, FactoryOfTheFuture futuresFactory,
 								 Provider<QueryExecutor> queryExecutor, PunishmentSelector selector,
-								 InternalFormatter formatter, EnvEnforcer<?> envEnforcer, MuteCache muteCache) {
+								 InternalFormatter formatter, EnvEnforcer<?> envEnforcer, MuteCache muteCache,
+								 ActiveBanIndex banIndex, VictimFilter victimFilter, PunishmentCounts punishmentCounts) {
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.queryExecutor = queryExecutor;
@@ -85,6 +92,9 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 		this.formatter = formatter;
 		this.envEnforcer = envEnforcer;
 		this.muteCache = muteCache;
+		this.banIndex = banIndex;
+		this.victimFilter = victimFilter;
+		this.punishmentCounts = punishmentCounts;
 	}
 
 	@Override
@@ -92,6 +102,12 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 																 EnforcementOpts enforcementOptions) {
 		assert enforcementOptions.enforcement() != EnforcementOptions.Enforcement.NONE : "Handled elsewhere";
 
+		if (punishment.getType() == PunishmentType.MUTE) {
+			muteCache.muteEnacted();
+		}
+		banIndex.punishmentEnacted(punishment);
+		victimFilter.punishmentEnacted(punishment);
+		punishmentCounts.punishmentEnacted(punishment);
 		AdditionsSection.PunishmentAddition section = configs.getMessagesConfig().additions().forType(punishment.getType());
 
 		var arrestsAndNotices = new Parameterized<>(envEnforcer).enforceArrestsAndNotices(punishment);
@@ -122,6 +138,9 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 		if (punishment.getType() == PunishmentType.MUTE) {
 			muteCache.clearCachedMute(punishment);
 		}
+		banIndex.punishmentRevoked(punishment.getIdentifier());
+		victimFilter.punishmentRevoked(punishment.getIdentifier());
+		punishmentCounts.punishmentRevoked(punishment.getType());
 		if (enforcementOptions.broadcasting() == EnforcementOptions.Broadcasting.NONE) {
 			return completedFuture(null);
 		}
@@ -169,6 +188,9 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 		if (type == PunishmentType.MUTE) {
 			muteCache.clearCachedMute(id);
 		}
+		banIndex.punishmentRevoked(id);
+		victimFilter.punishmentRevoked(id);
+		punishmentCounts.punishmentRevoked(type);
 		return completedFuture(null);
 	}
 
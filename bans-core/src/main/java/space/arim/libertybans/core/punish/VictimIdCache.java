@@ -0,0 +1,61 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Singleton;
+import space.arim.libertybans.core.database.sql.FixedVictimData;
+
+/**
+ * Caches the ids of rows in the victims table. <br>
+ * <br>
+ * Victims are never deleted, except when the database is cleared, so a victim id
+ * remains valid once the row is committed. Ids must only be added to the cache after
+ * the transaction which inserted or read the row has committed, since a rolled back
+ * insertion would leave an id referring to nothing.
+ *
+ */
+@Singleton
+public final class VictimIdCache {
+
+	private final Cache<FixedVictimData, Integer> victimIds;
+
+	public VictimIdCache() {
+		victimIds = Caffeine.newBuilder()
+				.maximumSize(10_000L)
+				.build();
+	}
+
+	Integer getIfPresent(FixedVictimData victimData) {
+		return victimIds.getIfPresent(victimData);
+	}
+
+	void publish(FixedVictimData victimData, int victimId) {
+		victimIds.put(victimData, victimId);
+	}
+
+	/**
+	 * Discards all cached ids. Used when the database is cleared
+	 *
+	 */
+	public void clear() {
+		victimIds.invalidateAll();
+	}
+}
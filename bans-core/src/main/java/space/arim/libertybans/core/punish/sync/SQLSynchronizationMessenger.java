@@ -61,6 +61,23 @@ public final class SQLSynchronizationMessenger implements SynchronizationMesseng
 		});
 	}
 
+	@Override
+	public CentralisedFuture<?> dispatchAll(byte[][] messages) {
+		if (messages.length == 0) {
+			return futuresFactory.completedFuture(null);
+		}
+		return queryExecutor.get().execute((context) -> {
+			Instant currentTime = time.currentTimestamp();
+			var insert = context
+					.insertInto(MESSAGES)
+					.columns(MESSAGES.MESSAGE, MESSAGES.TIME);
+			for (byte[] message : messages) {
+				insert = insert.values(message, currentTime);
+			}
+			insert.execute();
+		});
+	}
+
 	@Override
 	public CentralisedFuture<byte[][]> poll() {
 		Instant currentTime = time.currentTimestamp();
@@ -70,7 +87,8 @@ public final class SQLSynchronizationMessenger implements SynchronizationMesseng
 			return futuresFactory.completedFuture(new byte[][] {});
 		}
 		Condition timeCondition = MESSAGES.TIME.lessOrEqual(currentTime).and(MESSAGES.TIME.greaterThan(lastTimestamp));
-		var future = queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+		// Messages missed due to replica lag would never be received, so the replica is not used
+		var future = queryExecutor.get().query(SQLFunction.readOnly(SQLFunction.Staleness.NONE, (context) -> {
 			return context
 					.select(MESSAGES.MESSAGE)
 					.from(MESSAGES)
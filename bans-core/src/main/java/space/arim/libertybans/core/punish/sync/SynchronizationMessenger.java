@@ -25,6 +25,14 @@ public interface SynchronizationMessenger {
 
 	CentralisedFuture<?> dispatch(byte[] message);
 
+	/**
+	 * Dispatches many messages at once. The messages may be received in any order
+	 *
+	 * @param messages the messages
+	 * @return a future completed when all messages are dispatched
+	 */
+	CentralisedFuture<?> dispatchAll(byte[][] messages);
+
 	CentralisedFuture<byte[][]> poll();
 
 }
@@ -0,0 +1,316 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.sql.EndTimeCondition;
+import space.arim.libertybans.core.punish.MiscUtil;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static space.arim.libertybans.core.schema.tables.Active.ACTIVE;
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+
+/**
+ * In-memory index of active bans, used to decide whether a player may join
+ * without querying the ban tables. <br>
+ * <br>
+ * The index is loaded asynchronously at startup. Until loading completes, or when the index
+ * is disabled, {@link #canAnswer(AddressStrictness)} returns false and callers should
+ * query the database instead. Expired bans are filtered lazily.
+ *
+ */
+@Singleton
+public final class ActiveBanIndex implements Part {
+
+	private final Configs configs;
+	private final Provider<InternalDatabase> dbProvider;
+	private final PunishmentCreator creator;
+	private final Time time;
+
+	private volatile Entries entries;
+	/**
+	 * Changes made while the index is being (re)loaded. Guarded by {@code this}
+	 */
+	private List<Consumer<Entries>> pendingChanges;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public ActiveBanIndex(Configs configs, Provider<InternalDatabase> dbProvider,
+						  PunishmentCreator creator, Time time) {
+		this.configs = configs;
+		this.dbProvider = dbProvider;
+		this.creator = creator;
+		this.time = time;
+	}
+
+	@Override
+	public void startup() {
+		if (!configs.getSqlConfig().banIndex().enable()) {
+			return;
+		}
+		synchronized (this) {
+			pendingChanges = new ArrayList<>();
+		}
+		// The index must include every committed ban, so the replica is not used
+		dbProvider.get().query(SQLFunction.readOnly(SQLFunction.Staleness.NONE, (context) -> {
+			return context
+					.select(
+							ACTIVE.ID,
+							ACTIVE.VICTIM_TYPE, ACTIVE.VICTIM_UUID, ACTIVE.VICTIM_ADDRESS,
+							ACTIVE.OPERATOR, ACTIVE.REASON,
+							ACTIVE.SCOPE, ACTIVE.START, ACTIVE.END
+					)
+					.from(ACTIVE)
+					.where(ACTIVE.TYPE.eq(PunishmentType.BAN))
+					.and(new EndTimeCondition(ACTIVE.END).isNotExpired(time.currentTimestamp()))
+					.fetch(creator.punishmentMapper(PunishmentType.BAN));
+		})).thenAccept((bans) -> {
+			Entries loaded = new Entries();
+			for (Punishment ban : bans) {
+				loaded.add(ban);
+			}
+			synchronized (this) {
+				if (pendingChanges == null) {
+					// Shut down while loading
+					return;
+				}
+				for (Consumer<Entries> change : pendingChanges) {
+					change.accept(loaded);
+				}
+				pendingChanges = null;
+				entries = loaded;
+			}
+			logger.debug("Loaded {} active bans into the ban index", bans.size());
+		}).exceptionally((ex) -> {
+			logger.error("Failed to load the active ban index. Bans will be checked using the database.", ex);
+			return null;
+		});
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		entries = null;
+		pendingChanges = null;
+	}
+
+	/**
+	 * Whether the index is loaded and can answer ban checks for the given strictness
+	 *
+	 * @param strictness the address strictness
+	 * @return true if {@link #findApplicable(DSLContext, UUID, NetworkAddress, AddressStrictness, Instant)}
+	 * may be used
+	 */
+	public boolean canAnswer(AddressStrictness strictness) {
+		return entries != null && strictness != AddressStrictness.STRICT;
+	}
+
+	/**
+	 * Finds an applicable, non-expired ban. Equivalent to {@link ApplicableImpl#selectApplicable}
+	 * for bans. {@link #canAnswer(AddressStrictness)} must be checked first. <br>
+	 * <br>
+	 * For NORMAL strictness, the player's address history is read only if there are bans on addresses.
+	 *
+	 * @param context the database context, used for NORMAL strictness
+	 * @param uuid the player's uuid
+	 * @param address the player's current address
+	 * @param strictness the address strictness, either LENIENT or NORMAL
+	 * @param currentTime the current time
+	 * @return the applicable ban or {@code null} if there is none
+	 */
+	public Punishment findApplicable(DSLContext context, UUID uuid, NetworkAddress address,
+									 AddressStrictness strictness, Instant currentTime) {
+		Entries entries = this.entries;
+		if (entries == null) {
+			throw new IllegalStateException("Ban index is not loaded");
+		}
+		Punishment ban = findActive(entries.byUuid.get(uuid), currentTime);
+		if (ban != null) {
+			return ban;
+		}
+		switch (strictness) {
+		case LENIENT:
+			return findActive(entries.byAddress.get(address), currentTime);
+		case NORMAL:
+			if (entries.byAddress.isEmpty()) {
+				return null;
+			}
+			ban = findActive(entries.byAddress.get(address), currentTime);
+			if (ban != null) {
+				return ban;
+			}
+			for (NetworkAddress pastAddress : context
+					.select(ADDRESSES.ADDRESS)
+					.from(ADDRESSES)
+					.where(ADDRESSES.UUID.eq(uuid))
+					.fetch(ADDRESSES.ADDRESS)) {
+				ban = findActive(entries.byAddress.get(pastAddress), currentTime);
+				if (ban != null) {
+					return ban;
+				}
+			}
+			return null;
+		case STRICT:
+			throw new IllegalArgumentException("Strict address strictness cannot be answered by the ban index");
+		default:
+			throw MiscUtil.unknownAddressStrictness(strictness);
+		}
+	}
+
+	private Punishment findActive(Set<Punishment> bans, Instant currentTime) {
+		if (bans == null) {
+			return null;
+		}
+		for (Punishment ban : bans) {
+			Instant end = ban.getEndDate();
+			if (end.equals(Punishment.PERMANENT_END_DATE) || end.isAfter(currentTime)) {
+				return ban;
+			}
+			punishmentRevoked(ban.getIdentifier());
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a punishment to the index if it is a ban
+	 *
+	 * @param punishment the punishment enacted
+	 */
+	public void punishmentEnacted(Punishment punishment) {
+		if (punishment.getType() == PunishmentType.BAN) {
+			applyChange((entries) -> entries.add(punishment));
+		}
+	}
+
+	/**
+	 * Removes a punishment from the index, if present
+	 *
+	 * @param id the id of the punishment undone
+	 */
+	public void punishmentRevoked(long id) {
+		applyChange((entries) -> entries.remove(id));
+	}
+
+	private synchronized void applyChange(Consumer<Entries> change) {
+		Entries entries = this.entries;
+		if (entries != null) {
+			change.accept(entries);
+		}
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+
+	private static final class Entries {
+
+		private final Map<Long, Punishment> byId = new ConcurrentHashMap<>();
+		private final Map<UUID, Set<Punishment>> byUuid = new ConcurrentHashMap<>();
+		private final Map<NetworkAddress, Set<Punishment>> byAddress = new ConcurrentHashMap<>();
+
+		void add(Punishment ban) {
+			if (byId.putIfAbsent(ban.getIdentifier(), ban) != null) {
+				return;
+			}
+			Victim victim = ban.getVictim();
+			switch (victim.getType()) {
+			case PLAYER:
+				addTo(byUuid, ((PlayerVictim) victim).getUUID(), ban);
+				break;
+			case ADDRESS:
+				addTo(byAddress, ((AddressVictim) victim).getAddress(), ban);
+				break;
+			case COMPOSITE:
+				CompositeVictim compositeVictim = (CompositeVictim) victim;
+				addTo(byUuid, compositeVictim.getUUID(), ban);
+				addTo(byAddress, compositeVictim.getAddress(), ban);
+				break;
+			default:
+				throw MiscUtil.unknownVictimType(victim.getType());
+			}
+		}
+
+		void remove(long id) {
+			Punishment ban = byId.remove(id);
+			if (ban == null) {
+				return;
+			}
+			Victim victim = ban.getVictim();
+			switch (victim.getType()) {
+			case PLAYER:
+				removeFrom(byUuid, ((PlayerVictim) victim).getUUID(), ban);
+				break;
+			case ADDRESS:
+				removeFrom(byAddress, ((AddressVictim) victim).getAddress(), ban);
+				break;
+			case COMPOSITE:
+				CompositeVictim compositeVictim = (CompositeVictim) victim;
+				removeFrom(byUuid, compositeVictim.getUUID(), ban);
+				removeFrom(byAddress, compositeVictim.getAddress(), ban);
+				break;
+			default:
+				throw MiscUtil.unknownVictimType(victim.getType());
+			}
+		}
+
+		private static <K> void addTo(Map<K, Set<Punishment>> map, K key, Punishment ban) {
+			map.computeIfAbsent(key, (k) -> ConcurrentHashMap.newKeySet()).add(ban);
+		}
+
+		private static <K> void removeFrom(Map<K, Set<Punishment>> map, K key, Punishment ban) {
+			map.computeIfPresent(key, (k, bans) -> {
+				bans.remove(ban);
+				return (bans.isEmpty()) ? null : bans;
+			});
+		}
+	}
+
+}
@@ -22,16 +22,31 @@ package space.arim.libertybans.core.selector;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record10;
+import org.jooq.Record9;
+import org.jooq.RecordMapper;
+import org.jooq.ResultQuery;
+import org.jooq.SelectConditionStep;
+import org.jooq.SelectJoinStep;
 import org.jooq.impl.DSL;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
 import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.api.PlayerVictim;
 import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.scope.ServerScope;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.jooq.PreRenderedQuery;
 import space.arim.libertybans.core.database.sql.EndTimeCondition;
-import space.arim.libertybans.core.database.sql.TableForType;
+import space.arim.libertybans.core.database.sql.SimpleViewFields;
 import space.arim.libertybans.core.database.sql.VictimCondition;
 import space.arim.libertybans.core.punish.MiscUtil;
 import space.arim.libertybans.core.punish.PunishmentCreator;
@@ -40,9 +55,18 @@ import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.UUID;
 
+import static space.arim.libertybans.core.schema.tables.Active.ACTIVE;
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
 import static space.arim.libertybans.core.schema.tables.StrictLinks.STRICT_LINKS;
 
 @Singleton
@@ -52,76 +76,238 @@ public class ApplicableImpl {
 	private final FactoryOfTheFuture futuresFactory;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
+	private final VictimFilter victimFilter;
 
 	private final Time time;
 
+	/**
+	 * The maximum amount of players checked per query, which keeps the IN lists manageable
+	 */
+	private static final int BATCH_CHUNK_SIZE = 500;
+
+	private static final PreRenderedQuery<ResultQuery<Record9<
+			Long, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant
+			>>> SELECT_APPLICABLE_LENIENT = PreRenderedQuery.resultQuery((context) -> {
+		var active = new SimpleViewFields<>(ACTIVE);
+		return context
+				.select(
+						active.id(),
+						active.victimType(), active.victimUuid(), active.victimAddress(),
+						active.operator(), active.reason(),
+						active.scope(), active.start(), active.end()
+				)
+				.from(active.table())
+				.where(active.type().eq(DSL.param("type", ACTIVE.TYPE)))
+				.and(new VictimCondition(active).simplyMatches(
+						DSL.param("uuid", ACTIVE.VICTIM_UUID), DSL.param("address", ACTIVE.VICTIM_ADDRESS)))
+				.and(new EndTimeCondition(active).isNotExpired(DSL.param("currentTime", ACTIVE.END)))
+				.limit(1);
+	}, "type", "uuid", "address", "currentTime");
+
+	private static final PreRenderedQuery<ResultQuery<Record10<
+			Long, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant, UUID
+			>>> SELECT_APPLICABLE_NORMAL = preRenderSelectApplicable(AddressStrictness.NORMAL);
+
+	private static final PreRenderedQuery<ResultQuery<Record10<
+			Long, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant, UUID
+			>>> SELECT_APPLICABLE_STRICT = preRenderSelectApplicable(AddressStrictness.STRICT);
+
+	private static PreRenderedQuery<ResultQuery<Record10<
+			Long, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant, UUID
+			>>> preRenderSelectApplicable(AddressStrictness strictness) {
+		return PreRenderedQuery.resultQuery((context) -> {
+			return selectApplicableToAccounts(
+					context, (accountUuid) -> accountUuid.eq(DSL.param("uuid", ADDRESSES.UUID)),
+					DSL.param("type", ACTIVE.TYPE), DSL.param("currentTime", ACTIVE.END), strictness
+			).limit(1);
+		}, "type", "uuid", "currentTime");
+	}
+
 	@Inject
 	public ApplicableImpl(Configs configs, FactoryOfTheFuture futuresFactory,
 						  Provider<InternalDatabase> dbProvider, PunishmentCreator creator,
-						  Time time) {
+						  VictimFilter victimFilter, Time time) {
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
+		this.victimFilter = victimFilter;
 		this.time = time;
 	}
 
 	Punishment selectApplicable(DSLContext context,
 								UUID uuid, NetworkAddress address,
 								PunishmentType type, final Instant currentTime) {
-		var applView = new TableForType(type).applicableView();
-
 		AddressStrictness strictness = configs.getMainConfig().enforcement().addressStrictness();
+		return selectApplicable(context, uuid, address, type, currentTime, strictness);
+	}
+
+	Punishment selectApplicable(DSLContext context,
+								UUID uuid, NetworkAddress address,
+								PunishmentType type, final Instant currentTime,
+								AddressStrictness strictness) {
 		switch (strictness) {
 		case LENIENT:
-			var simpleView = new TableForType(type).simpleView();
-			return context
-					.select(
-							simpleView.id(),
-							simpleView.victimType(), simpleView.victimUuid(), simpleView.victimAddress(),
-							simpleView.operator(), simpleView.reason(),
-							simpleView.scope(), simpleView.start(), simpleView.end()
-					)
-					.from(simpleView.table())
-					.where(new VictimCondition(simpleView).simplyMatches(DSL.val(uuid), DSL.val(address)))
-					.and(new EndTimeCondition(simpleView).isNotExpired(currentTime))
-					.limit(1)
+			return SELECT_APPLICABLE_LENIENT
+					.bind(context, type, uuid, address, currentTime)
 					.fetchOne(creator.punishmentMapper(type));
 		case NORMAL:
-			return context
-					.select(
-							applView.id(),
-							applView.victimType(), applView.victimUuid(), applView.victimAddress(),
-							applView.operator(), applView.reason(),
-							applView.scope(), applView.start(), applView.end()
-					).from(applView.table())
-					.where(applView.uuid().eq(uuid))
-					.and(new EndTimeCondition(applView).isNotExpired(currentTime))
-					.limit(1)
-					.fetchOne(creator.punishmentMapper(type));
 		case STRICT:
-			return context
+			var selectApplicable = (strictness == AddressStrictness.STRICT) ?
+					SELECT_APPLICABLE_STRICT : SELECT_APPLICABLE_NORMAL;
+			var record = selectApplicable
+					.bind(context, type, uuid, currentTime)
+					.fetchOne();
+			return (record == null) ? null : mapApplicable(record, creator.punishmentMapper(type));
+		default:
+			throw MiscUtil.unknownAddressStrictness(strictness);
+		}
+	}
+
+	/**
+	 * Selects the applicable punishments for many players at once. Equivalent to
+	 * {@link #selectApplicable(DSLContext, UUID, NetworkAddress, PunishmentType, Instant, AddressStrictness)}
+	 * for each player, but with a single query.
+	 *
+	 * @param context the query context
+	 * @param players the players' UUIDs and addresses
+	 * @param type the punishment type
+	 * @param currentTime the current time
+	 * @param strictness the address strictness
+	 * @param applicable the map to which to add applicable punishments, keyed by player UUID
+	 */
+	private void selectApplicable(DSLContext context,
+								  Map<UUID, NetworkAddress> players,
+								  PunishmentType type, final Instant currentTime,
+								  AddressStrictness strictness, Map<UUID, Punishment> applicable) {
+		var active = new SimpleViewFields<>(ACTIVE);
+		var mapper = creator.punishmentMapper(type);
+
+		switch (strictness) {
+		case LENIENT:
+			List<Punishment> punishments = context
 					.select(
-							applView.id(),
-							applView.victimType(), applView.victimUuid(), applView.victimAddress(),
-							applView.operator(), applView.reason(),
-							applView.scope(), applView.start(), applView.end()
-					).from(applView.table())
-					.innerJoin(STRICT_LINKS)
-					.on(applView.uuid().eq(STRICT_LINKS.UUID1))
-					.where(STRICT_LINKS.UUID2.eq(uuid))
-					.and(new EndTimeCondition(applView).isNotExpired(currentTime))
-					.limit(1)
-					.fetchOne(creator.punishmentMapper(type));
+							active.id(),
+							active.victimType(), active.victimUuid(), active.victimAddress(),
+							active.operator(), active.reason(),
+							active.scope(), active.start(), active.end()
+					)
+					.from(active.table())
+					.where(active.type().eq(type))
+					.and(new VictimCondition(active).simplyMatchesAny(players.keySet(), players.values()))
+					.and(new EndTimeCondition(active).isNotExpired(currentTime))
+					.fetch(mapper);
+			// Match each punishment to the players it applies to
+			Map<NetworkAddress, List<UUID>> uuidsByAddress = new HashMap<>();
+			players.forEach((uuid, address) -> {
+				uuidsByAddress.computeIfAbsent(address, (a) -> new ArrayList<>()).add(uuid);
+			});
+			for (Punishment punishment : punishments) {
+				Victim victim = punishment.getVictim();
+				switch (victim.getType()) {
+				case PLAYER:
+					applicable.putIfAbsent(((PlayerVictim) victim).getUUID(), punishment);
+					break;
+				case ADDRESS:
+					for (UUID uuid : uuidsByAddress.getOrDefault(((AddressVictim) victim).getAddress(), List.of())) {
+						applicable.putIfAbsent(uuid, punishment);
+					}
+					break;
+				case COMPOSITE:
+					CompositeVictim compositeVictim = (CompositeVictim) victim;
+					UUID victimUuid = compositeVictim.getUUID();
+					if (players.containsKey(victimUuid)) {
+						applicable.putIfAbsent(victimUuid, punishment);
+					}
+					for (UUID uuid : uuidsByAddress.getOrDefault(compositeVictim.getAddress(), List.of())) {
+						applicable.putIfAbsent(uuid, punishment);
+					}
+					break;
+				default:
+					throw MiscUtil.unknownVictimType(victim.getType());
+				}
+			}
+			return;
+		case NORMAL:
+		case STRICT:
+			selectApplicableToAccounts(
+					context, (accountUuid) -> accountUuid.in(players.keySet()),
+					DSL.val(type, ACTIVE.TYPE), DSL.val(currentTime, ACTIVE.END), strictness
+			).fetch()
+					.forEach((record) -> {
+						applicable.putIfAbsent(record.value10(), mapApplicable(record, mapper));
+					});
+			return;
 		default:
 			throw MiscUtil.unknownAddressStrictness(strictness);
 		}
 	}
 
+	/**
+	 * Selects the active punishments of a type which apply to the given accounts, per normal or strict
+	 * address strictness. The last column is the account to which the punishment applies.
+	 *
+	 * @param context the query context
+	 * @param matchesAccount the condition on the account's uuid
+	 * @param type the punishment type
+	 * @param currentTime the current time
+	 * @param strictness the address strictness, either NORMAL or STRICT
+	 * @return the select statement
+	 */
+	private static SelectConditionStep<Record10<
+			Long, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant, UUID
+			>> selectApplicableToAccounts(DSLContext context, Function<Field<UUID>, Condition> matchesAccount,
+										  Field<PunishmentType> type, Field<Instant> currentTime,
+										  AddressStrictness strictness) {
+		var active = new SimpleViewFields<>(ACTIVE);
+		Field<UUID> accountUuid = (strictness == AddressStrictness.STRICT) ? STRICT_LINKS.UUID2 : ADDRESSES.UUID;
+		SelectJoinStep<Record10<
+				Long, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant, UUID
+				>> select = context
+				.select(
+						active.id(),
+						active.victimType(), active.victimUuid(), active.victimAddress(),
+						active.operator(), active.reason(),
+						active.scope(), active.start(), active.end(),
+						accountUuid
+				).from(active.table())
+				.innerJoin(ADDRESSES)
+				.on(new VictimCondition(active).simplyMatches(ADDRESSES.UUID, ADDRESSES.ADDRESS));
+		if (strictness == AddressStrictness.STRICT) {
+			select = select
+					.innerJoin(STRICT_LINKS)
+					.on(ADDRESSES.UUID.eq(STRICT_LINKS.UUID1));
+		}
+		return select
+				.where(active.type().eq(type))
+				.and(matchesAccount.apply(accountUuid))
+				.and(new EndTimeCondition(active).isNotExpired(currentTime));
+	}
+
+	private static Punishment mapApplicable(Record10<
+			Long, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant, UUID
+			> record, RecordMapper<Record9<
+			Long, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant
+			>, Punishment> mapper) {
+		return mapper.map(record.into(
+				record.field1(), record.field2(), record.field3(), record.field4(), record.field5(),
+				record.field6(), record.field7(), record.field8(), record.field9()
+		));
+	}
+
 	private CentralisedFuture<Punishment> getApplicablePunishment0(UUID uuid, NetworkAddress address, PunishmentType type) {
+		AddressStrictness strictness = configs.getMainConfig().enforcement().addressStrictness();
+		VictimFilter.Answer filterAnswer = victimFilter.check(type, uuid, address, strictness);
+		if (!filterAnswer.mightBePunished()) {
+			return futuresFactory.completedFuture(null);
+		}
 		InternalDatabase database = dbProvider.get();
-		return database.query(SQLFunction.readOnly((context) -> {
-			return selectApplicable(context, uuid, address, type, time.currentTimestamp());
+		return database.query(SQLFunction.readOnly(SQLFunction.Staleness.OWN_WRITES, (context) -> {
+			Punishment punishment = selectApplicable(context, uuid, address, type, time.currentTimestamp(), strictness);
+			if (punishment == null) {
+				victimFilter.recordNotPunished(filterAnswer);
+			}
+			return punishment;
 		}));
 	}
 
@@ -138,4 +324,53 @@ public class ApplicableImpl {
 		return getApplicablePunishment0(uuid, address, PunishmentType.MUTE);
 	}
 
+	CentralisedFuture<Map<UUID, Punishment>> getApplicablePunishments(Map<UUID, NetworkAddress> players,
+																	  PunishmentType type) {
+		Objects.requireNonNull(type, "type");
+		if (type == PunishmentType.KICK) {
+			// Kicks are never active
+			return futuresFactory.completedFuture(Map.of());
+		}
+		AddressStrictness strictness = configs.getMainConfig().enforcement().addressStrictness();
+		List<Map<UUID, NetworkAddress>> chunks = new ArrayList<>();
+		Map<UUID, NetworkAddress> chunk = new HashMap<>();
+		Set<UUID> filterMatches = new HashSet<>();
+		for (Map.Entry<UUID, NetworkAddress> player : players.entrySet()) {
+			UUID uuid = Objects.requireNonNull(player.getKey(), "uuid");
+			NetworkAddress address = Objects.requireNonNull(player.getValue(), "address");
+			VictimFilter.Answer filterAnswer = victimFilter.check(type, uuid, address, strictness);
+			if (!filterAnswer.mightBePunished()) {
+				continue;
+			}
+			if (filterAnswer == VictimFilter.Answer.MAYBE_PUNISHED) {
+				filterMatches.add(uuid);
+			}
+			chunk.put(uuid, address);
+			if (chunk.size() == BATCH_CHUNK_SIZE) {
+				chunks.add(chunk);
+				chunk = new HashMap<>();
+			}
+		}
+		if (!chunk.isEmpty()) {
+			chunks.add(chunk);
+		}
+		if (chunks.isEmpty()) {
+			return futuresFactory.completedFuture(Map.of());
+		}
+		InternalDatabase database = dbProvider.get();
+		return database.query(SQLFunction.readOnly(SQLFunction.Staleness.OWN_WRITES, (context) -> {
+			Instant currentTime = time.currentTimestamp();
+			Map<UUID, Punishment> applicable = new HashMap<>();
+			for (Map<UUID, NetworkAddress> playerChunk : chunks) {
+				selectApplicable(context, playerChunk, type, currentTime, strictness, applicable);
+			}
+			for (UUID filterMatch : filterMatches) {
+				if (!applicable.containsKey(filterMatch)) {
+					victimFilter.recordNotPunished(VictimFilter.Answer.MAYBE_PUNISHED);
+				}
+			}
+			return Map.copyOf(applicable);
+		}));
+	}
+
 }
@@ -22,60 +22,154 @@ package space.arim.libertybans.core.selector;
 import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.Scheduler;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Singleton
 public class CaffeineMuteCache implements MuteCache {
 	
+	private final Configs configs;
 	private final FactoryOfTheFuture futuresFactory;
+	private final Time time;
 	
 	/**
 	 * The mute cache. Optionals are used because Caffeine understands 'null' to mean 'remove this from the cache'.
 	 * 
 	 */
 	private final AsyncLoadingCache<MuteCacheKey, Optional<Punishment>> muteCache;
+	/**
+	 * Reverse index of punishment IDs to the keys of the cache entries holding them. Sets are only
+	 * accessed within the atomic compute methods of the map.
+	 *
+	 */
+	private final ConcurrentMap<Long, Set<MuteCacheKey>> keysById = new ConcurrentHashMap<>();
+	/**
+	 * Incremented whenever mutes are enacted or cleared, so that results of lookups begun
+	 * beforehand are not cached
+	 *
+	 */
+	private final AtomicLong invalidations = new AtomicLong();
 	
 	@Inject
-	public CaffeineMuteCache(FactoryOfTheFuture futuresFactory, InternalSelector selector) {
+	public CaffeineMuteCache(Configs configs, FactoryOfTheFuture futuresFactory, InternalSelector selector, Time time) {
+		this.configs = configs;
 		this.futuresFactory = futuresFactory;
+		this.time = time;
 
 		AsyncCacheLoader<MuteCacheKey, Optional<Punishment>> cacheLoader = new AsyncCacheLoader<>() {
 			@Override
 			public @NonNull CentralisedFuture<Optional<Punishment>> asyncLoad(@NonNull MuteCacheKey key,
 					@NonNull Executor executor) {
 				return selector.getApplicableMute(key.uuid, key.address)
-						.thenApply(Optional::ofNullable)
+						.thenApply((punishment) -> {
+							if (punishment != null) {
+								index(key, punishment.getIdentifier());
+							}
+							return Optional.ofNullable(punishment);
+						})
 						.exceptionally((ex) -> {
 							LoggerFactory.getLogger(getClass()).warn("Exception while computing cached mute", ex);
 							return Optional.empty();
 						});
 			}
 		};
-		muteCache = Caffeine.newBuilder().expireAfterAccess(4L, TimeUnit.MINUTES).initialCapacity(32)
-				.scheduler(Scheduler.systemScheduler()).buildAsync(cacheLoader);
+		muteCache = Caffeine.newBuilder().initialCapacity(32)
+				.ticker(time.toCaffeineTicker())
+				.scheduler(Scheduler.systemScheduler())
+				.expireAfter(new MuteExpiry())
+				.<MuteCacheKey, Optional<Punishment>>removalListener((key, optPunishment, cause) -> {
+					if (key != null && optPunishment != null && optPunishment.isPresent()) {
+						unindex(key, optPunishment.get().getIdentifier());
+					}
+				})
+				.buildAsync(cacheLoader);
+	}
+
+	/**
+	 * Entries last for the configured expiration time, or until the mute ends, whichever is sooner
+	 *
+	 */
+	private final class MuteExpiry implements Expiry<MuteCacheKey, Optional<Punishment>> {
+
+		private long lifetime(Optional<Punishment> optPunishment) {
+			SqlConfig.MuteCaching conf = configs.getSqlConfig().muteCaching();
+			if (optPunishment.isEmpty()) {
+				return TimeUnit.SECONDS.toNanos(conf.negativeExpirationTimeSeconds());
+			}
+			long expirationTime = TimeUnit.SECONDS.toNanos(conf.expirationTimeSeconds());
+			Punishment punishment = optPunishment.get();
+			if (punishment.isPermanent()) {
+				return expirationTime;
+			}
+			// The mute remains in effect during the second it ends
+			long remainingSeconds = punishment.getEndDate().getEpochSecond() - time.currentTime() + 1;
+			return Math.max(0L, Math.min(expirationTime, TimeUnit.SECONDS.toNanos(remainingSeconds)));
+		}
+
+		@Override
+		public long expireAfterCreate(@NonNull MuteCacheKey key, @NonNull Optional<Punishment> value,
+									  long currentTime) {
+			return lifetime(value);
+		}
+
+		@Override
+		public long expireAfterUpdate(@NonNull MuteCacheKey key, @NonNull Optional<Punishment> value,
+									  long currentTime, long currentDuration) {
+			return lifetime(value);
+		}
+
+		@Override
+		public long expireAfterRead(@NonNull MuteCacheKey key, @NonNull Optional<Punishment> value,
+									long currentTime, long currentDuration) {
+			var semantic = configs.getSqlConfig().muteCaching().expirationSemantic();
+			if (semantic == SqlConfig.MuteCaching.ExpirationSemantic.EXPIRE_AFTER_ACCESS) {
+				return lifetime(value);
+			}
+			return currentDuration;
+		}
 	}
 
 	@Override
 	public CentralisedFuture<Optional<Punishment>> getCacheableMute(UUID uuid, NetworkAddress address) {
-		return (CentralisedFuture<Optional<Punishment>>) muteCache.get(new MuteCacheKey(uuid, address))
-				.thenApply((optPunishment) -> {
-					return optPunishment.filter((punishment) -> !punishment.isExpired());
-				});
+		MuteCacheKey key = new MuteCacheKey(uuid, address);
+		CompletableFuture<Optional<Punishment>> future = muteCache.get(key);
+		if (future.isDone() && !future.isCompletedExceptionally()) {
+			// Entries expire with their mute, but the last second may still be cached
+			Optional<Punishment> optPunishment = future.join();
+			if (optPunishment.isPresent() && isExpired(optPunishment.get())) {
+				muteCache.asMap().remove(key, future);
+				return futuresFactory.completedFuture(Optional.empty());
+			}
+		}
+		return (CentralisedFuture<Optional<Punishment>>) future;
+	}
+
+	private boolean isExpired(Punishment punishment) {
+		return !punishment.isPermanent() && time.currentTime() > punishment.getEndDate().getEpochSecond();
 	}
 	
 	@Override
@@ -83,18 +177,89 @@ public class CaffeineMuteCache implements MuteCache {
 		if (punishment.getType() != PunishmentType.MUTE) {
 			throw new IllegalArgumentException("Cannot set cached mute to a punishment which is not a mute");
 		}
-		muteCache.put(new MuteCacheKey(uuid, address), futuresFactory.completedFuture(Optional.of(punishment)));
+		MuteCacheKey key = new MuteCacheKey(uuid, address);
+		muteCache.put(key, futuresFactory.completedFuture(Optional.of(punishment)));
+		index(key, punishment.getIdentifier());
+	}
+
+	@Override
+	public long invalidationCount() {
+		return invalidations.get();
+	}
+
+	@Override
+	public void setCachedMuteIfAbsent(UUID uuid, NetworkAddress address, @Nullable Punishment punishment,
+									  long invalidationCount) {
+		if (punishment != null && punishment.getType() != PunishmentType.MUTE) {
+			throw new IllegalArgumentException("Cannot set cached mute to a punishment which is not a mute");
+		}
+		if (invalidations.get() != invalidationCount) {
+			return;
+		}
+		// Do not overwrite a mute set or loaded in the meantime
+		MuteCacheKey key = new MuteCacheKey(uuid, address);
+		CompletableFuture<Optional<Punishment>> future = futuresFactory.completedFuture(Optional.ofNullable(punishment));
+		if (muteCache.asMap().putIfAbsent(key, future) != null) {
+			return;
+		}
+		if (punishment != null) {
+			index(key, punishment.getIdentifier());
+		}
+		// A mute may have been enacted or cleared while the entry was being added
+		if (invalidations.get() != invalidationCount) {
+			muteCache.asMap().remove(key, future);
+		}
+	}
+
+	@Override
+	public void muteEnacted() {
+		invalidations.incrementAndGet();
+	}
+
+	private void index(MuteCacheKey key, long id) {
+		keysById.compute(id, (i, keys) -> {
+			if (keys == null) {
+				keys = new HashSet<>();
+			}
+			keys.add(key);
+			return keys;
+		});
+	}
+
+	private void unindex(MuteCacheKey key, long id) {
+		keysById.computeIfPresent(id, (i, keys) -> {
+			// The entry may have been replaced by one holding the same mute
+			if (!holdsMute(muteCache.asMap().get(key), id)) {
+				keys.remove(key);
+			}
+			return (keys.isEmpty()) ? null : keys;
+		});
+	}
+
+	private static boolean holdsMute(CompletableFuture<Optional<Punishment>> future, long id) {
+		if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+			return false;
+		}
+		Optional<Punishment> optPunishment = future.join();
+		return optPunishment.isPresent() && optPunishment.get().getIdentifier() == id;
 	}
 	
-	private void clearCachedMuteIf(Predicate<Punishment> filter) {
+	private void clearCachedMuteById(long id) {
+		invalidations.incrementAndGet();
+		// Loads in progress may have read the mute, and are not indexed until they are about to complete
+		muteCache.asMap().values().removeIf((future) -> !future.isDone());
+		Set<MuteCacheKey> keys = keysById.remove(id);
+		if (keys == null) {
+			return;
+		}
 		/*
 		 * Any matching entries must be fully removed so that they may be recalculated afresh,
 		 * and not merely set to an empty Optional, the reason being there may be multiple
 		 * applicable mutes for the uuid/address combination.
 		 */
-		muteCache.synchronous().asMap().values().removeIf((optPunishment) -> {
-			return optPunishment.isPresent() && filter.test(optPunishment.get());
-		});
+		for (MuteCacheKey key : keys) {
+			muteCache.asMap().computeIfPresent(key, (k, future) -> (holdsMute(future, id)) ? null : future);
+		}
 	}
 
 	@Override
@@ -102,12 +267,12 @@ public class CaffeineMuteCache implements MuteCache {
 		if (punishment.getType() != PunishmentType.MUTE) {
 			throw new IllegalArgumentException("Cannot clear cached mute of a punishment which is not a mute");
 		}
-		clearCachedMuteIf(punishment::equals);
+		clearCachedMuteById(punishment.getIdentifier());
 	}
 
 	@Override
 	public void clearCachedMute(long id) {
-		clearCachedMuteIf((punishment) -> punishment.getIdentifier() == id);
+		clearCachedMuteById(id);
 	}
 	
 	private static class MuteCacheKey {
@@ -0,0 +1,108 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A counting Bloom filter over 64-bit element hashes. Counters saturate at 255, after which
+ * they are never decremented. <br>
+ * <br>
+ * Mutation must be externally synchronized. Reads may run concurrently with mutation:
+ * counters are written with release semantics and read with acquire semantics, so that
+ * readers on other threads observe added elements without locking.
+ *
+ */
+final class CountingBloomFilter {
+
+	private final byte[] counters;
+	private final int hashFunctions;
+
+	private static final int SATURATED = 0xFF;
+	private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+	/**
+	 * Creates a filter sized for the given amount of elements and false positive rate
+	 *
+	 * @param expectedElements the expected amount of elements
+	 * @param falsePositiveRate the desired false positive rate
+	 */
+	CountingBloomFilter(int expectedElements, double falsePositiveRate) {
+		expectedElements = Math.max(expectedElements, 1);
+		long counterCount = (long) Math.ceil(
+				-expectedElements * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		counters = new byte[(int) Math.max(64L, Math.min(counterCount, Integer.MAX_VALUE - 8))];
+		hashFunctions = Math.max(1, (int) Math.round((double) counters.length / expectedElements * Math.log(2)));
+	}
+
+	private int index(long hash, int function) {
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		int combined = hash1 + function * hash2;
+		if (combined < 0) {
+			combined = ~combined;
+		}
+		return combined % counters.length;
+	}
+
+	private int getCounter(int index) {
+		return Byte.toUnsignedInt((byte) COUNTERS.getAcquire(counters, index));
+	}
+
+	private void setCounter(int index, int counter) {
+		COUNTERS.setRelease(counters, index, (byte) counter);
+	}
+
+	void add(long hash) {
+		for (int n = 0; n < hashFunctions; n++) {
+			int index = index(hash, n);
+			int counter = getCounter(index);
+			if (counter != SATURATED) {
+				setCounter(index, counter + 1);
+			}
+		}
+	}
+
+	/**
+	 * Removes an element. The element must have been previously added, else the filter
+	 * may yield false negatives.
+	 *
+	 * @param hash the element hash
+	 */
+	void remove(long hash) {
+		for (int n = 0; n < hashFunctions; n++) {
+			int index = index(hash, n);
+			int counter = getCounter(index);
+			if (counter != 0 && counter != SATURATED) {
+				setCounter(index, counter - 1);
+			}
+		}
+	}
+
+	boolean mightContain(long hash) {
+		for (int n = 0; n < hashFunctions; n++) {
+			if (getCounter(index(hash, n)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -83,12 +83,32 @@ public interface EnforcementConfig {
 		@DefaultString("ALL_ALTS")
 		WhichAlts showWhichAlts();
 
+		@ConfKey("max-checks-per-second")
+		@ConfComments({
+				"Alt-checks run in the background after the player is allowed to join.",
+				"This is the maximum amount of alt-checks to start each second.",
+				"Repeated joins from the same address are checked once."
+		})
+		@ConfDefault.DefaultInteger(10)
+		@NumericRange(min = 1)
+		int maxChecksPerSecond();
+
+		@ConfKey("max-pending-checks")
+		@ConfComments("The maximum amount of alt-checks waiting to run. Further joins are not checked until there is room.")
+		@ConfDefault.DefaultInteger(1000)
+		@NumericRange(min = 1)
+		int maxPendingChecks();
+
 	}
 
 	@ConfKey("connection-limiter")
 	@SubSection
 	ConnectionLimitConfig connectionLimiter();
 
+	@ConfKey("login-admission")
+	@SubSection
+	LoginAdmissionConfig loginAdmission();
+
 	@ConfKey("mute-commands")
 	@ConfComments({"",
 		"A list of commands muted players will not be able to execute",
@@ -22,24 +22,25 @@ package space.arim.libertybans.core.selector;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import net.kyori.adventure.text.Component;
+import org.jooq.DSLContext;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.Punishment;
-import space.arim.libertybans.core.alts.AltDetection;
-import space.arim.libertybans.core.alts.AltNotification;
+import space.arim.libertybans.core.alts.AltCheckQueue;
 import space.arim.libertybans.core.alts.ConnectionLimiter;
-import space.arim.libertybans.core.alts.DetectedAlt;
+import space.arim.libertybans.core.alts.RecentConnections;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.punish.Association;
+import space.arim.libertybans.core.punish.AssociationBuffer;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.time.Instant;
-import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class Gatekeeper {
 
@@ -48,63 +49,136 @@ public final class Gatekeeper {
 	private final Provider<QueryExecutor> queryExecutor;
 	private final InternalFormatter formatter;
 	private final ConnectionLimiter connectionLimiter;
-	private final AltDetection altDetection;
-	private final AltNotification altNotification;
+	private final AltCheckQueue altCheckQueue;
 	private final Time time;
 
 	private final ApplicableImpl applicableImpl;
+	private final ActiveBanIndex banIndex;
+	private final AssociationBuffer associationBuffer;
+	private final VictimFilter victimFilter;
+	private final RecentConnections recentConnections;
+	private final LoginLatency loginLatency;
+	private final Provider<MuteCache> muteCache;
 
 	@Inject
 	public Gatekeeper(Configs configs, FactoryOfTheFuture futuresFactory, Provider<QueryExecutor> queryExecutor,
-					  InternalFormatter formatter, ConnectionLimiter connectionLimiter, AltDetection altDetection,
-					  AltNotification altNotification, Time time, ApplicableImpl applicableImpl) {
+					  InternalFormatter formatter, ConnectionLimiter connectionLimiter, AltCheckQueue altCheckQueue,
+					  Time time, ApplicableImpl applicableImpl, ActiveBanIndex banIndex,
+					  AssociationBuffer associationBuffer, VictimFilter victimFilter, RecentConnections recentConnections,
+					  LoginLatency loginLatency, Provider<MuteCache> muteCache) {
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.queryExecutor = queryExecutor;
 		this.formatter = formatter;
 		this.connectionLimiter = connectionLimiter;
-		this.altDetection = altDetection;
-		this.altNotification = altNotification;
+		this.altCheckQueue = altCheckQueue;
 		this.time = time;
 		this.applicableImpl = applicableImpl;
+		this.banIndex = banIndex;
+		this.associationBuffer = associationBuffer;
+		this.victimFilter = victimFilter;
+		this.recentConnections = recentConnections;
+		this.loginLatency = loginLatency;
+		this.muteCache = muteCache;
 	}
 
 	CentralisedFuture<Component> executeAndCheckConnection(UUID uuid, String name, NetworkAddress address) {
+		long submitted = loginLatency.start();
+		AddressStrictness strictness = configs.getMainConfig().enforcement().addressStrictness();
+		// STRICT finds linked alts through recorded addresses, so the current address must be written first
+		boolean associationBuffered = associationBuffer.isEnabled() && strictness != AddressStrictness.STRICT;
+		if (associationBuffered) {
+			associationBuffer.queueCurrentAssociation(uuid, name, address, time.currentTimestamp());
+		}
+		AtomicBoolean databaseWaitRecorded = new AtomicBoolean();
 		return queryExecutor.get().queryWithRetry((context, transaction) -> {
+			// Taken before anything is read, so that mutes enacted during the login are not missed
+			long muteInvalidationCount = muteCache.get().invalidationCount();
+			long stageStart;
+			// Only the first attempt is sampled, since retries would otherwise add several samples per login
+			if (databaseWaitRecorded.compareAndSet(false, true)) {
+				stageStart = loginLatency.recordSince(LoginLatency.Stage.DATABASE_WAIT, submitted);
+			} else {
+				stageStart = loginLatency.start();
+			}
 			Instant currentTime = time.currentTimestamp();
 
-			Association association = new Association(uuid, context);
-			association.associateCurrentName(name, currentTime);
-			association.associateCurrentAddress(address, currentTime);
+			if (!associationBuffered) {
+				Association association = new Association(uuid, context);
+				association.associateCurrentName(name, currentTime);
+				association.associateCurrentAddress(address, currentTime);
+			}
+			recentConnections.recordJoin(uuid, address, currentTime);
+			stageStart = loginLatency.recordSince(LoginLatency.Stage.ASSOCIATION, stageStart);
 
-			Punishment ban = applicableImpl.selectApplicable(context, uuid, address, PunishmentType.BAN, currentTime);
+			Punishment ban;
+			VictimFilter.Answer banFilterAnswer = victimFilter.check(PunishmentType.BAN, uuid, address, strictness);
+			if (!banFilterAnswer.mightBePunished()) {
+				ban = null;
+			} else if (banIndex.canAnswer(strictness)) {
+				ban = banIndex.findApplicable(context, uuid, address, strictness, currentTime);
+			} else {
+				ban = selectApplicable(context, uuid, address, PunishmentType.BAN, currentTime, strictness,
+						associationBuffered);
+				if (ban == null) {
+					victimFilter.recordNotPunished(banFilterAnswer);
+				}
+			}
+			stageStart = loginLatency.recordSince(LoginLatency.Stage.BAN_SELECT, stageStart);
 			if (ban != null) {
 				return ban;
 			}
-			Component connectionLimitMessage = connectionLimiter.hasExceededLimit(context, address, currentTime);
+			Component connectionLimitMessage;
+			if (recentConnections.isEnabled()) {
+				connectionLimitMessage = recentConnections.hasExceededLimit(address, currentTime);
+			} else {
+				connectionLimitMessage = connectionLimiter.hasExceededLimit(context, address, currentTime);
+			}
+			stageStart = loginLatency.recordSince(LoginLatency.Stage.CONNECTION_LIMITER, stageStart);
 			if (connectionLimitMessage != null) {
 				return connectionLimitMessage;
 			}
-			// The player may join, but should be checked for alts
-			EnforcementConfig.AltsAutoShow altsAutoShow = configs.getMainConfig().enforcement().altsAutoShow();
-			if (altsAutoShow.enable()) {
-				List<DetectedAlt> detectedAlts = altDetection.detectAlts(context, uuid, address, altsAutoShow.showWhichAlts());
-				return detectedAlts;
+			if (configs.getSqlConfig().muteCaching().prefetchOnJoin()) {
+				// Warm the mute cache for the player's first chat message
+				Punishment mute;
+				// Only ban checks count toward the false positive rate of the filter
+				VictimFilter.Answer muteFilterAnswer = victimFilter.checkUnrecorded(
+						PunishmentType.MUTE, uuid, address, strictness);
+				if (!muteFilterAnswer.mightBePunished()) {
+					mute = null;
+				} else {
+					mute = selectApplicable(context, uuid, address, PunishmentType.MUTE, currentTime, strictness,
+							associationBuffered);
+				}
+				muteCache.get().setCachedMuteIfAbsent(uuid, address, mute, muteInvalidationCount);
+				loginLatency.recordSince(LoginLatency.Stage.MUTE_PREFETCH, stageStart);
 			}
 			return null;
-		}).thenCompose((banOrLimitMessageOrDetectedAltsOrNull) -> {
-			if (banOrLimitMessageOrDetectedAltsOrNull instanceof Punishment) {
-				return formatter.getPunishmentMessage((Punishment) banOrLimitMessageOrDetectedAltsOrNull);
+		}).thenCompose((banOrLimitMessageOrNull) -> {
+			if (banOrLimitMessageOrNull instanceof Punishment) {
+				long formattingStart = loginLatency.start();
+				return formatter.getPunishmentMessage((Punishment) banOrLimitMessageOrNull).thenApply((message) -> {
+					loginLatency.recordSince(LoginLatency.Stage.MESSAGE_FORMATTING, formattingStart);
+					return message;
+				});
 			}
-			if (banOrLimitMessageOrDetectedAltsOrNull instanceof Component) {
-				return futuresFactory.completedFuture((Component) banOrLimitMessageOrDetectedAltsOrNull);
-			}
-			if (banOrLimitMessageOrDetectedAltsOrNull instanceof List) {
-				@SuppressWarnings("unchecked")
-				List<DetectedAlt> detectedAlts = (List<DetectedAlt>) banOrLimitMessageOrDetectedAltsOrNull;
-				altNotification.notifyFoundAlts(uuid, name, address, detectedAlts);
+			if (banOrLimitMessageOrNull instanceof Component) {
+				return futuresFactory.completedFuture((Component) banOrLimitMessageOrNull);
 			}
+			// The player may join, but should be checked for alts
+			altCheckQueue.queueCheck(uuid, name, address);
 			return futuresFactory.completedFuture(null);
 		});
 	}
+
+	private Punishment selectApplicable(DSLContext context, UUID uuid, NetworkAddress address, PunishmentType type,
+										Instant currentTime, AddressStrictness strictness, boolean associationBuffered) {
+		Punishment punishment = applicableImpl.selectApplicable(context, uuid, address, type, currentTime, strictness);
+		if (punishment == null && associationBuffered && strictness == AddressStrictness.NORMAL) {
+			// The current address may not yet be recorded, so check it directly
+			punishment = applicableImpl.selectApplicable(
+					context, uuid, address, type, currentTime, AddressStrictness.LENIENT);
+		}
+		return punishment;
+	}
 }
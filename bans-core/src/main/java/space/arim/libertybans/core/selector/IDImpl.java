@@ -22,18 +22,29 @@ package space.arim.libertybans.core.selector;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
+import org.jooq.Record8;
+import org.jooq.Record9;
+import org.jooq.ResultQuery;
+import org.jooq.impl.DSL;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.Operator;
 import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.scope.ServerScope;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.jooq.PreRenderedQuery;
 import space.arim.libertybans.core.database.sql.EndTimeCondition;
-import space.arim.libertybans.core.database.sql.TableForType;
 import space.arim.libertybans.core.punish.PunishmentCreator;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
-import static space.arim.libertybans.core.schema.tables.SimpleActive.SIMPLE_ACTIVE;
+import java.time.Instant;
+import java.util.UUID;
+
+import static space.arim.libertybans.core.schema.tables.Active.ACTIVE;
 import static space.arim.libertybans.core.schema.tables.SimpleHistory.SIMPLE_HISTORY;
 
 @Singleton
@@ -42,32 +53,57 @@ public class IDImpl {
 	private final FactoryOfTheFuture futuresFactory;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
+	private final PunishmentCache punishmentCache;
 	private final Time time;
 
+	private static final PreRenderedQuery<ResultQuery<Record9<
+			PunishmentType, Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant
+			>>> SELECT_ACTIVE_BY_ID = PreRenderedQuery.resultQuery((context) -> {
+		return context
+				.select(
+						ACTIVE.TYPE,
+						ACTIVE.VICTIM_TYPE, ACTIVE.VICTIM_UUID, ACTIVE.VICTIM_ADDRESS,
+						ACTIVE.OPERATOR, ACTIVE.REASON,
+						ACTIVE.SCOPE, ACTIVE.START, ACTIVE.END
+				)
+				.from(ACTIVE)
+				.where(ACTIVE.ID.eq(DSL.param("id", ACTIVE.ID)))
+				.and(new EndTimeCondition(ACTIVE.END).isNotExpired(DSL.param("currentTime", ACTIVE.END)));
+	}, "id", "currentTime");
+
+	private static final PreRenderedQuery<ResultQuery<Record8<
+			Victim.VictimType, UUID, NetworkAddress, Operator, String, ServerScope, Instant, Instant
+			>>> SELECT_ACTIVE_BY_ID_AND_TYPE = PreRenderedQuery.resultQuery((context) -> {
+		return context
+				.select(
+						ACTIVE.VICTIM_TYPE, ACTIVE.VICTIM_UUID, ACTIVE.VICTIM_ADDRESS,
+						ACTIVE.OPERATOR, ACTIVE.REASON,
+						ACTIVE.SCOPE, ACTIVE.START, ACTIVE.END
+				)
+				.from(ACTIVE)
+				.where(ACTIVE.ID.eq(DSL.param("id", ACTIVE.ID)))
+				.and(ACTIVE.TYPE.eq(DSL.param("type", ACTIVE.TYPE)))
+				.and(new EndTimeCondition(ACTIVE.END).isNotExpired(DSL.param("currentTime", ACTIVE.END)));
+	}, "id", "type", "currentTime");
+
 	@Inject
 	public IDImpl(FactoryOfTheFuture futuresFactory, Provider<InternalDatabase> dbProvider,
-				  PunishmentCreator creator, Time time) {
+				  PunishmentCreator creator, PunishmentCache punishmentCache, Time time) {
 		this.futuresFactory = futuresFactory;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
+		this.punishmentCache = punishmentCache;
 		this.time = time;
 	}
 
 	CentralisedFuture<Punishment> getActivePunishmentById(long id) {
 		InternalDatabase database = dbProvider.get();
-		return database.query(SQLFunction.readOnly((context) -> {
-			return context
-					.select(
-							SIMPLE_ACTIVE.TYPE,
-							SIMPLE_ACTIVE.VICTIM_TYPE, SIMPLE_ACTIVE.VICTIM_UUID, SIMPLE_ACTIVE.VICTIM_ADDRESS,
-							SIMPLE_ACTIVE.OPERATOR, SIMPLE_ACTIVE.REASON,
-							SIMPLE_ACTIVE.SCOPE, SIMPLE_ACTIVE.START, SIMPLE_ACTIVE.END
-					)
-					.from(SIMPLE_ACTIVE)
-					.where(SIMPLE_ACTIVE.ID.eq(id))
-					.and(new EndTimeCondition(SIMPLE_ACTIVE.END).isNotExpired(time.currentTimestamp()))
+		// Results are cached, and the punishment may have just been enacted or revoked by another instance
+		return database.query(SQLFunction.readOnly(SQLFunction.Staleness.NONE, (context) -> {
+			return SELECT_ACTIVE_BY_ID
+					.bind(context, id, time.currentTimestamp())
 					.fetchOne(creator.punishmentMapper(id));
-		}));
+		})).thenApply(punishmentCache::cache);
 	}
 
 	CentralisedFuture<Punishment> getActivePunishmentByIdAndType(long id, PunishmentType type) {
@@ -76,24 +112,20 @@ public class IDImpl {
 			return futuresFactory.completedFuture(null);
 		}
 		InternalDatabase database = dbProvider.get();
-		return database.query(SQLFunction.readOnly((context) -> {
-			var simpleView = new TableForType(type).simpleView();
-			return context
-					.select(
-							simpleView.victimType(), simpleView.victimUuid(), simpleView.victimAddress(),
-							simpleView.operator(), simpleView.reason(),
-							simpleView.scope(), simpleView.start(), simpleView.end()
-					)
-					.from(simpleView.table())
-					.where(simpleView.id().eq(id))
-					.and(new EndTimeCondition(simpleView).isNotExpired(time.currentTimestamp()))
+		return database.query(SQLFunction.readOnly(SQLFunction.Staleness.NONE, (context) -> {
+			return SELECT_ACTIVE_BY_ID_AND_TYPE
+					.bind(context, id, type, time.currentTimestamp())
 					.fetchOne(creator.punishmentMapper(id, type));
-		}));
+		})).thenApply(punishmentCache::cache);
 	}
 
 	CentralisedFuture<Punishment> getHistoricalPunishmentById(long id) {
+		Punishment cached = punishmentCache.getIfPresent(id);
+		if (cached != null) {
+			return futuresFactory.completedFuture(cached);
+		}
 		InternalDatabase database = dbProvider.get();
-		return database.query(SQLFunction.readOnly((context) -> {
+		return database.query(SQLFunction.readOnly(SQLFunction.Staleness.NONE, (context) -> {
 			return context
 					.select(
 							SIMPLE_HISTORY.TYPE,
@@ -104,12 +136,17 @@ public class IDImpl {
 					.from(SIMPLE_HISTORY)
 					.where(SIMPLE_HISTORY.ID.eq(id))
 					.fetchOne(creator.punishmentMapper(id));
-		}));
+		})).thenApply(punishmentCache::cache);
 	}
 
 	CentralisedFuture<Punishment> getHistoricalPunishmentByIdAndType(long id, PunishmentType type) {
+		Punishment cached = punishmentCache.getIfPresent(id);
+		if (cached != null) {
+			// Ids are unique across types
+			return futuresFactory.completedFuture((cached.getType() == type) ? cached : null);
+		}
 		InternalDatabase database = dbProvider.get();
-		return database.query(SQLFunction.readOnly((context) -> {
+		return database.query(SQLFunction.readOnly(SQLFunction.Staleness.NONE, (context) -> {
 			return context
 					.select(
 							SIMPLE_HISTORY.VICTIM_TYPE, SIMPLE_HISTORY.VICTIM_UUID, SIMPLE_HISTORY.VICTIM_ADDRESS,
@@ -120,6 +157,6 @@ public class IDImpl {
 					.where(SIMPLE_HISTORY.ID.eq(id))
 					.and(SIMPLE_HISTORY.TYPE.eq(type))
 					.fetchOne(creator.punishmentMapper(id, type));
-		}));
+		})).thenApply(punishmentCache::cache);
 	}
 }
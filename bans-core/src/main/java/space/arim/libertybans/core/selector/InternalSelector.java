@@ -19,7 +19,9 @@
 
 package space.arim.libertybans.core.selector;
 
+import java.time.Instant;
 import java.util.UUID;
+import java.util.function.BiFunction;
 
 import net.kyori.adventure.text.Component;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
@@ -27,6 +29,7 @@ import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.select.PunishmentSelector;
+import space.arim.libertybans.api.select.SelectionOrder;
 
 public interface InternalSelector extends PunishmentSelector {
 
@@ -43,4 +46,20 @@ public interface InternalSelector extends PunishmentSelector {
 
 	CentralisedFuture<Punishment> getApplicableMute(UUID uuid, NetworkAddress address);
 
+	/**
+	 * Skips punishments of a selection and finds the start time and id of the last punishment skipped,
+	 * without retrieving any punishments. The selection may then be resumed by seeking after it. <br>
+	 * <br>
+	 * Pagination of the selection other than {@link SelectionOrder#seekAfterStartTime()} and
+	 * {@link SelectionOrder#seekAfterId()} is ignored.
+	 *
+	 * @param selection the selection
+	 * @param skipCount the amount of punishments to skip, which must be positive
+	 * @param boundaryMapper maps the start time and id of the last punishment skipped
+	 * @param <C> the result type
+	 * @return a future which yields the mapped result, or null if fewer punishments were found
+	 */
+	<C> CentralisedFuture<C> getBoundaryAfterSkipping(SelectionOrder selection, int skipCount,
+													  BiFunction<Instant, Long, C> boundaryMapper);
+
 }
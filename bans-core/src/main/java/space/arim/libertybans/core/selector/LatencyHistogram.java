@@ -0,0 +1,156 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values, with logarithmic buckets. <br>
+ * <br>
+ * Each power of two is divided into 8 linear sub-buckets, so recorded values are
+ * reported with a relative error of at most 12.5%. Values below 8 are recorded exactly.
+ * Recording is a single atomic increment plus two uncontended adders.
+ *
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) Math.max(value, 0L);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	static long bucketLowerBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		int subBucket = index % SUB_BUCKET_COUNT;
+		return ((long) (SUB_BUCKET_COUNT + subBucket)) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	static long bucketUpperBound(int index) {
+		if (index + 1 == BUCKET_COUNT) {
+			return Long.MAX_VALUE;
+		}
+		return bucketLowerBound(index + 1) - 1;
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as zero
+	 *
+	 * @param value the value
+	 */
+	public void record(long value) {
+		value = Math.max(value, 0L);
+		counts.incrementAndGet(bucketIndex(value));
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Clears all recorded values. Values recorded concurrently may or may not be cleared
+	 *
+	 */
+	public void reset() {
+		for (int n = 0; n < BUCKET_COUNT; n++) {
+			counts.set(n, 0L);
+		}
+		sum.reset();
+		max.reset();
+	}
+
+	/**
+	 * Takes a snapshot of the recorded values
+	 *
+	 * @return the snapshot
+	 */
+	public Snapshot snapshot() {
+		long[] snapshotCounts = new long[BUCKET_COUNT];
+		long totalCount = 0;
+		for (int n = 0; n < BUCKET_COUNT; n++) {
+			long count = counts.get(n);
+			snapshotCounts[n] = count;
+			totalCount += count;
+		}
+		return new Snapshot(snapshotCounts, totalCount, sum.sum(), max.get());
+	}
+
+	public static final class Snapshot {
+
+		private final long[] counts;
+		private final long totalCount;
+		private final long sum;
+		private final long max;
+
+		Snapshot(long[] counts, long totalCount, long sum, long max) {
+			this.counts = counts;
+			this.totalCount = totalCount;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long count() {
+			return totalCount;
+		}
+
+		public long max() {
+			return max;
+		}
+
+		public double mean() {
+			return (totalCount == 0) ? 0D : ((double) sum) / totalCount;
+		}
+
+		/**
+		 * Gets the value at the given percentile. The result is the highest value
+		 * in the same bucket, but no greater than the maximum recorded value
+		 *
+		 * @param percentile the percentile, from 0 to 100
+		 * @return the value at the percentile, or 0 if nothing was recorded
+		 */
+		public long valueAtPercentile(double percentile) {
+			if (totalCount == 0) {
+				return 0L;
+			}
+			long rank = Math.max(1L, (long) Math.ceil(percentile / 100D * totalCount));
+			long cumulative = 0;
+			for (int n = 0; n < counts.length; n++) {
+				cumulative += counts[n];
+				if (cumulative >= rank) {
+					return Math.min(bucketUpperBound(n), max);
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import net.kyori.adventure.text.Component;
+import space.arim.dazzleconf.annote.ConfComments;
+import space.arim.dazzleconf.annote.ConfDefault;
+import space.arim.dazzleconf.annote.ConfHeader;
+import space.arim.dazzleconf.annote.ConfKey;
+import space.arim.dazzleconf.annote.NumericRange;
+
+@ConfHeader({
+		"Limits how many joining players are checked at the same time.",
+		"",
+		"During a flood of joins, such as a bot attack or all players reconnecting after a restart,",
+		"checking every player at once can overwhelm the database and cause legitimate players to time out.",
+		"With this feature, a limited number of checks run at once, and a limited number of players wait their turn.",
+		"Players beyond that are handled according to the overload policy."
+})
+public interface LoginAdmissionConfig {
+
+	@ConfComments("Whether to enable this feature")
+	@ConfDefault.DefaultBoolean(false)
+	boolean enable();
+
+	@ConfKey("max-in-flight")
+	@ConfComments("How many joining players may be checked at the same time")
+	@ConfDefault.DefaultInteger(16)
+	@NumericRange(min = 1)
+	int maxInFlight();
+
+	@ConfKey("queue-depth")
+	@ConfComments("How many joining players may wait to be checked")
+	@ConfDefault.DefaultInteger(256)
+	@NumericRange(min = 0)
+	int queueDepth();
+
+	@ConfKey("overload-policy")
+	@ConfComments({
+			"What to do with joining players when the queue is full",
+			"DENY - deny the player with the overload message",
+			"ALLOW_WITH_DEFERRED_CHECK - allow the player, then check the player once load permits,",
+			"kicking the player if denied. If too many deferred checks are pending, the player is denied",
+			"FAIL_OPEN - use the result of the player's most recent check, or allow the player if there is none"
+	})
+	@ConfDefault.DefaultString("DENY")
+	OverloadPolicy overloadPolicy();
+
+	enum OverloadPolicy {
+		DENY,
+		ALLOW_WITH_DEFERRED_CHECK,
+		FAIL_OPEN
+	}
+
+	@ConfKey("overload-message")
+	@ConfComments({"The message when a player is denied due to load. This is used by the DENY overload policy,",
+			"and when a waiting player could not be checked in time."})
+	@ConfDefault.DefaultString("The server is currently receiving too many connections. Please try again shortly.")
+	Component overloadMessage();
+
+}
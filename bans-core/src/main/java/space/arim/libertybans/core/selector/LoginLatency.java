@@ -0,0 +1,125 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import space.arim.libertybans.core.service.Time;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records the time spent in each stage of checking incoming connections. Values are in microseconds
+ *
+ */
+@Singleton
+public final class LoginLatency {
+
+	private final Time time;
+	private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+
+	@Inject
+	public LoginLatency(Time time) {
+		this.time = time;
+		for (Stage stage : Stage.values()) {
+			histograms.put(stage, new LatencyHistogram());
+		}
+	}
+
+	public enum Stage {
+		/**
+		 * The whole connection check, from start to finish
+		 */
+		TOTAL,
+		/**
+		 * Waiting for admission, if login admission control is enabled
+		 */
+		ADMISSION_WAIT,
+		/**
+		 * Waiting for a database thread and connection
+		 */
+		DATABASE_WAIT,
+		ASSOCIATION,
+		BAN_SELECT,
+		CONNECTION_LIMITER,
+		MUTE_PREFETCH,
+		/**
+		 * The background alts-auto-show alt-check
+		 */
+		ALT_CHECK,
+		MESSAGE_FORMATTING;
+
+		@Override
+		public String toString() {
+			return name().toLowerCase(Locale.ROOT).replace('_', '-');
+		}
+	}
+
+	/**
+	 * Gets the current time, for use with {@link #recordSince(Stage, long)}
+	 *
+	 * @return the current time in nanoseconds
+	 */
+	public long start() {
+		return time.arbitraryNanoTime();
+	}
+
+	/**
+	 * Records the time elapsed since the given start time
+	 *
+	 * @param stage the stage
+	 * @param startNanos the start time, as given by {@link #start()}
+	 * @return the current time in nanoseconds, which may be used as the start of the next stage
+	 */
+	public long recordSince(Stage stage, long startNanos) {
+		long now = time.arbitraryNanoTime();
+		histograms.get(stage).record((now - startNanos) / 1_000L);
+		return now;
+	}
+
+	public LatencyHistogram.Snapshot snapshot(Stage stage) {
+		return histograms.get(stage).snapshot();
+	}
+
+	public void reset() {
+		histograms.values().forEach(LatencyHistogram::reset);
+	}
+
+	/**
+	 * Writes the percentiles of each stage in CSV format
+	 *
+	 * @param writer the writer
+	 * @throws IOException if writing failed
+	 */
+	public void exportCsv(Writer writer) throws IOException {
+		writer.write("stage,count,mean_us,p50_us,p90_us,p99_us,p999_us,max_us\n");
+		for (Stage stage : Stage.values()) {
+			LatencyHistogram.Snapshot snapshot = snapshot(stage);
+			writer.write(String.format(Locale.ROOT, "%s,%d,%.1f,%d,%d,%d,%d,%d\n",
+					stage, snapshot.count(), snapshot.mean(),
+					snapshot.valueAtPercentile(50D), snapshot.valueAtPercentile(90D),
+					snapshot.valueAtPercentile(99D), snapshot.valueAtPercentile(99.9D),
+					snapshot.max()));
+		}
+	}
+}
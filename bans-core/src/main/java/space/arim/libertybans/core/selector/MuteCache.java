@@ -18,6 +18,7 @@
  */
 package space.arim.libertybans.core.selector;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
@@ -31,6 +32,33 @@ public interface MuteCache {
 
 	void setCachedMute(UUID uuid, NetworkAddress address, Punishment punishment);
 
+	/**
+	 * Gets the number of times cached mutes have been invalidated, by mutes being enacted or
+	 * cleared. Taken before looking up a mute whose result is given to
+	 * {@link #setCachedMuteIfAbsent(UUID, NetworkAddress, Punishment, long)}
+	 *
+	 * @return the invalidation count
+	 */
+	long invalidationCount();
+
+	/**
+	 * Caches the result of looking up the applicable mute, unless a result is already cached
+	 * or cached mutes were invalidated since the lookup began
+	 *
+	 * @param uuid the uuid
+	 * @param address the address
+	 * @param punishment the applicable mute, or {@code null} if there is none
+	 * @param invalidationCount the invalidation count taken before the lookup
+	 */
+	void setCachedMuteIfAbsent(UUID uuid, NetworkAddress address, @Nullable Punishment punishment,
+							   long invalidationCount);
+
+	/**
+	 * Invalidates lookups in progress, since a mute was enacted which they may not have seen
+	 *
+	 */
+	void muteEnacted();
+
 	void clearCachedMute(Punishment punishment);
 
 	void clearCachedMute(long id);
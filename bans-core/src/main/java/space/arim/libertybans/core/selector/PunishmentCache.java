@@ -0,0 +1,110 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import space.arim.libertybans.api.punish.Punishment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Caches punishments by id. <br>
+ * <br>
+ * The details of a punishment never change once it is enacted, so cached punishments
+ * need not be invalidated when punishments are revoked or expire. Whether a punishment
+ * is active must still be determined from the database. <br>
+ * <br>
+ * The cache is bounded by the approximate memory used by the punishments it holds.
+ *
+ */
+@Singleton
+public final class PunishmentCache {
+
+	private final Cache<Long, Punishment> punishments;
+
+	/**
+	 * Approximate memory used by a punishment, excluding its reason
+	 */
+	private static final int BASE_WEIGHT = 256;
+	private static final long MAXIMUM_WEIGHT = 4L * 1024L * 1024L;
+
+	@Inject
+	public PunishmentCache() {
+		this(MAXIMUM_WEIGHT, ForkJoinPool.commonPool());
+	}
+
+	PunishmentCache(long maximumWeight, Executor executor) {
+		punishments = Caffeine.newBuilder()
+				.maximumWeight(maximumWeight)
+				.weigher((Long id, Punishment punishment) -> weigh(punishment))
+				.executor(executor)
+				.build();
+	}
+
+	static int weigh(Punishment punishment) {
+		return BASE_WEIGHT + 2 * punishment.getReason().length();
+	}
+
+	/**
+	 * Gets a cached punishment
+	 *
+	 * @param id the punishment id
+	 * @return the punishment, or {@code null} if not cached
+	 */
+	Punishment getIfPresent(long id) {
+		return punishments.getIfPresent(id);
+	}
+
+	/**
+	 * Gets the cached punishments among the given ids
+	 *
+	 * @param ids the punishment ids
+	 * @return a mutable map of the punishments which are cached
+	 */
+	Map<Long, Punishment> getAllPresent(Iterable<Long> ids) {
+		return new HashMap<>(punishments.getAllPresent(ids));
+	}
+
+	/**
+	 * Caches a punishment retrieved from the database
+	 *
+	 * @param punishment the punishment, or {@code null} for none
+	 * @return the same punishment
+	 */
+	Punishment cache(Punishment punishment) {
+		if (punishment != null) {
+			punishments.put(punishment.getIdentifier(), punishment);
+		}
+		return punishment;
+	}
+
+	/**
+	 * Discards all cached punishments. Used when the database is cleared
+	 *
+	 */
+	public void clear() {
+		punishments.invalidateAll();
+	}
+}
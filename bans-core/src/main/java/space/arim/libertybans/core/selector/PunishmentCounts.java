@@ -0,0 +1,166 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.select.SelectionOrder;
+import space.arim.libertybans.api.select.SelectionPredicate;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ReactionStage;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caches the amount of punishments matching selections. <br>
+ * <br>
+ * Counts of all punishments of a single type, such as all active bans, are adjusted
+ * as punishments are enacted and revoked. Counts of other selections are discarded
+ * when a punishment of a matching type is enacted or revoked. Every count is
+ * recomputed after a short time regardless, which accounts for punishments expiring.
+ *
+ */
+@Singleton
+public final class PunishmentCounts {
+
+	private final FactoryOfTheFuture futuresFactory;
+	private final SelectionImpl selectionImpl;
+
+	private final AsyncCache<SelectionOrder, Integer> counts;
+
+	private static final Duration TIME_TO_LIVE = Duration.ofSeconds(30L);
+
+	@Inject
+	public PunishmentCounts(FactoryOfTheFuture futuresFactory, SelectionImpl selectionImpl, Time time) {
+		this.futuresFactory = futuresFactory;
+		this.selectionImpl = selectionImpl;
+		counts = Caffeine.newBuilder()
+				.maximumSize(500L)
+				.ticker(time.toCaffeineTicker())
+				.expireAfter(new FixedLifetime())
+				.buildAsync();
+	}
+
+	/**
+	 * Adjusting a count does not extend its lifetime, so that counts are always recomputed
+	 * within the time to live
+	 *
+	 */
+	private static final class FixedLifetime implements Expiry<SelectionOrder, Integer> {
+
+		@Override
+		public long expireAfterCreate(@NonNull SelectionOrder key, @NonNull Integer value, long currentTime) {
+			return TIME_TO_LIVE.toNanos();
+		}
+
+		@Override
+		public long expireAfterUpdate(@NonNull SelectionOrder key, @NonNull Integer value,
+									  long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+
+		@Override
+		public long expireAfterRead(@NonNull SelectionOrder key, @NonNull Integer value,
+									long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+	/**
+	 * Counts the punishments matching a selection
+	 *
+	 * @param selection the selection, which must not be paginated
+	 * @return a future yielding the count
+	 */
+	ReactionStage<Integer> countNumberOfPunishments(SelectionOrder selection) {
+		return futuresFactory.copyFuture(
+				counts.get(selection, (key, executor) -> selectionImpl.countNumberOfPunishments(key))
+		);
+	}
+
+	/**
+	 * Updates counts for an enacted punishment
+	 *
+	 * @param punishment the punishment enacted
+	 */
+	public void punishmentEnacted(Punishment punishment) {
+		// Both active and historical counts increase
+		updateCounts(punishment.getType(), false, 1);
+	}
+
+	/**
+	 * Updates counts for a revoked punishment
+	 *
+	 * @param type the type of the punishment revoked
+	 */
+	public void punishmentRevoked(PunishmentType type) {
+		// Historical counts are unaffected
+		updateCounts(type, true, -1);
+	}
+
+	private void updateCounts(PunishmentType type, boolean activeOnly, int delta) {
+		for (SelectionOrder selection : counts.asMap().keySet()) {
+			if ((activeOnly && !selection.selectActiveOnly()) || !accepts(selection.getTypes(), type)) {
+				continue;
+			}
+			if (!isCountOfType(selection)) {
+				counts.asMap().remove(selection);
+				continue;
+			}
+			counts.asMap().computeIfPresent(selection, (key, futureCount) -> {
+				if (!futureCount.isDone() || futureCount.isCompletedExceptionally()) {
+					// The count being computed may or may not include this punishment
+					return null;
+				}
+				return CompletableFuture.completedFuture(Math.max(0, futureCount.join() + delta));
+			});
+		}
+	}
+
+	/**
+	 * Whether the selection matches all punishments of a single type, which is how
+	 * the banlist and mutelist select punishments
+	 *
+	 * @param selection the selection
+	 * @return true if the count can be adjusted rather than discarded
+	 */
+	private static boolean isCountOfType(SelectionOrder selection) {
+		return selection.getTypes().isSimpleEquality()
+				&& acceptsAll(selection.getVictims())
+				&& acceptsAll(selection.getOperators())
+				&& acceptsAll(selection.getScopes());
+	}
+
+	private static boolean acceptsAll(SelectionPredicate<?> predicate) {
+		return predicate.acceptedValues().isEmpty() && predicate.rejectedValues().isEmpty();
+	}
+
+	private static <U> boolean accepts(SelectionPredicate<U> predicate, U value) {
+		return (predicate.acceptedValues().isEmpty() || predicate.acceptedValues().contains(value))
+				&& !predicate.rejectedValues().contains(value);
+	}
+}
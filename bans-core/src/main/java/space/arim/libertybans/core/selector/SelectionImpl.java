@@ -19,13 +19,17 @@
 
 package space.arim.libertybans.core.selector;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.Record2;
 import org.jooq.ResultQuery;
+import org.jooq.SelectLimitStep;
 import org.jooq.impl.DSL;
 import space.arim.libertybans.api.Operator;
 import space.arim.libertybans.api.PunishmentType;
@@ -40,20 +44,22 @@ import space.arim.libertybans.core.database.sql.DeserializedVictim;
 import space.arim.libertybans.core.database.sql.EndTimeCondition;
 import space.arim.libertybans.core.database.sql.PunishmentFields;
 import space.arim.libertybans.core.database.sql.SimpleViewFields;
-import space.arim.libertybans.core.database.sql.TableForType;
 import space.arim.libertybans.core.database.sql.VictimCondition;
 import space.arim.libertybans.core.punish.PunishmentCreator;
-import space.arim.libertybans.core.schema.tables.SimpleActive;
+import space.arim.libertybans.core.schema.tables.Active;
 import space.arim.libertybans.core.schema.tables.SimpleHistory;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 @Singleton
 public class SelectionImpl {
@@ -61,15 +67,28 @@ public class SelectionImpl {
 	private final FactoryOfTheFuture futuresFactory;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
+	private final PunishmentCache punishmentCache;
 	private final Time time;
 
+	/**
+	 * For each selection, regardless of pagination, whether most punishments last selected
+	 * were already cached. If so, the selection is next made by id and completed from the cache
+	 */
+	private final Cache<SelectionOrder, Boolean> mostlyCached;
+
 	@Inject
 	public SelectionImpl(FactoryOfTheFuture futuresFactory, Provider<InternalDatabase> dbProvider,
-						 PunishmentCreator creator, Time time) {
+						 PunishmentCreator creator, PunishmentCache punishmentCache, Time time) {
 		this.futuresFactory = futuresFactory;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
+		this.punishmentCache = punishmentCache;
 		this.time = time;
+		mostlyCached = Caffeine.newBuilder()
+				.expireAfterAccess(Duration.ofMinutes(5L))
+				.maximumSize(1_000L)
+				.ticker(time.toCaffeineTicker())
+				.build();
 	}
 
 	/*
@@ -195,10 +214,11 @@ public class SelectionImpl {
 
 	private ResultQuery<org.jooq.Record> selectMatchingPunishments(SelectionOrder selection,
 																   PunishmentFields fields,
+																   List<Field<?>> columns,
 																   DSLContext context,
 																   boolean singlePunishment) {
 		var selectOrderBy = context
-				.select(getColumns(selection, fields))
+				.select(columns)
 				.from(fields.table())
 				.where(getPredication(selection, fields))
 				.orderBy(
@@ -240,7 +260,7 @@ public class SelectionImpl {
 		InternalDatabase database = dbProvider.get();
 		return database.query(SQLFunction.readOnly((context) -> {
 			PunishmentFields fields = getPunishmentFieldsToUse(selection);
-			return selectMatchingPunishments(selection, fields, context, true)
+			return selectMatchingPunishments(selection, fields, getColumns(selection, fields), context, true)
 					.fetchOne((record) -> fromRecordAndSelection(record, selection, fields));
 		}));
 	}
@@ -253,19 +273,128 @@ public class SelectionImpl {
 		InternalDatabase database = dbProvider.get();
 		return database.query(SQLFunction.readOnly((context) -> {
 			PunishmentFields fields = getPunishmentFieldsToUse(selection);
-			return selectMatchingPunishments(selection, fields, context, false)
-					.fetch((record) -> fromRecordAndSelection(record, selection, fields));
+			SelectionOrder hitRateKey = hitRateKey(selection);
+			if (mostlyCached.getIfPresent(hitRateKey) == Boolean.TRUE) {
+				List<Long> ids = selectMatchingPunishments(
+						selection, fields, List.<Field<?>>of(fields.id()), context, false
+				).fetch(fields.id());
+				return completeFromCache(context, fields, ids, hitRateKey);
+			}
+			List<Punishment> punishments = selectMatchingPunishments(
+					selection, fields, getColumns(selection, fields), context, false
+			).fetch((record) -> fromRecordAndSelection(record, selection, fields));
+			int cachedCount = 0;
+			for (Punishment punishment : punishments) {
+				if (punishmentCache.getIfPresent(punishment.getIdentifier()) == null) {
+					punishmentCache.cache(punishment);
+				} else {
+					cachedCount++;
+				}
+			}
+			updateMostlyCached(hitRateKey, cachedCount, punishments.size());
+			return punishments;
+		}));
+	}
+
+	<C> CentralisedFuture<C> getBoundaryAfterSkipping(SelectionOrder selection, int skipCount,
+													  BiFunction<Instant, Long, C> boundaryMapper) {
+		if (skipCount <= 0) {
+			throw new IllegalArgumentException("skipCount must be positive");
+		}
+		if (selectActiveKicks(selection)) {
+			// Kicks cannot possibly be active. They are all history
+			return futuresFactory.completedFuture(null);
+		}
+		InternalDatabase database = dbProvider.get();
+		return database.query(SQLFunction.readOnly((context) -> {
+			PunishmentFields fields = getPunishmentFieldsToUse(selection);
+			var selectOrderBy = context
+					.select(fields.start(), fields.id())
+					.from(fields.table())
+					.where(getPredication(selection, fields))
+					.orderBy(
+							fields.start().desc(), fields.id().desc()
+					);
+			Instant seekAfterStartTime = selection.seekAfterStartTime();
+			SelectLimitStep<Record2<Instant, Long>> query = (seekAfterStartTime.equals(Instant.EPOCH)) ?
+					selectOrderBy : selectOrderBy.seekAfter(seekAfterStartTime, selection.seekAfterId());
+			// Only the last punishment skipped is selected
+			return query
+					.offset(skipCount - 1)
+					.limit(1)
+					.fetchOne((record) -> boundaryMapper.apply(record.value1(), record.value2()));
+		}));
+	}
+
+	private List<Punishment> completeFromCache(DSLContext context, PunishmentFields fields, List<Long> ids,
+											   SelectionOrder hitRateKey) {
+		Map<Long, Punishment> punishmentsById = punishmentCache.getAllPresent(ids);
+		updateMostlyCached(hitRateKey, punishmentsById.size(), ids.size());
+		if (punishmentsById.size() != ids.size()) {
+			List<Long> uncachedIds = new ArrayList<>(ids.size() - punishmentsById.size());
+			for (Long id : ids) {
+				if (!punishmentsById.containsKey(id)) {
+					uncachedIds.add(id);
+				}
+			}
+			context
+					.select(
+							fields.id(), fields.type(),
+							fields.victimType(), fields.victimUuid(), fields.victimAddress(),
+							fields.operator(), fields.reason(),
+							fields.scope(), fields.start(), fields.end()
+					)
+					.from(fields.table())
+					.where(fields.id().in(uncachedIds))
+					.fetch(creator.punishmentMapper())
+					.forEach((punishment) -> {
+						punishmentsById.put(punishment.getIdentifier(), punishmentCache.cache(punishment));
+					});
+		}
+		List<Punishment> punishments = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			Punishment punishment = punishmentsById.get(id);
+			if (punishment != null) {
+				punishments.add(punishment);
+			}
+		}
+		return punishments;
+	}
+
+	private static SelectionOrder hitRateKey(SelectionOrder selection) {
+		// Pages of the same list share their hit rate
+		if (selection instanceof SelectionOrderImpl) {
+			return ((SelectionOrderImpl) selection).withoutPagination();
+		}
+		return selection;
+	}
+
+	private void updateMostlyCached(SelectionOrder hitRateKey, int cachedCount, int totalCount) {
+		if (totalCount != 0) {
+			mostlyCached.put(hitRateKey, cachedCount * 2 > totalCount);
+		}
+	}
+
+	CentralisedFuture<Integer> countNumberOfPunishments(SelectionOrder selection) {
+		if (selectActiveKicks(selection)) {
+			// Kicks cannot possibly be active. They are all history
+			return futuresFactory.completedFuture(0);
+		}
+		InternalDatabase database = dbProvider.get();
+		return database.query(SQLFunction.readOnly((context) -> {
+			PunishmentFields fields = getPunishmentFieldsToUse(selection);
+			return context
+					.selectCount()
+					.from(fields.table())
+					.where(getPredication(selection, fields))
+					.fetchSingle()
+					.value1();
 		}));
 	}
 
 	private PunishmentFields getPunishmentFieldsToUse(SelectionOrder selection) {
 		if (selection.selectActiveOnly()) {
-			if (selection.getTypes().isSimpleEquality()) {
-				PunishmentType type = selection.getTypes().acceptedValues().iterator().next();
-				return new TableForType(type).simpleView();
-			} else {
-				return new SimpleViewFields<>(SimpleActive.SIMPLE_ACTIVE);
-			}
+			return new SimpleViewFields<>(Active.ACTIVE);
 		} else {
 			return new SimpleViewFields<>(SimpleHistory.SIMPLE_HISTORY);
 		}
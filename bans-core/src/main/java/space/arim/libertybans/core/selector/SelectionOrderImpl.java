@@ -32,6 +32,7 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Flow;
 
 class SelectionOrderImpl implements SelectionOrder {
 
@@ -121,6 +122,44 @@ class SelectionOrderImpl implements SelectionOrder {
 		return selector.getSpecificPunishments(this);
 	}
 
+	@Override
+	public ReactionStage<Integer> countNumberOfPunishments() {
+		return selector.countNumberOfPunishments(this);
+	}
+
+	@Override
+	public Flow.Publisher<Punishment> publishAllSpecificPunishments() {
+		return selector.publishSpecificPunishments(this);
+	}
+
+	/**
+	 * Gets an equivalent selection without skip count, limit, or seek after
+	 *
+	 * @return the selection, or this selection if it is not paginated
+	 */
+	SelectionOrderImpl withoutPagination() {
+		if (skipCount == 0 && limitToRetrieve == 0 && seekAfterStartTime.equals(Instant.EPOCH)) {
+			return this;
+		}
+		return withPagination(0, 0, Instant.EPOCH, 0L);
+	}
+
+	/**
+	 * Gets an equivalent selection with different skip count, limit, and seek after
+	 *
+	 * @param skipCount the skip count
+	 * @param limitToRetrieve the limit
+	 * @param seekAfterStartTime the seek after start time
+	 * @param seekAfterId the seek after ID
+	 * @return the selection
+	 */
+	SelectionOrderImpl withPagination(int skipCount, int limitToRetrieve, Instant seekAfterStartTime, long seekAfterId) {
+		return new SelectionOrderImpl(
+				selector, types, victims, operators, scopes, selectActiveOnly,
+				skipCount, limitToRetrieve, seekAfterStartTime, seekAfterId
+		);
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
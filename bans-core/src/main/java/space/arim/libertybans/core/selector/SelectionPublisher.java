@@ -0,0 +1,226 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import space.arim.libertybans.api.punish.Punishment;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the punishments matching a selection, retrieving them in chunks as they are
+ * requested. <br>
+ * <br>
+ * Each chunk is selected by seeking after the last punishment of the previous chunk, so at most
+ * one chunk is held in memory at a time, and no database connection is held between chunks.
+ * The next chunk is not retrieved until the subscriber has requested more punishments.
+ *
+ */
+final class SelectionPublisher implements Flow.Publisher<Punishment> {
+
+	private final ChunkQuery chunkQuery;
+	private final int chunkSize;
+	private final int limitToRetrieve;
+
+	/**
+	 * Creates the publisher
+	 *
+	 * @param chunkQuery retrieves each chunk
+	 * @param chunkSize the maximum amount of punishments per chunk
+	 * @param limitToRetrieve the total amount of punishments to publish, {@code 0} for unlimited
+	 */
+	SelectionPublisher(ChunkQuery chunkQuery, int chunkSize, int limitToRetrieve) {
+		this.chunkQuery = Objects.requireNonNull(chunkQuery, "chunkQuery");
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		this.chunkSize = chunkSize;
+		this.limitToRetrieve = limitToRetrieve;
+	}
+
+	interface ChunkQuery {
+
+		/**
+		 * Retrieves a chunk of punishments
+		 *
+		 * @param lastPunishment the last punishment of the previous chunk, or null for the first chunk
+		 * @param limit the maximum amount of punishments to retrieve
+		 * @return a future yielding the punishments
+		 */
+		CompletionStage<List<Punishment>> fetchChunk(@Nullable Punishment lastPunishment, int limit);
+
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Punishment> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		subscriber.onSubscribe(new ChunkSubscription(subscriber));
+	}
+
+	private final class ChunkSubscription implements Flow.Subscription {
+
+		private final Flow.Subscriber<? super Punishment> subscriber;
+
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile boolean cancelled;
+
+		/*
+		 * Fields written by chunk retrieval and read by the drain loop
+		 */
+		private volatile List<Punishment> fetchedChunk;
+		private volatile Throwable fetchError;
+		private volatile boolean fetching;
+
+		/*
+		 * Fields accessed only within the drain loop
+		 */
+		private final Queue<Punishment> buffer = new ArrayDeque<>();
+		private Punishment lastPunishment;
+		private int retrieved;
+		private int pendingLimit;
+		private boolean exhausted;
+		private boolean done;
+
+		ChunkSubscription(Flow.Subscriber<? super Punishment> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				fetchError = new IllegalArgumentException("Requested amount must be positive, got " + n);
+			} else {
+				requested.getAndUpdate((current) -> {
+					long sum = current + n;
+					// Saturate on overflow
+					return (sum < 0) ? Long.MAX_VALUE : sum;
+				});
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			drain();
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				drainLoop();
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void drainLoop() {
+			while (!done) {
+				if (cancelled) {
+					done = true;
+					buffer.clear();
+					return;
+				}
+				// Read 'fetching' first, since retrieval writes its result before clearing it
+				boolean fetching = this.fetching;
+				Throwable fetchError = this.fetchError;
+				if (fetchError != null) {
+					done = true;
+					buffer.clear();
+					subscriber.onError(fetchError);
+					return;
+				}
+				List<Punishment> fetchedChunk = this.fetchedChunk;
+				if (fetchedChunk != null) {
+					this.fetchedChunk = null;
+					retrieved += fetchedChunk.size();
+					if (fetchedChunk.size() < pendingLimit) {
+						// A shorter chunk than requested means there are no more punishments
+						exhausted = true;
+					}
+					buffer.addAll(fetchedChunk);
+				}
+				Punishment next = buffer.peek();
+				if (next != null) {
+					if (requested.get() == 0L) {
+						return;
+					}
+					buffer.poll();
+					requested.decrementAndGet();
+					lastPunishment = next;
+					subscriber.onNext(next);
+					continue;
+				}
+				if (fetching) {
+					return;
+				}
+				if (exhausted) {
+					done = true;
+					subscriber.onComplete();
+					return;
+				}
+				if (requested.get() == 0L) {
+					return;
+				}
+				fetchNextChunk();
+			}
+		}
+
+		private void fetchNextChunk() {
+			int limit = chunkSize;
+			if (limitToRetrieve != 0) {
+				limit = Math.min(limit, limitToRetrieve - retrieved);
+			}
+			if (limit <= 0) {
+				exhausted = true;
+				return;
+			}
+			pendingLimit = limit;
+			fetching = true;
+			CompletionStage<List<Punishment>> futureChunk;
+			try {
+				futureChunk = chunkQuery.fetchChunk(lastPunishment, limit);
+			} catch (RuntimeException ex) {
+				fetchError = ex;
+				fetching = false;
+				return;
+			}
+			futureChunk.whenComplete((chunk, ex) -> {
+				if (ex != null) {
+					fetchError = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+				} else {
+					fetchedChunk = chunk;
+				}
+				fetching = false;
+				drain();
+			});
+		}
+	}
+}
@@ -19,10 +19,14 @@
 
 package space.arim.libertybans.core.selector;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.function.BiFunction;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
@@ -45,12 +49,16 @@ public class SelectorImpl implements InternalSelector {
 	private final IDImpl idImpl;
 	private final ApplicableImpl applicableImpl;
 	private final Gatekeeper gatekeeper;
+	private final PunishmentCounts punishmentCounts;
 	private final Provider<MuteCache> muteCache;
 
+	private static final int PUBLISHER_CHUNK_SIZE = 500;
+
 	@Inject
 	public SelectorImpl(SelectionImpl selectionImpl, IDImpl idImpl, ApplicableImpl applicableImpl,
-						Gatekeeper gatekeeper, Provider<MuteCache> muteCache) {
+						Gatekeeper gatekeeper, PunishmentCounts punishmentCounts, Provider<MuteCache> muteCache) {
 		this.selectionImpl = selectionImpl;
+		this.punishmentCounts = punishmentCounts;
 		this.idImpl = idImpl;
 		this.applicableImpl = applicableImpl;
 		this.gatekeeper = gatekeeper;
@@ -76,6 +84,32 @@ public class SelectorImpl implements InternalSelector {
 		return selectionImpl.getSpecificPunishments(selection);
 	}
 
+	@Override
+	public <C> CentralisedFuture<C> getBoundaryAfterSkipping(SelectionOrder selection, int skipCount,
+															 BiFunction<Instant, Long, C> boundaryMapper) {
+		return selectionImpl.getBoundaryAfterSkipping(selection, skipCount, boundaryMapper);
+	}
+
+	Flow.Publisher<Punishment> publishSpecificPunishments(SelectionOrderImpl selection) {
+		return new SelectionPublisher((lastPunishment, limit) -> {
+			SelectionOrder chunk;
+			if (lastPunishment == null) {
+				chunk = selection.withPagination(
+						selection.skipCount(), limit, selection.seekAfterStartTime(), selection.seekAfterId()
+				);
+			} else {
+				chunk = selection.withPagination(
+						0, limit, lastPunishment.getStartDate(), lastPunishment.getIdentifier()
+				);
+			}
+			return selectionImpl.getSpecificPunishments(chunk);
+		}, PUBLISHER_CHUNK_SIZE, selection.limitToRetrieve());
+	}
+
+	ReactionStage<Integer> countNumberOfPunishments(SelectionOrderImpl selection) {
+		return punishmentCounts.countNumberOfPunishments(selection.withoutPagination());
+	}
+
 	/*
 	 * 
 	 * ID related methods
@@ -118,6 +152,12 @@ public class SelectorImpl implements InternalSelector {
 		return applicableImpl.getApplicablePunishment(uuid, address, type).thenApply(Optional::ofNullable);
 	}
 
+	@Override
+	public ReactionStage<Map<UUID, Punishment>> getApplicablePunishments(Map<UUID, NetworkAddress> players,
+																		 PunishmentType type) {
+		return applicableImpl.getApplicablePunishments(players, type);
+	}
+
 	@Override
 	public ReactionStage<Optional<Punishment>> getCachedMute(UUID uuid, NetworkAddress address) {
 		Objects.requireNonNull(uuid, "uuid");
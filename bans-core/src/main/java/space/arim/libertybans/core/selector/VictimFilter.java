@@ -0,0 +1,463 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.sql.EndTimeCondition;
+import space.arim.libertybans.core.punish.MiscUtil;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.DelayCalculators;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static space.arim.libertybans.core.schema.tables.Active.ACTIVE;
+
+/**
+ * Filter over the uuids and addresses of active ban and mute victims, used to skip
+ * queries for players who are definitely not banned or muted. <br>
+ * <br>
+ * The filter is built at startup and periodically rebuilt to purge expired punishments.
+ * Between rebuilds it is kept current as punishments are enacted and undone.
+ *
+ */
+@Singleton
+public final class VictimFilter implements Part {
+
+	private final Configs configs;
+	private final EnhancedExecutor enhancedExecutor;
+	private final Provider<InternalDatabase> dbProvider;
+	private final PunishmentCreator creator;
+	private final Time time;
+
+	private volatile Filters filters;
+	/**
+	 * Changes made while the filter is being rebuilt. Guarded by {@code this}
+	 */
+	private List<Consumer<Filters>> pendingChanges;
+	private ScheduledTask rebuildTask;
+
+	private final LongAdder possibleMatches = new LongAdder();
+	private final LongAdder falsePositives = new LongAdder();
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public VictimFilter(Configs configs, EnhancedExecutor enhancedExecutor, Provider<InternalDatabase> dbProvider,
+						PunishmentCreator creator, Time time) {
+		this.configs = configs;
+		this.enhancedExecutor = enhancedExecutor;
+		this.dbProvider = dbProvider;
+		this.creator = creator;
+		this.time = time;
+	}
+
+	@Override
+	public void startup() {
+		SqlConfig.VictimFilter config = configs.getSqlConfig().victimFilter();
+		if (!config.enable()) {
+			return;
+		}
+		rebuild();
+		Duration rebuildInterval = Duration.ofMinutes(config.rebuildIntervalMinutes());
+		rebuildTask = enhancedExecutor.scheduleRepeating(
+				this::rebuild, rebuildInterval, DelayCalculators.fixedDelay());
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		if (rebuildTask != null) {
+			rebuildTask.cancel();
+			rebuildTask = null;
+		}
+		filters = null;
+		pendingChanges = null;
+	}
+
+	private void rebuild() {
+		synchronized (this) {
+			if (pendingChanges != null) {
+				// Already rebuilding
+				return;
+			}
+			pendingChanges = new ArrayList<>();
+		}
+		double falsePositiveRate = configs.getSqlConfig().victimFilter().falsePositiveRate();
+		// The filter must include every committed punishment, so the replica is not used
+		dbProvider.get().query(SQLFunction.readOnly(SQLFunction.Staleness.NONE, (context) -> {
+			return context
+					.select(
+							ACTIVE.ID, ACTIVE.TYPE,
+							ACTIVE.VICTIM_TYPE, ACTIVE.VICTIM_UUID, ACTIVE.VICTIM_ADDRESS,
+							ACTIVE.OPERATOR, ACTIVE.REASON,
+							ACTIVE.SCOPE, ACTIVE.START, ACTIVE.END
+					)
+					.from(ACTIVE)
+					.where(ACTIVE.TYPE.in(PunishmentType.BAN, PunishmentType.MUTE))
+					.and(new EndTimeCondition(ACTIVE.END).isNotExpired(time.currentTimestamp()))
+					.fetch(creator.punishmentMapper());
+		})).thenAccept((punishments) -> {
+			// Leave room for growth between rebuilds
+			Filters rebuilt = new Filters(Math.max(1024, punishments.size() * 2), falsePositiveRate);
+			for (Punishment punishment : punishments) {
+				rebuilt.add(punishment);
+			}
+			synchronized (this) {
+				if (pendingChanges == null) {
+					// Shut down while rebuilding
+					return;
+				}
+				for (Consumer<Filters> change : pendingChanges) {
+					change.accept(rebuilt);
+				}
+				pendingChanges = null;
+				filters = rebuilt;
+			}
+			logger.debug("Rebuilt victim filter with {} active bans and mutes", punishments.size());
+		}).exceptionally((ex) -> {
+			synchronized (this) {
+				pendingChanges = null;
+			}
+			logger.warn("Failed to rebuild the victim filter", ex);
+			return null;
+		});
+	}
+
+	/**
+	 * The answer of the filter as to whether a player might have an applicable punishment
+	 *
+	 */
+	public enum Answer {
+		/**
+		 * The player definitely has no applicable punishment
+		 */
+		NOT_PUNISHED,
+		/**
+		 * The filter matched the player, who might have an applicable punishment
+		 */
+		MAYBE_PUNISHED,
+		/**
+		 * The filter did not match the player, but cannot rule out a punishment at the
+		 * address strictness, since it does not know the player's other addresses or accounts
+		 */
+		NOT_EXCLUDED,
+		/**
+		 * The filter is not loaded or does not cover the punishment type
+		 */
+		UNKNOWN;
+
+		/**
+		 * Whether the player might have an applicable punishment, and so must be checked
+		 *
+		 * @return false if there is definitely no applicable punishment, true otherwise
+		 */
+		public boolean mightBePunished() {
+			return this != NOT_PUNISHED;
+		}
+	}
+
+	/**
+	 * Determines whether a player might have an applicable punishment. If the answer is
+	 * {@link Answer#NOT_PUNISHED}, the player definitely has no applicable punishment of the given type.
+	 *
+	 * @param type the punishment type, BAN or MUTE
+	 * @param uuid the player's uuid
+	 * @param address the player's current address
+	 * @param strictness the address strictness
+	 * @return the answer of the filter
+	 */
+	public Answer check(PunishmentType type, UUID uuid, NetworkAddress address, AddressStrictness strictness) {
+		Answer answer = checkUnrecorded(type, uuid, address, strictness);
+		if (answer == Answer.MAYBE_PUNISHED) {
+			possibleMatches.increment();
+		}
+		return answer;
+	}
+
+	/**
+	 * Same as {@link #check(PunishmentType, UUID, NetworkAddress, AddressStrictness)}, but the answer
+	 * does not count toward the false positive rate. For lookups whose outcome is not recorded
+	 *
+	 * @param type the punishment type, BAN or MUTE
+	 * @param uuid the player's uuid
+	 * @param address the player's current address
+	 * @param strictness the address strictness
+	 * @return the answer of the filter
+	 */
+	Answer checkUnrecorded(PunishmentType type, UUID uuid, NetworkAddress address, AddressStrictness strictness) {
+		Filters filters = this.filters;
+		if (filters == null) {
+			return Answer.UNKNOWN;
+		}
+		TypeFilter typeFilter = filters.forType(type);
+		if (typeFilter == null) {
+			return Answer.UNKNOWN;
+		}
+		boolean matched;
+		boolean excluded;
+		switch (strictness) {
+		case LENIENT:
+			matched = typeFilter.mightContain(uuid) || typeFilter.mightContain(address);
+			excluded = !matched;
+			break;
+		case NORMAL:
+			// Past addresses are unknown, so a negative answer requires no address punishments at all
+			matched = typeFilter.mightContain(uuid);
+			excluded = !matched && !typeFilter.hasAddressMembers();
+			break;
+		case STRICT:
+			// Linked accounts are unknown, so a negative answer requires no punishments at all
+			matched = false;
+			excluded = typeFilter.isEmpty();
+			break;
+		default:
+			throw MiscUtil.unknownAddressStrictness(strictness);
+		}
+		if (matched) {
+			return Answer.MAYBE_PUNISHED;
+		}
+		return (excluded) ? Answer.NOT_PUNISHED : Answer.NOT_EXCLUDED;
+	}
+
+	/**
+	 * Records that a player turned out not to be punished. Counts as a false positive
+	 * only if the filter matched the player.
+	 *
+	 * @param answer the answer previously given by {@link #check(PunishmentType, UUID, NetworkAddress, AddressStrictness)}
+	 */
+	public void recordNotPunished(Answer answer) {
+		if (answer == Answer.MAYBE_PUNISHED) {
+			falsePositives.increment();
+		}
+	}
+
+	/**
+	 * Gets the measured rate at which possible matches turned out not to be punished
+	 *
+	 * @return the false positive rate, between 0 and 1
+	 */
+	public double falsePositiveRate() {
+		long possibleMatches = this.possibleMatches.sum();
+		if (possibleMatches == 0) {
+			return 0D;
+		}
+		return ((double) falsePositives.sum()) / possibleMatches;
+	}
+
+	/**
+	 * Adds a punishment to the filter if it is a ban or mute
+	 *
+	 * @param punishment the punishment enacted
+	 */
+	public void punishmentEnacted(Punishment punishment) {
+		PunishmentType type = punishment.getType();
+		if (type == PunishmentType.BAN || type == PunishmentType.MUTE) {
+			applyChange((filters) -> filters.add(punishment));
+		}
+	}
+
+	/**
+	 * Removes a punishment from the filter, if present
+	 *
+	 * @param id the id of the punishment undone
+	 */
+	public void punishmentRevoked(long id) {
+		applyChange((filters) -> filters.remove(id));
+	}
+
+	private synchronized void applyChange(Consumer<Filters> change) {
+		Filters filters = this.filters;
+		if (filters != null) {
+			change.accept(filters);
+		}
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+
+	private static long hash(UUID uuid) {
+		return mix(uuid.getMostSignificantBits() ^ mix(uuid.getLeastSignificantBits()));
+	}
+
+	private static long hash(NetworkAddress address) {
+		long hash = 0x9E3779B97F4A7C15L;
+		for (byte b : address.getRawAddress()) {
+			hash = (hash ^ b) * 0x100000001B3L;
+		}
+		return mix(hash);
+	}
+
+	// SplitMix64 finalizer
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	private static final class Filters {
+
+		private final TypeFilter bans;
+		private final TypeFilter mutes;
+
+		Filters(int expectedElements, double falsePositiveRate) {
+			bans = new TypeFilter(expectedElements, falsePositiveRate);
+			mutes = new TypeFilter(expectedElements, falsePositiveRate);
+		}
+
+		TypeFilter forType(PunishmentType type) {
+			switch (type) {
+			case BAN:
+				return bans;
+			case MUTE:
+				return mutes;
+			default:
+				return null;
+			}
+		}
+
+		void add(Punishment punishment) {
+			forType(punishment.getType()).add(punishment.getIdentifier(), punishment.getVictim());
+		}
+
+		void remove(long id) {
+			if (!bans.remove(id)) {
+				mutes.remove(id);
+			}
+		}
+	}
+
+	private static final class TypeFilter {
+
+		private final CountingBloomFilter filter;
+		/**
+		 * Members by punishment id. Ensures only present elements are removed
+		 */
+		private final Map<Long, Member> members = new HashMap<>();
+		private volatile int memberCount;
+		private volatile int addressMemberCount;
+
+		TypeFilter(int expectedElements, double falsePositiveRate) {
+			filter = new CountingBloomFilter(expectedElements, falsePositiveRate);
+		}
+
+		boolean mightContain(UUID uuid) {
+			return filter.mightContain(hash(uuid));
+		}
+
+		boolean mightContain(NetworkAddress address) {
+			return filter.mightContain(hash(address));
+		}
+
+		boolean isEmpty() {
+			return memberCount == 0;
+		}
+
+		boolean hasAddressMembers() {
+			return addressMemberCount != 0;
+		}
+
+		void add(long id, Victim victim) {
+			if (members.containsKey(id)) {
+				return;
+			}
+			Member member;
+			switch (victim.getType()) {
+			case PLAYER:
+				member = new Member(false, hash(((PlayerVictim) victim).getUUID()));
+				break;
+			case ADDRESS:
+				member = new Member(true, hash(((AddressVictim) victim).getAddress()));
+				break;
+			case COMPOSITE:
+				CompositeVictim compositeVictim = (CompositeVictim) victim;
+				member = new Member(true, hash(compositeVictim.getUUID()), hash(compositeVictim.getAddress()));
+				break;
+			default:
+				throw MiscUtil.unknownVictimType(victim.getType());
+			}
+			for (long hash : member.hashes) {
+				filter.add(hash);
+			}
+			members.put(id, member);
+			memberCount = members.size();
+			if (member.hasAddress) {
+				addressMemberCount++;
+			}
+		}
+
+		boolean remove(long id) {
+			Member member = members.remove(id);
+			if (member == null) {
+				return false;
+			}
+			for (long hash : member.hashes) {
+				filter.remove(hash);
+			}
+			memberCount = members.size();
+			if (member.hasAddress) {
+				addressMemberCount--;
+			}
+			return true;
+		}
+	}
+
+	private static final class Member {
+
+		final boolean hasAddress;
+		final long[] hashes;
+
+		Member(boolean hasAddress, long...hashes) {
+			this.hasAddress = hasAddress;
+			this.hashes = hashes;
+		}
+	}
+
+}
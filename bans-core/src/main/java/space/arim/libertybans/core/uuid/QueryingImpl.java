@@ -23,7 +23,11 @@ import java.util.UUID;
 
 import jakarta.inject.Provider;
 
+import org.jooq.Record1;
+import org.jooq.ResultQuery;
+import org.jooq.impl.DSL;
 import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.jooq.PreRenderedQuery;
 import space.arim.libertybans.core.env.UUIDAndAddress;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
@@ -38,6 +42,26 @@ class QueryingImpl {
 
 	private final Provider<InternalDatabase> dbProvider;
 
+	private static final PreRenderedQuery<ResultQuery<Record1<UUID>>> SELECT_UUID_BY_NAME =
+			PreRenderedQuery.resultQuery((context) -> {
+				return context
+						.select(NAMES.UUID)
+						.from(NAMES)
+						.where(NAMES.LOWER_NAME.eq(lower(DSL.param("name", NAMES.NAME))))
+						.orderBy(NAMES.UPDATED.desc())
+						.limit(1);
+			}, "name");
+
+	private static final PreRenderedQuery<ResultQuery<Record1<String>>> SELECT_NAME_BY_UUID =
+			PreRenderedQuery.resultQuery((context) -> {
+				return context
+						.select(NAMES.NAME)
+						.from(NAMES)
+						.where(NAMES.UUID.eq(DSL.param("uuid", NAMES.UUID)))
+						.orderBy(NAMES.UPDATED.desc())
+						.limit(1);
+			}, "uuid");
+
 	QueryingImpl(Provider<InternalDatabase> dbProvider) {
 		this.dbProvider = dbProvider;
 	}
@@ -45,12 +69,8 @@ class QueryingImpl {
 	CentralisedFuture<UUID> resolve(String name) {
 		InternalDatabase database = dbProvider.get();
 		return database.query(SQLFunction.readOnly((context) -> {
-			return context
-					.select(NAMES.UUID)
-					.from(NAMES)
-					.where(NAMES.LOWER_NAME.eq(lower(name)))
-					.orderBy(NAMES.UPDATED.desc())
-					.limit(1)
+			return SELECT_UUID_BY_NAME
+					.bind(context, name)
 					.fetchOne(NAMES.UUID);
 		}));
 	}
@@ -58,12 +78,8 @@ class QueryingImpl {
 	CentralisedFuture<String> resolve(UUID uuid) {
 		InternalDatabase database = dbProvider.get();
 		return database.query(SQLFunction.readOnly((context) -> {
-			return context
-					.select(NAMES.NAME)
-					.from(NAMES)
-					.where(NAMES.UUID.eq(uuid))
-					.orderBy(NAMES.UPDATED.desc())
-					.limit(1)
+			return SELECT_NAME_BY_UUID
+					.bind(context, uuid)
 					.fetchOne(NAMES.NAME);
 		}));
 	}
@@ -0,0 +1,31 @@
+
+-- Active punishments, denormalised
+-- Holds the same rows as the simple_active view, without requiring joins.
+-- Maintained alongside the bans, mutes, and warns tables.
+
+CREATE TABLE "${tableprefix}active" (
+  "id" BIGINT NOT NULL,
+  "type" SMALLINT NOT NULL,
+  "victim_type" SMALLINT NOT NULL,
+  "victim_uuid" ${uuidtype} NOT NULL,
+  "victim_address" ${inettype} NOT NULL,
+  "operator" ${uuidtype} NOT NULL,
+  "reason" CHARACTER VARYING(256) NOT NULL,
+  "scope" CHARACTER VARYING(32) NOT NULL,
+  "start" BIGINT NOT NULL,
+  "end" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}active_id_uniqueness" UNIQUE ("id"),
+  CONSTRAINT "${tableprefix}active_id_validity" FOREIGN KEY ("id") REFERENCES "${tableprefix}punishments" ("id") ON DELETE CASCADE,
+  CONSTRAINT "${tableprefix}active_type_validity" CHECK ("type" >= 0 AND "type" <= 2),
+  CONSTRAINT "${tableprefix}active_victim_type_validity" CHECK ("victim_type" >= 0 AND "victim_type" <= 2)
+)${extratableoptions};
+
+CREATE INDEX "${tableprefix}active_victim_uuid_index" ON "${tableprefix}active" ("victim_uuid");
+CREATE INDEX "${tableprefix}active_victim_address_index" ON "${tableprefix}active" ("victim_address");
+CREATE INDEX "${tableprefix}active_start_index" ON "${tableprefix}active" ("start");
+CREATE INDEX "${tableprefix}active_end_index" ON "${tableprefix}active" ("end");
+
+INSERT INTO "${tableprefix}active"
+  ("id", "type", "victim_type", "victim_uuid", "victim_address", "operator", "reason", "scope", "start", "end")
+  SELECT "id", "type", "victim_type", "victim_uuid", "victim_address", "operator", "reason", "scope", "start", "end"
+  FROM "${tableprefix}simple_active";
@@ -0,0 +1,24 @@
+
+-- Most recent name of each player
+-- Replaces the latest_names view, whose exclusive outer join grows with the length of name history.
+-- Maintained whenever names are associated.
+
+DROP VIEW "${tableprefix}latest_names";
+
+CREATE TABLE "${tableprefix}latest_names" (
+  "uuid" ${uuidtype} NOT NULL,
+  "name" CHARACTER VARYING(16) NOT NULL,
+  "updated" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}latest_name_uuid_uniqueness" UNIQUE ("uuid")
+)${extratableoptions};
+
+-- Names sharing the most recent time are tied; keep one of them
+
+INSERT INTO "${tableprefix}latest_names" ("uuid", "name", "updated")
+  SELECT "names1"."uuid", MIN("names1"."name"), "names1"."updated"
+  FROM "${tableprefix}names" "names1"
+  LEFT JOIN "${tableprefix}names" "names2"
+  ON "names1"."uuid" = "names2"."uuid"
+  AND "names1"."updated" < "names2"."updated"
+  WHERE "names2"."uuid" IS NULL
+  GROUP BY "names1"."uuid", "names1"."updated";
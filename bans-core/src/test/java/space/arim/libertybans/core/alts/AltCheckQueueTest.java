@@ -0,0 +1,170 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.alts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.MainConfig;
+import space.arim.libertybans.core.selector.EnforcementConfig;
+import space.arim.libertybans.core.selector.LoginLatency;
+import space.arim.libertybans.core.service.SettableTimeImpl;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static space.arim.libertybans.it.util.RandomUtil.randomAddress;
+
+public class AltCheckQueueTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final EnforcementConfig.AltsAutoShow config = mock(EnforcementConfig.AltsAutoShow.class);
+	private final EnhancedExecutor enhancedExecutor = mock(EnhancedExecutor.class);
+	private final AltDetection altDetection = mock(AltDetection.class);
+	private final AltNotification altNotification = mock(AltNotification.class);
+	private AltCheckQueue altCheckQueue;
+
+	@BeforeEach
+	public void setAltCheckQueue() {
+		Configs configs = mock(Configs.class);
+		MainConfig mainConfig = mock(MainConfig.class);
+		EnforcementConfig enforcementConfig = mock(EnforcementConfig.class);
+		when(configs.getMainConfig()).thenReturn(mainConfig);
+		when(mainConfig.enforcement()).thenReturn(enforcementConfig);
+		when(enforcementConfig.altsAutoShow()).thenReturn(config);
+		when(config.enable()).thenReturn(true);
+		when(config.showWhichAlts()).thenReturn(WhichAlts.ALL_ALTS);
+		when(config.maxChecksPerSecond()).thenReturn(2);
+		when(config.maxPendingChecks()).thenReturn(3);
+
+		LoginLatency loginLatency = new LoginLatency(new SettableTimeImpl(Instant.parse("2022-01-01T00:00:00Z")));
+		altCheckQueue = new AltCheckQueue(configs, enhancedExecutor, altDetection, altNotification, loginLatency);
+	}
+
+	private Runnable startAndGetDrainTask() {
+		altCheckQueue.startup();
+		ArgumentCaptor<Runnable> drainTask = ArgumentCaptor.forClass(Runnable.class);
+		verify(enhancedExecutor).scheduleRepeating(drainTask.capture(), any(), any());
+		return drainTask.getValue();
+	}
+
+	private CentralisedFuture<List<DetectedAlt>> altsFound(UUID uuid, NetworkAddress address) {
+		CentralisedFuture<List<DetectedAlt>> future = futuresFactory.newIncompleteFuture();
+		when(altDetection.detectAlts(uuid, address, WhichAlts.ALL_ALTS)).thenReturn(future);
+		return future;
+	}
+
+	@Test
+	public void disabled() {
+		when(config.enable()).thenReturn(false);
+		altCheckQueue.startup();
+		altCheckQueue.queueCheck(UUID.randomUUID(), "name", randomAddress());
+		verifyNoInteractions(enhancedExecutor, altDetection);
+	}
+
+	@Test
+	public void checkAndNotify() {
+		Runnable drain = startAndGetDrainTask();
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		CentralisedFuture<List<DetectedAlt>> alts = altsFound(uuid, address);
+		altCheckQueue.queueCheck(uuid, "name", address);
+		verifyNoInteractions(altDetection);
+
+		drain.run();
+		verify(altDetection).detectAlts(uuid, address, WhichAlts.ALL_ALTS);
+		alts.complete(List.of());
+		verify(altNotification).notifyFoundAlts(uuid, "name", address, List.of());
+	}
+
+	@Test
+	public void coalesceSameAddress() {
+		Runnable drain = startAndGetDrainTask();
+		NetworkAddress address = randomAddress();
+		UUID firstUuid = UUID.randomUUID();
+		UUID latestUuid = UUID.randomUUID();
+		altsFound(latestUuid, address);
+		altCheckQueue.queueCheck(firstUuid, "first", address);
+		altCheckQueue.queueCheck(latestUuid, "latest", address);
+
+		drain.run();
+		verify(altDetection, never()).detectAlts(eq(firstUuid), any(), any());
+		verify(altDetection).detectAlts(latestUuid, address, WhichAlts.ALL_ALTS);
+	}
+
+	@Test
+	public void limitChecksPerSecondIncludingInFlight() {
+		Runnable drain = startAndGetDrainTask();
+		UUID[] uuids = new UUID[3];
+		NetworkAddress[] addresses = new NetworkAddress[3];
+		List<CentralisedFuture<List<DetectedAlt>>> futures = new ArrayList<>();
+		for (int n = 0; n < 3; n++) {
+			uuids[n] = UUID.randomUUID();
+			addresses[n] = randomAddress();
+			futures.add(altsFound(uuids[n], addresses[n]));
+			altCheckQueue.queueCheck(uuids[n], "name" + n, addresses[n]);
+		}
+		drain.run();
+		verify(altDetection).detectAlts(uuids[0], addresses[0], WhichAlts.ALL_ALTS);
+		verify(altDetection).detectAlts(uuids[1], addresses[1], WhichAlts.ALL_ALTS);
+		verify(altDetection, never()).detectAlts(eq(uuids[2]), any(), any());
+
+		// Both checks are still in flight
+		drain.run();
+		verify(altDetection, never()).detectAlts(eq(uuids[2]), any(), any());
+
+		futures.get(0).complete(List.of());
+		drain.run();
+		verify(altDetection).detectAlts(uuids[2], addresses[2], WhichAlts.ALL_ALTS);
+	}
+
+	@Test
+	public void skipBeyondMaxPending() {
+		Runnable drain = startAndGetDrainTask();
+		when(config.maxChecksPerSecond()).thenReturn(10);
+		UUID skipped = UUID.randomUUID();
+		for (int n = 0; n < 3; n++) {
+			UUID uuid = UUID.randomUUID();
+			NetworkAddress address = randomAddress();
+			altsFound(uuid, address);
+			altCheckQueue.queueCheck(uuid, "name" + n, address);
+		}
+		altCheckQueue.queueCheck(skipped, "skipped", randomAddress());
+
+		drain.run();
+		verify(altDetection, times(3)).detectAlts(any(UUID.class), any(), any());
+		verify(altDetection, never()).detectAlts(eq(skipped), any(), any());
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.alts;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JoinWindowTest {
+
+	private final JoinWindow window = new JoinWindow(3);
+
+	@Test
+	public void countWithinDuration() {
+		window.record(1L, 100L, 3);
+		window.record(2L, 200L, 3);
+		window.record(3L, 300L, 3);
+		assertEquals(3, window.countSince(100L));
+		assertEquals(2, window.countSince(150L));
+		assertEquals(0, window.countSince(301L));
+	}
+
+	@Test
+	public void samePlayerCountedOnce() {
+		window.record(1L, 100L, 3);
+		window.record(1L, 200L, 3);
+		window.record(1L, 150L, 3);
+		assertEquals(1, window.countSince(0L));
+		assertEquals(1, window.countSince(200L));
+	}
+
+	@Test
+	public void oldestOverwrittenWhenFull() {
+		window.record(1L, 300L, 3);
+		window.record(2L, 100L, 3);
+		window.record(3L, 200L, 3);
+		window.record(4L, 400L, 3);
+		assertEquals(3, window.countSince(0L));
+		assertEquals(3, window.countSince(200L));
+	}
+
+	@Test
+	public void olderJoinIgnoredWhenFull() {
+		window.record(1L, 200L, 3);
+		window.record(2L, 300L, 3);
+		window.record(3L, 400L, 3);
+		window.record(4L, 100L, 3);
+		assertEquals(3, window.countSince(200L));
+	}
+
+	@Test
+	public void resizeKeepsMostRecent() {
+		window.record(1L, 100L, 3);
+		window.record(2L, 300L, 3);
+		window.record(3L, 200L, 3);
+		window.record(4L, 400L, 2);
+		assertEquals(2, window.countSince(0L));
+		assertEquals(2, window.countSince(300L));
+	}
+}
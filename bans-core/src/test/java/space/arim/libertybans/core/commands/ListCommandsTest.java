@@ -24,10 +24,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import space.arim.libertybans.api.select.PunishmentSelector;
 import space.arim.libertybans.core.commands.extra.TabCompletion;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.env.CmdSender;
+import space.arim.libertybans.core.selector.InternalSelector;
 
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -40,11 +40,11 @@ import static org.mockito.Mockito.when;
 public class ListCommandsTest {
 
 	private ListCommands listCommands;
-	private final PunishmentSelector selector;
+	private final InternalSelector selector;
 	private final InternalFormatter formatter;
 	private final TabCompletion tabCompletion;
 
-	public ListCommandsTest(@Mock PunishmentSelector selector, @Mock InternalFormatter formatter,
+	public ListCommandsTest(@Mock InternalSelector selector, @Mock InternalFormatter formatter,
 							@Mock TabCompletion tabCompletion) {
 		this.selector = selector;
 		this.formatter = formatter;
@@ -53,7 +53,7 @@ public class ListCommandsTest {
 
 	@BeforeEach
 	public void setListCommands(AbstractSubCommandGroup.Dependencies dependencies) {
-		listCommands = new ListCommands(dependencies, selector, formatter, tabCompletion);
+		listCommands = new ListCommands(dependencies, selector, formatter, tabCompletion, new PageCursors());
 	}
 
 	@Test
@@ -0,0 +1,132 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.commands;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.api.PlayerOperator;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.select.SelectionOrder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PageCursorsTest {
+
+	private final PageCursors pageCursors = new PageCursors();
+	private final Operator sender = ConsoleOperator.INSTANCE;
+	private final SelectionOrder selection = mock(SelectionOrder.class);
+
+	private static final int PER_PAGE = 5;
+
+	/**
+	 * Creates punishments in descending order, as a list command shows them
+	 *
+	 * @param amount the amount of punishments
+	 * @param firstId the id of the first punishment
+	 * @return the punishments
+	 */
+	private static List<Punishment> punishments(int amount, long firstId) {
+		List<Punishment> punishments = new ArrayList<>(amount);
+		for (int n = 0; n < amount; n++) {
+			long id = firstId - n;
+			Punishment punishment = mock(Punishment.class);
+			when(punishment.getIdentifier()).thenReturn(id);
+			when(punishment.getStartDate()).thenReturn(Instant.ofEpochSecond(id));
+			punishments.add(punishment);
+		}
+		return punishments;
+	}
+
+	private PageCursors.KnownPage nearest(int page) {
+		return pageCursors.nearestKnownPage(sender, selection, PER_PAGE, page);
+	}
+
+	@Test
+	public void firstPageAlwaysKnown() {
+		PageCursors.KnownPage knownPage = nearest(40);
+		assertEquals(1, knownPage.page());
+		assertNull(knownPage.cursor());
+	}
+
+	@Test
+	public void recordNextPage() {
+		pageCursors.recordPages(sender, selection, PER_PAGE, 1, punishments(PER_PAGE, 100L));
+		PageCursors.KnownPage knownPage = nearest(2);
+		assertEquals(2, knownPage.page());
+		assertNotNull(knownPage.cursor());
+		assertEquals(96L, knownPage.cursor().id());
+		assertEquals(Instant.ofEpochSecond(96L), knownPage.cursor().startTime());
+	}
+
+	@Test
+	public void partialPageNotRecorded() {
+		pageCursors.recordPages(sender, selection, PER_PAGE, 1, punishments(PER_PAGE - 1, 100L));
+		assertEquals(1, nearest(2).page());
+	}
+
+	@Test
+	public void walkRecordsIntermediatePages() {
+		// Pages 3 through 6, the last of which is partial
+		pageCursors.recordPages(sender, selection, PER_PAGE, 3, punishments(PER_PAGE * 3 + 2, 90L));
+		assertEquals(1, nearest(3).page());
+		for (int page = 4; page <= 6; page++) {
+			PageCursors.KnownPage knownPage = nearest(page);
+			assertEquals(page, knownPage.page());
+			assertEquals(90L - PER_PAGE * (page - 3) + 1, knownPage.cursor().id());
+		}
+		assertEquals(6, nearest(7).page());
+	}
+
+	@Test
+	public void nearestPrecedingPage() {
+		pageCursors.recordPages(sender, selection, PER_PAGE, 1, punishments(PER_PAGE, 100L));
+		pageCursors.recordPages(sender, selection, PER_PAGE, 10, punishments(PER_PAGE, 50L));
+		assertEquals(1, nearest(1).page());
+		assertEquals(2, nearest(2).page());
+		assertEquals(2, nearest(10).page());
+		assertEquals(11, nearest(11).page());
+		assertEquals(11, nearest(40).page());
+	}
+
+	@Test
+	public void separatedBySenderAndPageSize() {
+		pageCursors.recordPages(sender, selection, PER_PAGE, 1, punishments(PER_PAGE, 100L));
+		Operator otherSender = PlayerOperator.of(UUID.randomUUID());
+		assertEquals(1, pageCursors.nearestKnownPage(otherSender, selection, PER_PAGE, 2).page());
+		assertEquals(1, pageCursors.nearestKnownPage(sender, selection, PER_PAGE + 1, 2).page());
+		assertEquals(1, pageCursors.nearestKnownPage(sender, mock(SelectionOrder.class), PER_PAGE, 2).page());
+	}
+
+	@Test
+	public void beyondMaximumPagesNotRecorded() {
+		pageCursors.recordPages(sender, selection, PER_PAGE, 499, punishments(PER_PAGE * 3, 100L));
+		assertEquals(500, nearest(500).page());
+		assertEquals(500, nearest(502).page());
+	}
+}
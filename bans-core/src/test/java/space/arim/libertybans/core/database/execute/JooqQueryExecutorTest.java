@@ -0,0 +1,116 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.database.execute;
+
+import org.jooq.SQLDialect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JooqQueryExecutorTest {
+
+	private final JooqContext jooqContext = new JooqContext(SQLDialect.HSQLDB);
+	private final DataSource primary = mock(DataSource.class);
+	private final DataSource replica = mock(DataSource.class);
+	private final Connection primaryConnection = mock(Connection.class);
+	private final Connection replicaConnection = mock(Connection.class);
+
+	@BeforeEach
+	public void setConnections() throws SQLException {
+		when(primary.getConnection()).thenReturn(primaryConnection);
+		when(replica.getConnection()).thenReturn(replicaConnection);
+	}
+
+	private QueryExecutor executor(DataSource replica, Duration readOwnWrites) {
+		return new JooqQueryExecutor(
+				jooqContext, primary, replica, readOwnWrites, new IndifferentFactoryOfTheFuture(), Runnable::run);
+	}
+
+	private Connection readWith(QueryExecutor executor, SQLFunction.Staleness staleness) {
+		return executor.query(SQLFunction.readOnly(staleness, (context) -> {
+			return context.configuration().connectionProvider().acquire();
+		})).join();
+	}
+
+	private void write(QueryExecutor executor) {
+		executor.execute((context) -> {}).join();
+	}
+
+	@Test
+	public void noReplica() {
+		QueryExecutor executor = executor(null, Duration.ZERO);
+		for (SQLFunction.Staleness staleness : SQLFunction.Staleness.values()) {
+			assertEquals(primaryConnection, readWith(executor, staleness));
+		}
+	}
+
+	@Test
+	public void staleReadsUseReplicaDespiteWrites() {
+		QueryExecutor executor = executor(replica, Duration.ofHours(1L));
+		write(executor);
+		assertEquals(replicaConnection, readWith(executor, SQLFunction.Staleness.REPLICA_LAG));
+	}
+
+	@Test
+	public void ownWritesReadsUsePrimaryAfterWrite() {
+		QueryExecutor executor = executor(replica, Duration.ofHours(1L));
+		assertEquals(replicaConnection, readWith(executor, SQLFunction.Staleness.OWN_WRITES));
+		write(executor);
+		assertEquals(primaryConnection, readWith(executor, SQLFunction.Staleness.OWN_WRITES));
+	}
+
+	@Test
+	public void ownWritesReadsUseReplicaWithoutWindow() {
+		QueryExecutor executor = executor(replica, Duration.ZERO);
+		write(executor);
+		assertEquals(replicaConnection, readWith(executor, SQLFunction.Staleness.OWN_WRITES));
+	}
+
+	@Test
+	public void currentReadsUsePrimary() {
+		QueryExecutor executor = executor(replica, Duration.ZERO);
+		assertEquals(primaryConnection, readWith(executor, SQLFunction.Staleness.NONE));
+	}
+
+	@Test
+	public void writesUsePrimary() {
+		QueryExecutor executor = executor(replica, Duration.ZERO);
+		Connection connection = executor.query((context) -> {
+			return context.configuration().connectionProvider().acquire();
+		}).join();
+		assertEquals(primaryConnection, connection);
+	}
+
+	@Test
+	public void fallBackToPrimaryIfReplicaFails() throws SQLException {
+		when(replica.getConnection()).thenThrow(new SQLException("Replica unavailable"));
+		QueryExecutor executor = executor(replica, Duration.ZERO);
+		assertEquals(primaryConnection, readWith(executor, SQLFunction.Staleness.REPLICA_LAG));
+	}
+}
@@ -19,9 +19,12 @@
 
 package space.arim.libertybans.core.database.jooq;
 
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static space.arim.libertybans.core.database.jooq.JooqContext.MATCH_ALL;
 import static space.arim.libertybans.core.database.jooq.JooqContext.REPLACEMENT;
 
@@ -33,4 +36,13 @@ public class JooqContextTest {
 				"libertybans_revision",
 				MATCH_ALL.matcher("revision").replaceAll(REPLACEMENT));
 	}
+
+	@Test
+	public void shareSettings() {
+		JooqContext jooqContext = new JooqContext(SQLDialect.HSQLDB);
+		DSLContext context1 = jooqContext.createContext(null);
+		DSLContext context2 = jooqContext.createContext(null);
+		assertSame(context1.settings(), context2.settings());
+		assertEquals(SQLDialect.HSQLDB, context1.dialect());
+	}
 }
@@ -0,0 +1,93 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.database.jooq;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PreRenderedQueryTest {
+
+	private final DSLContext context = DSL.using(SQLDialect.HSQLDB);
+	private final Table<?> people = DSL.table(DSL.name("people"));
+	private final Field<Integer> id = DSL.field(DSL.name("id"), Integer.class);
+	private final Field<String> name = DSL.field(DSL.name("name"), String.class);
+
+	@Test
+	public void replaceNamedParameters() {
+		List<Integer> parameterIndexes = new ArrayList<>();
+		String sql = PreRenderedQuery.replaceNamedParameters(
+				"select \"a:id\" from t where x = :id and y > :time or z = :id and w = ':time' and v = :other",
+				List.of("id", "time"), parameterIndexes);
+		assertEquals(
+				"select \"a:id\" from t where x = ? and y > ? or z = ? and w = ':time' and v = :other",
+				sql);
+		assertEquals(List.of(0, 1, 0), parameterIndexes);
+	}
+
+	@Test
+	public void bindRepeatedParameter() {
+		PreRenderedQuery<ResultQuery<Record1<String>>> query = PreRenderedQuery.resultQuery((context) -> {
+			Field<Integer> idParam = DSL.param("id", id);
+			return context
+					.select(name)
+					.from(people)
+					.where(id.eq(idParam))
+					.and(name.notEqual("constant"))
+					.or(id.greaterThan(idParam));
+		}, "id");
+		ResultQuery<Record1<String>> bound = query.bind(context, 5);
+		assertEquals(List.of(5, 5), context.extractBindValues(bound));
+		assertEquals(
+				context.renderInlined(context
+						.select(name)
+						.from(people)
+						.where(id.eq(5))
+						.and(name.notEqual("constant"))
+						.or(id.greaterThan(5))),
+				context.renderInlined(bound));
+	}
+
+	@Test
+	public void bindWrongAmountOfValues() {
+		PreRenderedQuery<ResultQuery<Record1<String>>> query = PreRenderedQuery.resultQuery((context) -> {
+			return context.select(name).from(people).where(id.eq(DSL.param("id", id)));
+		}, "id");
+		assertThrows(IllegalArgumentException.class, () -> query.bind(context, 5, 6));
+	}
+
+	@Test
+	public void absentParameter() {
+		PreRenderedQuery<ResultQuery<Record1<String>>> query = PreRenderedQuery.resultQuery((context) -> {
+			return context.select(name).from(people).where(id.eq(DSL.param("id", id)));
+		}, "id", "name");
+		assertThrows(IllegalStateException.class, () -> query.bind(context, 5, "name"));
+	}
+}
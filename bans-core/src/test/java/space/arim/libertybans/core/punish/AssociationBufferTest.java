@@ -0,0 +1,130 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.execute.SQLTransactionalRunnable;
+import space.arim.libertybans.core.service.SettableTimeImpl;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static space.arim.libertybans.it.util.RandomUtil.randomAddress;
+
+public class AssociationBufferTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final EnhancedExecutor enhancedExecutor = mock(EnhancedExecutor.class);
+	private final QueryExecutor queryExecutor = mock(QueryExecutor.class);
+	private final Time time = new SettableTimeImpl(Instant.parse("2022-01-01T00:00:00Z"));
+	private AssociationBuffer associationBuffer;
+
+	@BeforeEach
+	public void setAssociationBuffer() {
+		Configs configs = mock(Configs.class);
+		SqlConfig sqlConfig = mock(SqlConfig.class);
+		SqlConfig.AssociationBuffer config = mock(SqlConfig.AssociationBuffer.class);
+		when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		when(sqlConfig.associationBuffer()).thenReturn(config);
+		when(config.enable()).thenReturn(true);
+		when(config.flushIntervalMillis()).thenReturn(1000);
+		when(config.maxBatchSize()).thenReturn(10);
+		when(config.deduplicationWindowSeconds()).thenReturn(60);
+
+		associationBuffer = new AssociationBuffer(
+				configs, futuresFactory, enhancedExecutor, () -> queryExecutor, time);
+	}
+
+	private Runnable startAndGetFlushTask() {
+		associationBuffer.startup();
+		ArgumentCaptor<Runnable> flushTask = ArgumentCaptor.forClass(Runnable.class);
+		verify(enhancedExecutor).scheduleRepeating(flushTask.capture(), any(), any());
+		return flushTask.getValue();
+	}
+
+	private CentralisedFuture<Void> failedWrite() {
+		CentralisedFuture<Void> future = futuresFactory.newIncompleteFuture();
+		future.completeExceptionally(new RuntimeException("Database unavailable"));
+		return future;
+	}
+
+	@Test
+	public void retryAfterFailedWrite() {
+		when(queryExecutor.executeWithRetry(any(SQLTransactionalRunnable.class)))
+				.thenReturn(failedWrite())
+				.thenReturn(futuresFactory.completedFuture(null));
+		Runnable flush = startAndGetFlushTask();
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		associationBuffer.queueCurrentAssociation(uuid, "name", address, time.currentTimestamp());
+
+		flush.run();
+		verify(queryExecutor, times(1)).executeWithRetry(any(SQLTransactionalRunnable.class));
+		// The association is written again, rather than lost
+		flush.run();
+		verify(queryExecutor, times(2)).executeWithRetry(any(SQLTransactionalRunnable.class));
+		// Nothing remains
+		flush.run();
+		verify(queryExecutor, times(2)).executeWithRetry(any(SQLTransactionalRunnable.class));
+	}
+
+	@Test
+	public void repeatJoinAfterFailedWriteIsNotDuplicated() {
+		when(queryExecutor.executeWithRetry(any(SQLTransactionalRunnable.class)))
+				.thenReturn(failedWrite())
+				.thenReturn(futuresFactory.completedFuture(null));
+		Runnable flush = startAndGetFlushTask();
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		associationBuffer.queueCurrentAssociation(uuid, "name", address, time.currentTimestamp());
+		flush.run();
+
+		// Still queued, so the repeat join is skipped, and one write follows
+		associationBuffer.queueCurrentAssociation(uuid, "name", address, time.currentTimestamp());
+		flush.run();
+		flush.run();
+		verify(queryExecutor, times(2)).executeWithRetry(any(SQLTransactionalRunnable.class));
+	}
+
+	@Test
+	public void shutdownWritesRemaining() {
+		when(queryExecutor.executeWithRetry(any(SQLTransactionalRunnable.class)))
+				.thenReturn(futuresFactory.completedFuture(null));
+		associationBuffer.startup();
+		associationBuffer.queueCurrentAssociation(UUID.randomUUID(), "name", randomAddress(), time.currentTimestamp());
+		associationBuffer.shutdown();
+		verify(queryExecutor).executeWithRetry(any(SQLTransactionalRunnable.class));
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish;
+
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.MainConfig;
+import space.arim.libertybans.core.env.EnvEnforcer;
+import space.arim.libertybans.core.selector.EnforcementConfig;
+import space.arim.libertybans.core.selector.LoginAdmissionConfig;
+import space.arim.libertybans.core.service.SettableTime;
+import space.arim.libertybans.core.service.SettableTimeImpl;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LoginAdmissionTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final LoginAdmissionConfig config = mock(LoginAdmissionConfig.class);
+	@SuppressWarnings("unchecked")
+	private final EnvEnforcer<Object> envEnforcer = mock(EnvEnforcer.class);
+	private final SettableTime time = new SettableTimeImpl(Instant.parse("2022-01-01T00:00:00Z"));
+	private final Component overloadMessage = Component.text("Too many connections");
+	private LoginAdmission loginAdmission;
+
+	@BeforeEach
+	public void setLoginAdmission() {
+		Configs configs = mock(Configs.class);
+		MainConfig mainConfig = mock(MainConfig.class);
+		EnforcementConfig enforcementConfig = mock(EnforcementConfig.class);
+		when(configs.getMainConfig()).thenReturn(mainConfig);
+		when(mainConfig.enforcement()).thenReturn(enforcementConfig);
+		when(enforcementConfig.loginAdmission()).thenReturn(config);
+		when(config.enable()).thenReturn(true);
+		when(config.maxInFlight()).thenReturn(1);
+		when(config.queueDepth()).thenReturn(1);
+		when(config.overloadPolicy()).thenReturn(LoginAdmissionConfig.OverloadPolicy.DENY);
+		when(config.overloadMessage()).thenReturn(overloadMessage);
+
+		loginAdmission = new LoginAdmission(configs, futuresFactory, envEnforcer, time);
+	}
+
+	private final class Check implements Supplier<CentralisedFuture<Component>> {
+
+		final CentralisedFuture<Component> result = futuresFactory.newIncompleteFuture();
+		int timesRun;
+
+		@Override
+		public CentralisedFuture<Component> get() {
+			timesRun++;
+			return result;
+		}
+	}
+
+	@Test
+	public void disabled() {
+		when(config.enable()).thenReturn(false);
+		Check first = new Check();
+		Check second = new Check();
+		loginAdmission.admit(UUID.randomUUID(), first);
+		loginAdmission.admit(UUID.randomUUID(), second);
+		assertEquals(1, first.timesRun);
+		assertEquals(1, second.timesRun);
+	}
+
+	@Test
+	public void queueUntilSlotFree() {
+		Check first = new Check();
+		Check second = new Check();
+		CentralisedFuture<Component> firstResult = loginAdmission.admit(UUID.randomUUID(), first);
+		CentralisedFuture<Component> secondResult = loginAdmission.admit(UUID.randomUUID(), second);
+		assertEquals(1, first.timesRun);
+		assertEquals(0, second.timesRun);
+		assertEquals(1L, loginAdmission.queuedLogins());
+
+		first.result.complete(null);
+		assertNull(firstResult.join());
+		assertEquals(1, second.timesRun);
+		assertFalse(secondResult.isDone());
+		Component denial = Component.text("Banned");
+		second.result.complete(denial);
+		assertSame(denial, secondResult.join());
+	}
+
+	@Test
+	public void denyBeyondQueue() {
+		loginAdmission.admit(UUID.randomUUID(), new Check());
+		loginAdmission.admit(UUID.randomUUID(), new Check());
+		Check third = new Check();
+		assertSame(overloadMessage, loginAdmission.admit(UUID.randomUUID(), third).join());
+		assertEquals(0, third.timesRun);
+		assertEquals(1L, loginAdmission.shedLogins());
+	}
+
+	@Test
+	public void denyWhenQueuedCheckTimedOut() {
+		Check first = new Check();
+		Check second = new Check();
+		loginAdmission.admit(UUID.randomUUID(), first);
+		CentralisedFuture<Component> secondResult = loginAdmission.admit(UUID.randomUUID(), second);
+
+		time.advanceBy(LoginAdmission.LOGIN_TIMEOUT.plus(Duration.ofSeconds(1L)));
+		first.result.complete(null);
+		assertSame(overloadMessage, secondResult.join());
+		assertEquals(0, second.timesRun);
+	}
+
+	@Test
+	public void denyWhenDeferredQueueFull() {
+		when(config.overloadPolicy()).thenReturn(LoginAdmissionConfig.OverloadPolicy.ALLOW_WITH_DEFERRED_CHECK);
+		loginAdmission.admit(UUID.randomUUID(), new Check());
+		loginAdmission.admit(UUID.randomUUID(), new Check());
+		assertNull(loginAdmission.admit(UUID.randomUUID(), new Check()).join());
+
+		Check overflowing = new Check();
+		CentralisedFuture<Component> result = loginAdmission.admit(UUID.randomUUID(), overflowing);
+		assertTrue(result.isDone());
+		assertSame(overloadMessage, result.join());
+		assertEquals(0, overflowing.timesRun);
+	}
+
+	@Test
+	public void deferredCheckDenialKicksPlayer() {
+		when(config.overloadPolicy()).thenReturn(LoginAdmissionConfig.OverloadPolicy.ALLOW_WITH_DEFERRED_CHECK);
+		Check first = new Check();
+		Check second = new Check();
+		loginAdmission.admit(UUID.randomUUID(), first);
+		loginAdmission.admit(UUID.randomUUID(), second);
+		UUID deferredUuid = UUID.randomUUID();
+		Check deferred = new Check();
+		assertNull(loginAdmission.admit(deferredUuid, deferred).join());
+		assertEquals(0, deferred.timesRun);
+
+		first.result.complete(null);
+		// The queued login runs before the deferred check
+		assertEquals(1, second.timesRun);
+		assertEquals(0, deferred.timesRun);
+		second.result.complete(null);
+		assertEquals(1, deferred.timesRun);
+		deferred.result.complete(Component.text("Banned"));
+		verify(envEnforcer).doForPlayerIfOnline(eq(deferredUuid), any());
+	}
+
+	@Test
+	public void deferredCheckFailureKicksPlayer() {
+		when(config.overloadPolicy()).thenReturn(LoginAdmissionConfig.OverloadPolicy.ALLOW_WITH_DEFERRED_CHECK);
+		Check first = new Check();
+		Check second = new Check();
+		loginAdmission.admit(UUID.randomUUID(), first);
+		loginAdmission.admit(UUID.randomUUID(), second);
+		UUID deferredUuid = UUID.randomUUID();
+		Check deferred = new Check();
+		assertNull(loginAdmission.admit(deferredUuid, deferred).join());
+
+		first.result.complete(null);
+		second.result.complete(null);
+		assertEquals(1, deferred.timesRun);
+		deferred.result.completeExceptionally(new RuntimeException("Database unavailable"));
+		verify(envEnforcer).doForPlayerIfOnline(eq(deferredUuid), any());
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MuteCommandMatcherTest {
+
+	private final MuteCommandMatcher matcher = MuteCommandMatcher.compile(
+			Set.of("me", "say", "msg", "tell", "team msg", "Essentials:broadcast"));
+
+	@Test
+	public void simpleCommands() {
+		assertTrue(matcher.matches("me"));
+		assertTrue(matcher.matches("me waves"));
+		assertTrue(matcher.matches("MSG player hello"));
+		assertFalse(matcher.matches("mess"));
+		assertFalse(matcher.matches("m"));
+		assertFalse(matcher.matches("spawn"));
+	}
+
+	@Test
+	public void subcommands() {
+		assertTrue(matcher.matches("team msg hello"));
+		assertTrue(matcher.matches("Team MSG"));
+		assertFalse(matcher.matches("team"));
+		assertFalse(matcher.matches("team join red"));
+		assertFalse(matcher.matches("team msgs"));
+	}
+
+	@Test
+	public void namespacedCommands() {
+		assertTrue(matcher.matches("minecraft:me waves"));
+		assertTrue(matcher.matches("essentials:msg player hi"));
+		assertTrue(matcher.matches("minecraft:team msg hello"));
+		assertFalse(matcher.matches("minecraft:spawn"));
+		assertFalse(matcher.matches("spawn me:x"));
+	}
+
+	@Test
+	public void compiledFrom() {
+		Set<String> muteCommands = Set.of("me", "say");
+		MuteCommandMatcher matcher = MuteCommandMatcher.compile(muteCommands);
+		assertTrue(matcher.isCompiledFrom(muteCommands));
+		assertTrue(matcher.isCompiledFrom(new HashSet<>(muteCommands)));
+		assertFalse(matcher.isCompiledFrom(Set.of("me")));
+	}
+
+	@Test
+	public void equivalentToSplittingImplementation() {
+		Random random = new Random(1L);
+		String alphabet = "aBb: ";
+		for (int trial = 0; trial < 20_000; trial++) {
+			Set<String> muteCommands = new HashSet<>();
+			int count = random.nextInt(4);
+			for (int n = 0; n < count; n++) {
+				String muteCommand = randomString(random, alphabet, 1 + random.nextInt(5));
+				if (!muteCommand.isBlank()) {
+					muteCommands.add(muteCommand);
+				}
+			}
+			String command = randomString(random, alphabet, 1 + random.nextInt(8));
+			if (command.isBlank()) {
+				continue;
+			}
+			assertEquals(
+					splittingImplementation(muteCommands, command),
+					MuteCommandMatcher.compile(muteCommands).matches(command),
+					() -> "Mute commands " + muteCommands + " and command '" + command + "'");
+		}
+	}
+
+	private static String randomString(Random random, String alphabet, int length) {
+		StringBuilder builder = new StringBuilder(length);
+		for (int n = 0; n < length; n++) {
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return builder.toString();
+	}
+
+	// The previous implementation
+
+	private static boolean splittingImplementation(Set<String> muteCommands, String command) {
+		String[] words = command.split(" ");
+		if (words[0].indexOf(':') != -1) {
+			words[0] = words[0].split(":", 2)[1];
+		}
+		for (String muteCommand : muteCommands) {
+			if (muteCommandMatches(words, muteCommand)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean muteCommandMatches(String[] commandWords, String muteCommand) {
+		if (commandWords[0].equalsIgnoreCase(muteCommand)) {
+			return true;
+		}
+		if (muteCommand.indexOf(' ') != -1) {
+			String[] muteCommandWords = muteCommand.split(" ");
+			if (muteCommandWords.length > commandWords.length) {
+				return false;
+			}
+			for (int n = 0; n < muteCommandWords.length; n++) {
+				if (!muteCommandWords[n].equalsIgnoreCase(commandWords[n])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+}
@@ -37,10 +37,12 @@ import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
@@ -74,6 +76,7 @@ public class StandardGlobalEnforcementTest {
 		lenient().when(enforcer.unenforceWithoutSynchronization(anyLong(), any(), any())).thenReturn(futuresFactory.completedFuture(null));
 
 		lenient().when(synchronizationMessenger.dispatch(any())).thenReturn(futuresFactory.completedFuture(null));
+		lenient().when(synchronizationMessenger.dispatchAll(any())).thenReturn(futuresFactory.completedFuture(null));
 
 		SqlConfig sqlConfig = mock(SqlConfig.class);
 		lenient().when(configs.getSqlConfig()).thenReturn(sqlConfig);
@@ -244,4 +247,22 @@ public class StandardGlobalEnforcementTest {
 		verify(enforcer).unenforceWithoutSynchronization(punishment.getIdentifier(), type, enforcementOpts);
 		verify(synchronizationMessenger).dispatch(notNull());
 	}
+
+	@Test
+	public void enforceAllGlobal() {
+		enableSync();
+
+		Punishment punishment1 = punishmentWithType(PunishmentType.BAN);
+		Punishment punishment2 = punishmentWithType(PunishmentType.WARN);
+
+		EnforcementOpts enforcementOpts = EnforcementOpts
+				.builder()
+				.enforcement(EnforcementOptions.Enforcement.GLOBAL)
+				.build();
+		globalEnforcement.enforceAll(List.of(punishment1, punishment2), enforcementOpts).join();
+		verify(enforcer).enforceWithoutSynchronization(punishment1, enforcementOpts);
+		verify(enforcer).enforceWithoutSynchronization(punishment2, enforcementOpts);
+		verify(synchronizationMessenger).dispatchAll(argThat((messages) -> messages.length == 2));
+		verifyNoMoreInteractions(synchronizationMessenger);
+	}
 }
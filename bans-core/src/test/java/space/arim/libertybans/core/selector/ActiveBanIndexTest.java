@@ -0,0 +1,208 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.service.SettableTime;
+import space.arim.libertybans.core.service.SettableTimeImpl;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static space.arim.libertybans.it.util.RandomUtil.randomAddress;
+
+public class ActiveBanIndexTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final InternalDatabase database = mock(InternalDatabase.class);
+	private final SqlConfig.BanIndex banIndexConfig = mock(SqlConfig.BanIndex.class);
+	private final SettableTime time = new SettableTimeImpl(Instant.parse("2022-01-01T00:00:00Z"));
+	private ActiveBanIndex banIndex;
+
+	@BeforeEach
+	public void setBanIndex() {
+		Configs configs = mock(Configs.class);
+		SqlConfig sqlConfig = mock(SqlConfig.class);
+		when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		when(sqlConfig.banIndex()).thenReturn(banIndexConfig);
+		when(banIndexConfig.enable()).thenReturn(true);
+
+		banIndex = new ActiveBanIndex(configs, () -> database, mock(PunishmentCreator.class), time);
+	}
+
+	private static Punishment ban(long id, Victim victim, Instant end) {
+		Punishment ban = mock(Punishment.class);
+		when(ban.getType()).thenReturn(PunishmentType.BAN);
+		when(ban.getIdentifier()).thenReturn(id);
+		when(ban.getVictim()).thenReturn(victim);
+		when(ban.getEndDate()).thenReturn(end);
+		return ban;
+	}
+
+	private static Punishment ban(long id, Victim victim) {
+		return ban(id, victim, Punishment.PERMANENT_END_DATE);
+	}
+
+	private void loadWith(Punishment...bans) {
+		doReturn(futuresFactory.completedFuture(List.of(bans))).when(database).query(any());
+		banIndex.startup();
+	}
+
+	private Punishment findLenient(UUID uuid, NetworkAddress address) {
+		return banIndex.findApplicable(null, uuid, address, AddressStrictness.LENIENT, time.currentTimestamp());
+	}
+
+	@Test
+	public void cannotAnswerWhenDisabled() {
+		when(banIndexConfig.enable()).thenReturn(false);
+		banIndex.startup();
+		assertFalse(banIndex.canAnswer(AddressStrictness.LENIENT));
+		assertThrows(IllegalStateException.class, () -> findLenient(UUID.randomUUID(), randomAddress()));
+	}
+
+	@Test
+	public void cannotAnswerStrict() {
+		loadWith();
+		assertTrue(banIndex.canAnswer(AddressStrictness.LENIENT));
+		assertTrue(banIndex.canAnswer(AddressStrictness.NORMAL));
+		assertFalse(banIndex.canAnswer(AddressStrictness.STRICT));
+	}
+
+	@Test
+	public void findLoadedBans() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		UUID compositeUuid = UUID.randomUUID();
+		NetworkAddress compositeAddress = randomAddress();
+		Punishment uuidBan = ban(1L, PlayerVictim.of(uuid));
+		Punishment addressBan = ban(2L, AddressVictim.of(address));
+		Punishment compositeBan = ban(3L, CompositeVictim.of(compositeUuid, compositeAddress));
+		loadWith(uuidBan, addressBan, compositeBan);
+
+		assertSame(uuidBan, findLenient(uuid, randomAddress()));
+		assertSame(addressBan, findLenient(UUID.randomUUID(), address));
+		assertSame(compositeBan, findLenient(compositeUuid, randomAddress()));
+		assertSame(compositeBan, findLenient(UUID.randomUUID(), compositeAddress));
+		assertNull(findLenient(UUID.randomUUID(), randomAddress()));
+	}
+
+	@Test
+	public void normalWithoutAddressBansSkipsHistory() {
+		UUID uuid = UUID.randomUUID();
+		Punishment uuidBan = ban(1L, PlayerVictim.of(uuid));
+		loadWith(uuidBan);
+
+		// The null context would be dereferenced if address history were queried
+		assertSame(uuidBan, banIndex.findApplicable(
+				null, uuid, randomAddress(), AddressStrictness.NORMAL, time.currentTimestamp()));
+		assertNull(banIndex.findApplicable(
+				null, UUID.randomUUID(), randomAddress(), AddressStrictness.NORMAL, time.currentTimestamp()));
+	}
+
+	@Test
+	public void expiredBanIgnored() {
+		UUID uuid = UUID.randomUUID();
+		loadWith(ban(1L, PlayerVictim.of(uuid), time.currentTimestamp().plusSeconds(10L)));
+
+		assertNotNull(findLenient(uuid, randomAddress()));
+		time.advanceBy(Duration.ofSeconds(11L));
+		assertNull(findLenient(uuid, randomAddress()));
+	}
+
+	@Test
+	public void enactAndRevoke() {
+		loadWith();
+		UUID uuid = UUID.randomUUID();
+		Punishment ban = ban(1L, PlayerVictim.of(uuid));
+
+		banIndex.punishmentEnacted(ban);
+		assertSame(ban, findLenient(uuid, randomAddress()));
+		banIndex.punishmentRevoked(1L);
+		assertNull(findLenient(uuid, randomAddress()));
+	}
+
+	@Test
+	public void ignoreOtherTypes() {
+		loadWith();
+		UUID uuid = UUID.randomUUID();
+		Punishment mute = mock(Punishment.class);
+		when(mute.getType()).thenReturn(PunishmentType.MUTE);
+
+		banIndex.punishmentEnacted(mute);
+		assertNull(findLenient(uuid, randomAddress()));
+	}
+
+	@Test
+	public void changesWhileLoadingApplied() {
+		CentralisedFuture<List<Punishment>> loading = futuresFactory.newIncompleteFuture();
+		doReturn(loading).when(database).query(any());
+		banIndex.startup();
+		assertFalse(banIndex.canAnswer(AddressStrictness.LENIENT));
+
+		UUID enactedUuid = UUID.randomUUID();
+		UUID revokedUuid = UUID.randomUUID();
+		Punishment enacted = ban(1L, PlayerVictim.of(enactedUuid));
+		Punishment revoked = ban(2L, PlayerVictim.of(revokedUuid));
+		banIndex.punishmentEnacted(enacted);
+		banIndex.punishmentRevoked(2L);
+		loading.complete(List.of(revoked));
+
+		assertTrue(banIndex.canAnswer(AddressStrictness.LENIENT));
+		assertSame(enacted, findLenient(enactedUuid, randomAddress()));
+		assertNull(findLenient(revokedUuid, randomAddress()));
+	}
+
+	@Test
+	public void shutdownWhileLoading() {
+		CentralisedFuture<List<Punishment>> loading = futuresFactory.newIncompleteFuture();
+		doReturn(loading).when(database).query(any());
+		banIndex.startup();
+		banIndex.shutdown();
+		loading.complete(List.of());
+
+		assertFalse(banIndex.canAnswer(AddressStrictness.LENIENT));
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.service.SettableTime;
+import space.arim.libertybans.core.service.SettableTimeImpl;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static space.arim.libertybans.it.util.RandomUtil.randomAddress;
+
+public class CaffeineMuteCacheTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final InternalSelector selector = mock(InternalSelector.class);
+	private final SettableTime time = new SettableTimeImpl(Instant.parse("2022-01-01T00:00:00Z"));
+	private MuteCache muteCache;
+
+	@BeforeEach
+	public void setMuteCache() {
+		Configs configs = mock(Configs.class);
+		SqlConfig sqlConfig = mock(SqlConfig.class);
+		SqlConfig.MuteCaching muteCaching = mock(SqlConfig.MuteCaching.class);
+		when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		when(sqlConfig.muteCaching()).thenReturn(muteCaching);
+		when(muteCaching.expirationTimeSeconds()).thenReturn(60);
+		when(muteCaching.negativeExpirationTimeSeconds()).thenReturn(30);
+		when(muteCaching.expirationSemantic()).thenReturn(SqlConfig.MuteCaching.ExpirationSemantic.EXPIRE_AFTER_WRITE);
+
+		when(selector.getApplicableMute(any(), any())).thenReturn(futuresFactory.completedFuture(null));
+		muteCache = new CaffeineMuteCache(configs, futuresFactory, selector, time);
+	}
+
+	private static Punishment mute(long id) {
+		return mute(id, Punishment.PERMANENT_END_DATE);
+	}
+
+	private static Punishment mute(long id, Instant end) {
+		Punishment mute = mock(Punishment.class);
+		when(mute.getType()).thenReturn(PunishmentType.MUTE);
+		when(mute.getIdentifier()).thenReturn(id);
+		when(mute.getEndDate()).thenReturn(end);
+		when(mute.isPermanent()).thenReturn(end.equals(Punishment.PERMANENT_END_DATE));
+		return mute;
+	}
+
+	private Optional<Punishment> getMute(UUID uuid, NetworkAddress address) {
+		return muteCache.getCacheableMute(uuid, address).join();
+	}
+
+	@Test
+	public void clearByIdRemovesOnlyMatchingEntries() {
+		Punishment firstMute = mute(1L);
+		Punishment secondMute = mute(2L);
+		UUID uuid1 = UUID.randomUUID(), uuid2 = UUID.randomUUID(), uuid3 = UUID.randomUUID();
+		NetworkAddress address1 = randomAddress(), address2 = randomAddress(), address3 = randomAddress();
+		muteCache.setCachedMute(uuid1, address1, firstMute);
+		muteCache.setCachedMute(uuid2, address2, firstMute);
+		muteCache.setCachedMute(uuid3, address3, secondMute);
+
+		muteCache.clearCachedMute(1L);
+
+		assertEquals(Optional.empty(), getMute(uuid1, address1));
+		assertEquals(Optional.empty(), getMute(uuid2, address2));
+		assertEquals(Optional.of(secondMute), getMute(uuid3, address3));
+		verify(selector).getApplicableMute(uuid1, address1);
+		verify(selector).getApplicableMute(uuid2, address2);
+		verify(selector, never()).getApplicableMute(uuid3, address3);
+	}
+
+	@Test
+	public void clearLoadedMute() {
+		Punishment mute = mute(3L);
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		when(selector.getApplicableMute(uuid, address)).thenReturn(futuresFactory.completedFuture(mute));
+
+		assertEquals(Optional.of(mute), getMute(uuid, address));
+		muteCache.clearCachedMute(mute);
+		assertEquals(Optional.of(mute), getMute(uuid, address));
+		verify(selector, times(2)).getApplicableMute(uuid, address);
+	}
+
+	@Test
+	public void clearMuteBeingLoaded() {
+		Punishment mute = mute(10L);
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		CentralisedFuture<Punishment> load = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicableMute(uuid, address)).thenReturn(load);
+
+		CentralisedFuture<Optional<Punishment>> firstLookup = muteCache.getCacheableMute(uuid, address);
+		muteCache.clearCachedMute(10L);
+		load.complete(mute);
+		assertEquals(Optional.of(mute), firstLookup.join());
+
+		when(selector.getApplicableMute(uuid, address)).thenReturn(futuresFactory.completedFuture(null));
+		assertEquals(Optional.empty(), getMute(uuid, address));
+		verify(selector, times(2)).getApplicableMute(uuid, address);
+	}
+
+	@Test
+	public void replacedMuteNoLongerCleared() {
+		Punishment firstMute = mute(4L);
+		Punishment secondMute = mute(5L);
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		muteCache.setCachedMute(uuid, address, firstMute);
+		muteCache.setCachedMute(uuid, address, secondMute);
+
+		muteCache.clearCachedMute(4L);
+
+		assertEquals(Optional.of(secondMute), getMute(uuid, address));
+		verify(selector, never()).getApplicableMute(uuid, address);
+	}
+
+	@Test
+	public void setIfAbsentDoesNotOverwrite() {
+		Punishment mute = mute(6L);
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		muteCache.setCachedMute(uuid, address, mute);
+		muteCache.setCachedMuteIfAbsent(uuid, address, null, muteCache.invalidationCount());
+
+		assertEquals(Optional.of(mute), getMute(uuid, address));
+		muteCache.clearCachedMute(6L);
+		assertEquals(Optional.empty(), getMute(uuid, address));
+	}
+
+	@Test
+	public void setIfAbsentAfterMuteEnacted() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		long invalidationCount = muteCache.invalidationCount();
+		// The lookup began before the mute was enacted
+		muteCache.muteEnacted();
+		muteCache.setCachedMuteIfAbsent(uuid, address, null, invalidationCount);
+
+		Punishment mute = mute(8L);
+		when(selector.getApplicableMute(uuid, address)).thenReturn(futuresFactory.completedFuture(mute));
+		assertEquals(Optional.of(mute), getMute(uuid, address));
+	}
+
+	@Test
+	public void setIfAbsentAfterMuteCleared() {
+		Punishment mute = mute(9L);
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		long invalidationCount = muteCache.invalidationCount();
+		// The lookup began before the mute was revoked
+		muteCache.clearCachedMute(9L);
+		muteCache.setCachedMuteIfAbsent(uuid, address, mute, invalidationCount);
+
+		assertEquals(Optional.empty(), getMute(uuid, address));
+		verify(selector).getApplicableMute(uuid, address);
+	}
+
+	@Test
+	public void muteExpiresAtEndTime() {
+		Punishment mute = mute(7L, time.currentTimestamp().plusSeconds(10L));
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		muteCache.setCachedMute(uuid, address, mute);
+
+		time.advanceBy(Duration.ofSeconds(10L));
+		assertEquals(Optional.of(mute), getMute(uuid, address));
+		time.advanceBy(Duration.ofSeconds(2L));
+		assertEquals(Optional.empty(), getMute(uuid, address));
+		verify(selector).getApplicableMute(uuid, address);
+	}
+
+	@Test
+	public void negativeEntryExpiresSeparately() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+
+		assertEquals(Optional.empty(), getMute(uuid, address));
+		time.advanceBy(Duration.ofSeconds(20L));
+		assertEquals(Optional.empty(), getMute(uuid, address));
+		verify(selector, times(1)).getApplicableMute(uuid, address);
+		time.advanceBy(Duration.ofSeconds(20L));
+		assertEquals(Optional.empty(), getMute(uuid, address));
+		verify(selector, times(2)).getApplicableMute(uuid, address);
+	}
+
+	@Test
+	public void cachedFutureReturnedDirectly() {
+		Punishment mute = mute(8L);
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = randomAddress();
+		muteCache.setCachedMute(uuid, address, mute);
+
+		assertSame(muteCache.getCacheableMute(uuid, address), muteCache.getCacheableMute(uuid, address));
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CountingBloomFilterTest {
+
+	private final CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+
+	@Test
+	public void addAndContain() {
+		long[] hashes = ThreadLocalRandom.current().longs(1000).toArray();
+		for (long hash : hashes) {
+			filter.add(hash);
+		}
+		for (long hash : hashes) {
+			assertTrue(filter.mightContain(hash));
+		}
+	}
+
+	@Test
+	public void removeElement() {
+		long hash = ThreadLocalRandom.current().nextLong();
+		filter.add(hash);
+		filter.remove(hash);
+		assertFalse(filter.mightContain(hash));
+	}
+
+	@Test
+	public void removeOneOfDuplicate() {
+		long hash = ThreadLocalRandom.current().nextLong();
+		filter.add(hash);
+		filter.add(hash);
+		filter.remove(hash);
+		assertTrue(filter.mightContain(hash));
+	}
+
+	@Test
+	public void falsePositiveRateNearTarget() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int n = 0; n < 1000; n++) {
+			filter.add(random.nextLong());
+		}
+		int falsePositives = 0;
+		int trials = 100_000;
+		for (int n = 0; n < trials; n++) {
+			if (filter.mightContain(random.nextLong())) {
+				falsePositives++;
+			}
+		}
+		// Generous bound to avoid flakiness
+		assertTrue(falsePositives < trials * 0.05, "False positives: " + falsePositives);
+	}
+}
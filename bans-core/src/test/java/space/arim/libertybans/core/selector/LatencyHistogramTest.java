@@ -0,0 +1,76 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void bucketBoundsContinuous() {
+		for (int index = 1; index < LatencyHistogram.bucketIndex(Long.MAX_VALUE); index++) {
+			long lowerBound = LatencyHistogram.bucketLowerBound(index);
+			assertEquals(index, LatencyHistogram.bucketIndex(lowerBound));
+			assertEquals(index - 1, LatencyHistogram.bucketIndex(lowerBound - 1));
+			assertEquals(lowerBound - 1, LatencyHistogram.bucketUpperBound(index - 1));
+		}
+	}
+
+	@Test
+	public void smallValuesExact() {
+		for (long value = 0; value < 8; value++) {
+			histogram.record(value);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(8, snapshot.count());
+		assertEquals(7, snapshot.max());
+		assertEquals(3.5D, snapshot.mean());
+		assertEquals(3, snapshot.valueAtPercentile(50D));
+		assertEquals(7, snapshot.valueAtPercentile(100D));
+	}
+
+	@Test
+	public void percentilesWithinRelativeError() {
+		for (long value = 1; value <= 10_000; value++) {
+			histogram.record(value);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		for (double percentile : new double[] {50D, 90D, 99D, 99.9D}) {
+			long expected = (long) (percentile * 100);
+			long actual = snapshot.valueAtPercentile(percentile);
+			assertTrue(actual >= expected && actual <= expected * 1.125D,
+					"Percentile " + percentile + " expected about " + expected + " but got " + actual);
+		}
+		assertEquals(10_000, snapshot.valueAtPercentile(100D));
+	}
+
+	@Test
+	public void reset() {
+		histogram.record(100L);
+		histogram.reset();
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(0, snapshot.count());
+		assertEquals(0, snapshot.valueAtPercentile(50D));
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.punish.Punishment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PunishmentCacheTest {
+
+	private final PunishmentCache cache = new PunishmentCache();
+
+	private static Punishment punishment(long id, String reason) {
+		Punishment punishment = mock(Punishment.class);
+		when(punishment.getIdentifier()).thenReturn(id);
+		when(punishment.getReason()).thenReturn(reason);
+		return punishment;
+	}
+
+	private static Punishment punishment(long id) {
+		return punishment(id, "reason");
+	}
+
+	@Test
+	public void miss() {
+		assertNull(cache.getIfPresent(1L));
+		assertEquals(Map.of(), cache.getAllPresent(List.of(1L, 2L)));
+		assertNull(cache.cache(null));
+	}
+
+	@Test
+	public void hit() {
+		Punishment punishment = punishment(1L);
+		assertSame(punishment, cache.cache(punishment));
+		assertSame(punishment, cache.getIfPresent(1L));
+		assertEquals(Map.of(1L, punishment), cache.getAllPresent(List.of(1L)));
+	}
+
+	@Test
+	public void hitsAndMisses() {
+		Punishment first = punishment(1L);
+		Punishment third = punishment(3L);
+		cache.cache(first);
+		cache.cache(third);
+		Map<Long, Punishment> present = cache.getAllPresent(List.of(1L, 2L, 3L, 4L));
+		assertEquals(Map.of(1L, first, 3L, third), present);
+		// The map is mutable, so that callers may add the punishments they query
+		Punishment second = punishment(2L);
+		present.put(2L, second);
+		assertNull(cache.getIfPresent(2L));
+	}
+
+	@Test
+	public void clear() {
+		cache.cache(punishment(1L));
+		cache.clear();
+		assertNull(cache.getIfPresent(1L));
+	}
+
+	@Test
+	public void evictByWeight() {
+		Punishment light = punishment(1L, "");
+		int maximumWeight = PunishmentCache.weigh(light) * 3;
+		PunishmentCache cache = new PunishmentCache(maximumWeight, Runnable::run);
+		for (long id = 1; id <= 10; id++) {
+			cache.cache(punishment(id, ""));
+		}
+		long retained = cache.getAllPresent(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L)).size();
+		assertTrue(retained >= 1 && retained <= 3, "Retained " + retained + " punishments");
+	}
+
+	@Test
+	public void evictHeavyReason() {
+		Punishment light = punishment(1L, "");
+		PunishmentCache cache = new PunishmentCache(PunishmentCache.weigh(light) * 3, Runnable::run);
+		cache.cache(light);
+		// Weighs more than the whole cache, because the reason is long
+		cache.cache(punishment(2L, "a".repeat(1_000)));
+		assertNull(cache.getIfPresent(2L));
+		assertSame(light, cache.getIfPresent(1L));
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.punish.Punishment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class SelectionPublisherTest {
+
+	private final List<Punishment> punishments = new ArrayList<>();
+	private final AtomicInteger fetchCount = new AtomicInteger();
+
+	private void addPunishments(int amount) {
+		for (int n = 0; n < amount; n++) {
+			punishments.add(mock(Punishment.class));
+		}
+	}
+
+	private CompletionStage<List<Punishment>> fetchChunk(Punishment lastPunishment, int limit) {
+		fetchCount.incrementAndGet();
+		int start = (lastPunishment == null) ? 0 : punishments.indexOf(lastPunishment) + 1;
+		int end = Math.min(start + limit, punishments.size());
+		return CompletableFuture.completedFuture(List.copyOf(punishments.subList(start, end)));
+	}
+
+	private static final class RecordingSubscriber implements Flow.Subscriber<Punishment> {
+
+		final List<Punishment> received = new ArrayList<>();
+		Flow.Subscription subscription;
+		Throwable error;
+		boolean completed;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(Punishment item) {
+			received.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+
+	private RecordingSubscriber subscribe(int chunkSize, int limitToRetrieve) {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		new SelectionPublisher(this::fetchChunk, chunkSize, limitToRetrieve).subscribe(subscriber);
+		return subscriber;
+	}
+
+	@Test
+	public void nothingRetrievedUntilRequested() {
+		addPunishments(5);
+		RecordingSubscriber subscriber = subscribe(3, 0);
+		assertEquals(0, fetchCount.get());
+		assertTrue(subscriber.received.isEmpty());
+	}
+
+	@Test
+	public void publishAllInChunks() {
+		addPunishments(7);
+		RecordingSubscriber subscriber = subscribe(3, 0);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(punishments, subscriber.received);
+		assertTrue(subscriber.completed);
+		assertNull(subscriber.error);
+		assertEquals(3, fetchCount.get());
+	}
+
+	@Test
+	public void publishOnlyWhatIsRequested() {
+		addPunishments(7);
+		RecordingSubscriber subscriber = subscribe(3, 0);
+		subscriber.subscription.request(2);
+		assertEquals(punishments.subList(0, 2), subscriber.received);
+		assertEquals(1, fetchCount.get());
+
+		subscriber.subscription.request(2);
+		assertEquals(punishments.subList(0, 4), subscriber.received);
+		assertEquals(2, fetchCount.get());
+		assertFalse(subscriber.completed);
+
+		subscriber.subscription.request(10);
+		assertEquals(punishments, subscriber.received);
+		assertTrue(subscriber.completed);
+	}
+
+	@Test
+	public void completeAfterExactChunk() {
+		addPunishments(6);
+		RecordingSubscriber subscriber = subscribe(3, 0);
+		subscriber.subscription.request(6);
+		assertEquals(punishments, subscriber.received);
+		// The last chunk was full, so another must be retrieved to know there are no more
+		assertFalse(subscriber.completed);
+
+		subscriber.subscription.request(1);
+		assertTrue(subscriber.completed);
+		assertEquals(3, fetchCount.get());
+	}
+
+	@Test
+	public void respectLimitToRetrieve() {
+		addPunishments(10);
+		RecordingSubscriber subscriber = subscribe(3, 5);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(punishments.subList(0, 5), subscriber.received);
+		assertTrue(subscriber.completed);
+		assertEquals(2, fetchCount.get());
+	}
+
+	@Test
+	public void emptySelection() {
+		RecordingSubscriber subscriber = subscribe(3, 0);
+		subscriber.subscription.request(1);
+		assertTrue(subscriber.received.isEmpty());
+		assertTrue(subscriber.completed);
+	}
+
+	@Test
+	public void cancelStopsPublishing() {
+		addPunishments(7);
+		RecordingSubscriber subscriber = subscribe(3, 0);
+		subscriber.subscription.request(1);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(10);
+		assertEquals(punishments.subList(0, 1), subscriber.received);
+		assertFalse(subscriber.completed);
+		assertEquals(1, fetchCount.get());
+	}
+
+	@Test
+	public void nonPositiveRequestSignalsError() {
+		addPunishments(2);
+		RecordingSubscriber subscriber = subscribe(3, 0);
+		subscriber.subscription.request(0);
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+		assertTrue(subscriber.received.isEmpty());
+	}
+
+	@Test
+	public void failedRetrievalSignalsError() {
+		RuntimeException failure = new RuntimeException("database failure");
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		new SelectionPublisher(
+				(lastPunishment, limit) -> CompletableFuture.failedFuture(failure), 3, 0
+		).subscribe(subscriber);
+		subscriber.subscription.request(1);
+		assertSame(failure, subscriber.error);
+		assertFalse(subscriber.completed);
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.service.SettableTimeImpl;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static space.arim.libertybans.it.util.RandomUtil.randomAddress;
+
+public class VictimFilterTest {
+
+	private final InternalDatabase database = mock(InternalDatabase.class);
+	private VictimFilter victimFilter;
+
+	@BeforeEach
+	public void setVictimFilter() {
+		Configs configs = mock(Configs.class);
+		SqlConfig sqlConfig = mock(SqlConfig.class);
+		SqlConfig.VictimFilter config = mock(SqlConfig.VictimFilter.class);
+		when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		when(sqlConfig.victimFilter()).thenReturn(config);
+		when(config.enable()).thenReturn(true);
+		when(config.falsePositiveRate()).thenReturn(0.01);
+		when(config.rebuildIntervalMinutes()).thenReturn(60);
+
+		victimFilter = new VictimFilter(configs, mock(EnhancedExecutor.class), () -> database,
+				mock(PunishmentCreator.class), new SettableTimeImpl(Instant.parse("2022-01-01T00:00:00Z")));
+	}
+
+	private void loadWith(Punishment...punishments) {
+		doReturn(new IndifferentFactoryOfTheFuture().completedFuture(List.of(punishments)))
+				.when(database).query(any());
+		victimFilter.startup();
+	}
+
+	private VictimFilter.Answer check(PunishmentType type, UUID uuid, NetworkAddress address) {
+		return victimFilter.check(type, uuid, address, AddressStrictness.LENIENT);
+	}
+
+	@Test
+	public void unknownUntilLoaded() {
+		assertEquals(VictimFilter.Answer.UNKNOWN, check(PunishmentType.BAN, UUID.randomUUID(), randomAddress()));
+	}
+
+	@Test
+	public void answersForLoadedPunishments() {
+		UUID banned = UUID.randomUUID();
+		Punishment ban = mock(Punishment.class);
+		when(ban.getIdentifier()).thenReturn(1L);
+		when(ban.getType()).thenReturn(PunishmentType.BAN);
+		when(ban.getVictim()).thenReturn(PlayerVictim.of(banned));
+		loadWith(ban);
+
+		assertEquals(VictimFilter.Answer.MAYBE_PUNISHED, check(PunishmentType.BAN, banned, randomAddress()));
+		assertEquals(VictimFilter.Answer.UNKNOWN, check(PunishmentType.WARN, banned, randomAddress()));
+		victimFilter.punishmentRevoked(1L);
+		assertEquals(VictimFilter.Answer.NOT_PUNISHED, check(PunishmentType.BAN, banned, randomAddress()));
+	}
+
+	@Test
+	public void falsePositivesOnlyForMatches() {
+		loadWith();
+		UUID uuid = UUID.randomUUID();
+		victimFilter.recordNotPunished(check(PunishmentType.WARN, uuid, randomAddress()));
+		assertEquals(0D, victimFilter.falsePositiveRate());
+
+		victimFilter.punishmentEnacted(mockMute(2L, uuid));
+		VictimFilter.Answer answer = check(PunishmentType.MUTE, uuid, randomAddress());
+		assertEquals(VictimFilter.Answer.MAYBE_PUNISHED, answer);
+		victimFilter.recordNotPunished(answer);
+		victimFilter.recordNotPunished(VictimFilter.Answer.UNKNOWN);
+		assertEquals(1D, victimFilter.falsePositiveRate());
+	}
+
+	@Test
+	public void addressPunishmentsAreNotFalsePositives() {
+		Punishment addressBan = mock(Punishment.class);
+		when(addressBan.getIdentifier()).thenReturn(3L);
+		when(addressBan.getType()).thenReturn(PunishmentType.BAN);
+		when(addressBan.getVictim()).thenReturn(AddressVictim.of(randomAddress()));
+		loadWith(addressBan);
+
+		for (AddressStrictness strictness : new AddressStrictness[] {AddressStrictness.NORMAL, AddressStrictness.STRICT}) {
+			VictimFilter.Answer answer = victimFilter.check(PunishmentType.BAN, UUID.randomUUID(), randomAddress(), strictness);
+			assertEquals(VictimFilter.Answer.NOT_EXCLUDED, answer);
+			assertTrue(answer.mightBePunished());
+			victimFilter.recordNotPunished(answer);
+		}
+		assertEquals(0D, victimFilter.falsePositiveRate());
+	}
+
+	private static Punishment mockMute(long id, UUID uuid) {
+		Punishment mute = mock(Punishment.class);
+		when(mute.getIdentifier()).thenReturn(id);
+		when(mute.getType()).thenReturn(PunishmentType.MUTE);
+		when(mute.getVictim()).thenReturn(PlayerVictim.of(uuid));
+		return mute;
+	}
+}
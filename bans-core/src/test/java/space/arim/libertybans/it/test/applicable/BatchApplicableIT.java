@@ -0,0 +1,194 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.it.test.applicable;
+
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.punish.PunishmentDrafter;
+import space.arim.libertybans.api.select.PunishmentSelector;
+import space.arim.libertybans.core.selector.AddressStrictness;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.libertybans.it.SetAddressStrictness;
+import space.arim.libertybans.it.util.RandomUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Checks that looking up the applicable punishments of many players at once agrees
+ * with looking up each player individually
+ *
+ */
+@ExtendWith(InjectionInvocationContextProvider.class)
+public class BatchApplicableIT {
+
+	private final PunishmentDrafter drafter;
+	private final PunishmentSelector selector;
+	private final StrictnessAssertHelper assertHelper;
+
+	@Inject
+	public BatchApplicableIT(PunishmentDrafter drafter, PunishmentSelector selector,
+							 StrictnessAssertHelper assertHelper) {
+		this.drafter = drafter;
+		this.selector = selector;
+		this.assertHelper = assertHelper;
+	}
+
+	private Punishment ban(Victim victim) {
+		Punishment punishment = drafter.draftBuilder()
+				.type(PunishmentType.BAN)
+				.victim(victim)
+				.reason("batch lookup")
+				.build()
+				.enactPunishment().toCompletableFuture().join().orElse(null);
+		assertNotNull(punishment, "Conflicting punishment");
+		return punishment;
+	}
+
+	private Map<UUID, Long> getBansInBatch(Map<UUID, NetworkAddress> players) {
+		Map<UUID, Punishment> bans = selector.getApplicablePunishments(players, PunishmentType.BAN)
+				.toCompletableFuture().join();
+		Map<UUID, Long> banIds = new HashMap<>();
+		bans.forEach((uuid, ban) -> banIds.put(uuid, ban.getIdentifier()));
+		return banIds;
+	}
+
+	private Map<UUID, Long> getBansIndividually(Map<UUID, NetworkAddress> players) {
+		Map<UUID, Long> banIds = new HashMap<>();
+		players.forEach((uuid, address) -> {
+			selector.getApplicablePunishment(uuid, address, PunishmentType.BAN)
+					.toCompletableFuture().join()
+					.ifPresent((ban) -> banIds.put(uuid, ban.getIdentifier()));
+		});
+		return banIds;
+	}
+
+	private void assertBatchAgrees(Map<UUID, NetworkAddress> players, Map<UUID, Long> expectedBanIds) {
+		assertEquals(expectedBanIds, getBansIndividually(players), "Individual lookup");
+		assertEquals(expectedBanIds, getBansInBatch(players), "Batch lookup");
+	}
+
+	@TestTemplate
+	@SetAddressStrictness(all = true)
+	public void severalPlayersWithHitsAndMisses() {
+		User bannedByUuid = User.randomUser();
+		User bannedByAddress = User.randomUser();
+		User unbanned = User.randomUser();
+		for (User user : new User[] {bannedByUuid, bannedByAddress, unbanned}) {
+			assertHelper.connectAndAssumeUnbannedUser(user.uuid(), "batchuser", user.address());
+		}
+		Punishment uuidBan = ban(PlayerVictim.of(bannedByUuid.uuid()));
+		Punishment addressBan = ban(AddressVictim.of(bannedByAddress.address()));
+
+		assertBatchAgrees(Map.of(
+				bannedByUuid.uuid(), bannedByUuid.address(),
+				bannedByAddress.uuid(), bannedByAddress.address(),
+				unbanned.uuid(), unbanned.address()
+		), Map.of(
+				bannedByUuid.uuid(), uuidBan.getIdentifier(),
+				bannedByAddress.uuid(), addressBan.getIdentifier()
+		));
+	}
+
+	@TestTemplate
+	@SetAddressStrictness(AddressStrictness.LENIENT)
+	public void playersSharingBannedAddress() {
+		NetworkAddress sharedAddress = RandomUtil.randomAddress();
+		UUID first = UUID.randomUUID();
+		UUID second = UUID.randomUUID();
+		User unbanned = User.randomUser();
+		Punishment addressBan = ban(AddressVictim.of(sharedAddress));
+
+		assertBatchAgrees(Map.of(
+				first, sharedAddress,
+				second, sharedAddress,
+				unbanned.uuid(), unbanned.address()
+		), Map.of(
+				first, addressBan.getIdentifier(),
+				second, addressBan.getIdentifier()
+		));
+	}
+
+	@TestTemplate
+	@SetAddressStrictness(AddressStrictness.NORMAL)
+	public void playersSharingAddressWithBannedHistory() {
+		NetworkAddress sharedAddress = RandomUtil.randomAddress();
+		User withBannedHistory = User.randomUser();
+		User otherUser = User.randomUser();
+		assertHelper.connectAndAssumeUnbannedUser(withBannedHistory.uuid(), "batchuser", withBannedHistory.address());
+		assertHelper.connectAndAssumeUnbannedUser(withBannedHistory.uuid(), "batchuser", sharedAddress);
+		assertHelper.connectAndAssumeUnbannedUser(otherUser.uuid(), "batchuser2", sharedAddress);
+		Punishment addressBan = ban(AddressVictim.of(withBannedHistory.address()));
+
+		// Under NORMAL, a past address of the player only bans that player
+		assertBatchAgrees(Map.of(
+				withBannedHistory.uuid(), sharedAddress,
+				otherUser.uuid(), sharedAddress
+		), Map.of(
+				withBannedHistory.uuid(), addressBan.getIdentifier()
+		));
+	}
+
+	@TestTemplate
+	@SetAddressStrictness(AddressStrictness.LENIENT)
+	public void playersAcrossSeveralChunks() {
+		// More than 2 chunks of 500 players
+		int playerCount = 1_234;
+		Map<UUID, NetworkAddress> players = new HashMap<>();
+		Map<UUID, Long> expectedBanIds = new HashMap<>();
+		NetworkAddress bannedAddress = RandomUtil.randomAddress();
+		Punishment addressBan = ban(AddressVictim.of(bannedAddress));
+		for (int n = 0; n < playerCount; n++) {
+			UUID uuid = UUID.randomUUID();
+			if (n % 250 == 0) {
+				players.put(uuid, RandomUtil.randomAddress());
+				expectedBanIds.put(uuid, ban(PlayerVictim.of(uuid)).getIdentifier());
+			} else if (n % 333 == 0) {
+				players.put(uuid, bannedAddress);
+				expectedBanIds.put(uuid, addressBan.getIdentifier());
+			} else {
+				players.put(uuid, RandomUtil.randomAddress());
+			}
+		}
+		assertEquals(expectedBanIds, getBansInBatch(players));
+		// Spot-check a subset individually, since looking up every player is slow
+		Map<UUID, NetworkAddress> subset = new HashMap<>();
+		expectedBanIds.keySet().forEach((uuid) -> subset.put(uuid, players.get(uuid)));
+		players.keySet().stream().limit(20L).forEach((uuid) -> subset.put(uuid, players.get(uuid)));
+		assertBatchAgrees(subset, expectedBanIds);
+	}
+
+	@TestTemplate
+	@SetAddressStrictness(all = true)
+	public void noPlayers() {
+		assertEquals(Map.of(), getBansInBatch(Map.of()));
+	}
+}
@@ -32,6 +32,7 @@ import space.arim.libertybans.it.env.platform.QuackPlatform;
 import space.arim.libertybans.it.env.platform.QuackPlayer;
 import space.arim.libertybans.it.env.platform.QuackPlayerBuilder;
 
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -84,9 +85,15 @@ public class StrictnessAssertHelper {
 				.toCompletableFuture().join().orElse(null);
 	}
 
+	private Punishment getBanInBatch(UUID uuid, NetworkAddress address) {
+		return selector.getApplicablePunishments(Map.of(uuid, address), PunishmentType.BAN)
+				.toCompletableFuture().join().get(uuid);
+	}
+
 	void assertBanned(UUID uuid, NetworkAddress address, String assertion) {
 		Punishment punishment = getBan(uuid, address);
 		assertNotNull(punishment, assertion);
+		assertNotNull(getBanInBatch(uuid, address), assertion + "; Batch lookup should agree");
 
 		QuackPlayer player = new QuackPlayerBuilder(platform).buildRandomName(uuid, address);
 		punishment.enforcePunishment().toCompletableFuture().join();
@@ -95,6 +102,7 @@ public class StrictnessAssertHelper {
 
 	void assertNotBanned(UUID uuid, NetworkAddress address, String assertion) {
 		assertNull(getBan(uuid, address), assertion);
+		assertNull(getBanInBatch(uuid, address), assertion + "; Batch lookup should agree");
 	}
 
 }
@@ -0,0 +1,266 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.it.test.punish;
+
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.DraftPunishment;
+import space.arim.libertybans.api.punish.EnforcementOptions;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.punish.PunishmentDrafter;
+import space.arim.libertybans.api.select.PunishmentSelector;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.punish.Enactor;
+import space.arim.libertybans.core.punish.EnforcementOpts;
+import space.arim.libertybans.core.punish.GlobalEnforcement;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.punish.VictimIdCache;
+import space.arim.libertybans.core.scope.InternalScopeManager;
+import space.arim.libertybans.core.selector.ActiveBanIndex;
+import space.arim.libertybans.core.selector.VictimFilter;
+import space.arim.libertybans.core.service.SettableTime;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.libertybans.it.util.RandomUtil;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static space.arim.libertybans.it.util.TestingUtil.assertEqualDetails;
+
+@ExtendWith(InjectionInvocationContextProvider.class)
+public class BulkEnactmentIT {
+
+	private final PunishmentDrafter drafter;
+	private final PunishmentSelector selector;
+	private final SettableTime time;
+
+	@Inject
+	public BulkEnactmentIT(PunishmentDrafter drafter, PunishmentSelector selector, SettableTime time) {
+		this.drafter = drafter;
+		this.selector = selector;
+		this.time = time;
+	}
+
+	private DraftPunishment draft(PunishmentType type, Victim victim) {
+		return drafter.draftBuilder().type(type).victim(victim).reason("bulk " + type).build();
+	}
+
+	private static Victim randomVictim() {
+		return (RandomUtil.randomBoolean()) ?
+				PlayerVictim.of(UUID.randomUUID()) : AddressVictim.of(RandomUtil.randomAddress());
+	}
+
+	private static EnforcementOptions enforcementOptions() {
+		return EnforcementOpts.builder().build();
+	}
+
+	private List<Optional<Punishment>> enactAll(PunishmentDrafter drafter, List<DraftPunishment> drafts) {
+		return drafter.enactPunishments(drafts, enforcementOptions()).toCompletableFuture().join();
+	}
+
+	private List<Optional<Punishment>> enactAll(List<DraftPunishment> drafts) {
+		return enactAll(drafter, drafts);
+	}
+
+	private Optional<Punishment> selectActive(Punishment punishment) {
+		return selector.getActivePunishmentByIdAndType(punishment.getIdentifier(), punishment.getType())
+				.toCompletableFuture().join();
+	}
+
+	private Optional<Punishment> selectBan(Victim victim) {
+		return selector.selectionBuilder().type(PunishmentType.BAN).victim(victim).build()
+				.getFirstSpecificPunishment().toCompletableFuture().join();
+	}
+
+	@TestTemplate
+	public void enactInOrder() {
+		List<DraftPunishment> drafts = new ArrayList<>();
+		for (PunishmentType type : PunishmentType.values()) {
+			drafts.add(draft(type, randomVictim()));
+			drafts.add(draft(type, randomVictim()));
+		}
+		List<Optional<Punishment>> results = enactAll(drafts);
+		assertEquals(drafts.size(), results.size());
+		Set<Long> ids = new HashSet<>();
+		for (int n = 0; n < drafts.size(); n++) {
+			Punishment punishment = results.get(n).orElseThrow(AssertionError::new);
+			assertEqualDetails(drafts.get(n), punishment);
+			assertTrue(ids.add(punishment.getIdentifier()), "Unique id");
+			if (punishment.getType() != PunishmentType.KICK) {
+				assertEquals(Optional.of(punishment), selectActive(punishment));
+			}
+		}
+	}
+
+	@TestTemplate
+	public void conflictingBansAndMutes() {
+		Victim alreadyBanned = randomVictim();
+		Victim bannedTwice = randomVictim();
+		draft(PunishmentType.BAN, alreadyBanned).enactPunishment().toCompletableFuture().join().orElseThrow();
+
+		List<Optional<Punishment>> results = enactAll(List.of(
+				draft(PunishmentType.BAN, alreadyBanned),
+				draft(PunishmentType.BAN, bannedTwice),
+				draft(PunishmentType.MUTE, alreadyBanned),
+				draft(PunishmentType.BAN, bannedTwice),
+				draft(PunishmentType.MUTE, alreadyBanned),
+				draft(PunishmentType.WARN, bannedTwice),
+				draft(PunishmentType.WARN, bannedTwice)
+		));
+		List<Boolean> enacted = new ArrayList<>();
+		for (Optional<Punishment> result : results) {
+			enacted.add(result.isPresent());
+		}
+		assertEquals(List.of(false, true, true, false, false, true, true), enacted);
+		assertEquals(results.get(1), selectBan(bannedTwice));
+	}
+
+	@TestTemplate
+	public void manyDraftsAcrossTransactions() {
+		int draftCount = 456;
+		List<Victim> victims = new ArrayList<>(draftCount);
+		List<DraftPunishment> drafts = new ArrayList<>(draftCount);
+		for (int n = 0; n < draftCount; n++) {
+			Victim victim = randomVictim();
+			victims.add(victim);
+			drafts.add(draft((n % 3 == 0) ? PunishmentType.WARN : PunishmentType.BAN, victim));
+		}
+		// Conflicts with a ban enacted in the first transaction
+		drafts.add(draft(PunishmentType.BAN, victims.get(1)));
+
+		List<Optional<Punishment>> results = enactAll(drafts);
+		assertEquals(draftCount + 1, results.size());
+		Set<Long> ids = new HashSet<>();
+		for (int n = 0; n < draftCount; n++) {
+			Punishment punishment = results.get(n).orElseThrow(AssertionError::new);
+			assertEqualDetails(drafts.get(n), punishment);
+			assertTrue(ids.add(punishment.getIdentifier()), "Unique id");
+		}
+		assertFalse(results.get(draftCount).isPresent());
+		for (int n = 1; n < draftCount; n += 25) {
+			if (drafts.get(n).getType() == PunishmentType.BAN) {
+				assertEquals(results.get(n), selectBan(victims.get(n)));
+			}
+		}
+	}
+
+	@TestTemplate
+	public void noDrafts() {
+		assertEquals(List.of(), enactAll(List.of()));
+	}
+
+	@TestTemplate
+	public void clearExpiredPunishmentsOncePerTypePerTransaction(FactoryOfTheFuture futuresFactory,
+																 InternalScopeManager scopeManager,
+																 InternalDatabase database,
+																 PunishmentCreator creator,
+																 ActiveBanIndex banIndex,
+																 VictimFilter victimFilter,
+																 VictimIdCache victimIdCache,
+																 GlobalEnforcement enforcement) {
+		Victim previouslyBanned = randomVictim();
+		drafter.draftBuilder().type(PunishmentType.BAN).victim(previouslyBanned).reason("expires")
+				.duration(Duration.ofHours(1L)).build()
+				.enactPunishment().toCompletableFuture().join().orElseThrow();
+		time.advanceBy(Duration.ofHours(2L));
+
+		InternalDatabase countingDatabase = mock(InternalDatabase.class, delegatesTo(database));
+		Enactor enactor = new Enactor(
+				futuresFactory, scopeManager, () -> countingDatabase, creator, time,
+				banIndex, victimFilter, victimIdCache, () -> enforcement);
+
+		List<DraftPunishment> drafts = new ArrayList<>();
+		// The first transaction has bans, warns and kicks
+		for (int n = 0; n < 200; n++) {
+			PunishmentType type = (n % 4 == 0) ? PunishmentType.WARN : (n % 4 == 1) ? PunishmentType.KICK : PunishmentType.BAN;
+			drafts.add(draft(type, randomVictim()));
+		}
+		// The second transaction has only bans, one of which replaces the expired ban
+		for (int n = 0; n < 50; n++) {
+			drafts.add(draft(PunishmentType.BAN, randomVictim()));
+		}
+		drafts.add(draft(PunishmentType.BAN, previouslyBanned));
+
+		List<Optional<Punishment>> results = enactAll(enactor, drafts);
+		for (Optional<Punishment> result : results) {
+			assertTrue(result.isPresent());
+		}
+		verify(countingDatabase, times(2)).clearExpiredPunishments(any(), eq(PunishmentType.BAN), any());
+		verify(countingDatabase, times(1)).clearExpiredPunishments(any(), eq(PunishmentType.WARN), any());
+		verify(countingDatabase, never()).clearExpiredPunishments(any(), eq(PunishmentType.MUTE), any());
+		verify(countingDatabase, never()).clearExpiredPunishments(any(), eq(PunishmentType.KICK), any());
+	}
+
+	@TestTemplate
+	public void failureInLaterTransaction() {
+		List<Victim> victims = new ArrayList<>();
+		List<DraftPunishment> drafts = new ArrayList<>();
+		for (int n = 0; n < 250; n++) {
+			Victim victim = randomVictim();
+			victims.add(victim);
+			drafts.add(draft(PunishmentType.BAN, victim));
+		}
+		// Wildcards are rejected by the draft builder, and only detected upon enactment
+		DraftPunishment invalidDraft = mock(DraftPunishment.class);
+		when(invalidDraft.getType()).thenReturn(PunishmentType.BAN);
+		when(invalidDraft.getVictim()).thenReturn(
+				CompositeVictim.of(CompositeVictim.WILDCARD_UUID, RandomUtil.randomAddress()));
+		when(invalidDraft.getOperator()).thenReturn(ConsoleOperator.INSTANCE);
+		when(invalidDraft.getReason()).thenReturn("invalid");
+		when(invalidDraft.getScope()).thenReturn(drafts.get(0).getScope());
+		when(invalidDraft.getDuration()).thenReturn(Duration.ZERO);
+		drafts.set(225, invalidDraft);
+
+		CompletionException failure = assertThrows(CompletionException.class, () -> enactAll(drafts));
+		assertTrue(failure.getCause() instanceof IllegalArgumentException, "Failed due to wildcard");
+		// The first transaction committed. The second rolled back
+		for (int n = 0; n < 200; n++) {
+			assertTrue(selectBan(victims.get(n)).isPresent(), "Ban in first transaction");
+		}
+		for (int n = 200; n < 250; n++) {
+			assertFalse(selectBan(victims.get(n)).isPresent(), "Ban in second transaction");
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.it.test.punish;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.punish.PunishmentDrafter;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.sql.VictimCondition;
+import space.arim.libertybans.core.database.sql.VictimTableFields;
+import space.arim.libertybans.it.DontInject;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.libertybans.it.resolver.RandomVictimResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static space.arim.libertybans.core.schema.tables.History.HISTORY;
+import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
+
+/**
+ * Checks that concurrent enactments against a victim not yet in the database
+ * share a single victim row
+ *
+ */
+@ExtendWith(InjectionInvocationContextProvider.class)
+@ExtendWith(RandomVictimResolver.class)
+public class ConcurrentVictimIT {
+
+	private final PunishmentDrafter drafter;
+	private final Provider<QueryExecutor> queryExecutor;
+
+	private static final int CONCURRENT_ENACTMENTS = 8;
+
+	@Inject
+	public ConcurrentVictimIT(PunishmentDrafter drafter, Provider<QueryExecutor> queryExecutor) {
+		this.drafter = drafter;
+		this.queryExecutor = queryExecutor;
+	}
+
+	@TestTemplate
+	public void shareNewVictim(@DontInject Victim victim) {
+		List<CompletableFuture<Punishment>> futures = new ArrayList<>(CONCURRENT_ENACTMENTS);
+		for (int n = 0; n < CONCURRENT_ENACTMENTS; n++) {
+			// Warns are not singular, so every enactment succeeds
+			futures.add(drafter.draftBuilder()
+					.type(PunishmentType.WARN)
+					.victim(victim)
+					.reason("concurrent warning " + n)
+					.build()
+					.enactPunishment()
+					.thenApply((optPunishment) -> optPunishment.orElseThrow())
+					.toCompletableFuture());
+		}
+		List<Long> ids = new ArrayList<>(CONCURRENT_ENACTMENTS);
+		for (CompletableFuture<Punishment> future : futures) {
+			ids.add(future.join().getIdentifier());
+		}
+		assertEquals(CONCURRENT_ENACTMENTS, ids.stream().distinct().count());
+
+		int victimRows = queryExecutor.get().query((context) -> {
+			return context
+					.selectCount()
+					.from(VICTIMS)
+					.where(new VictimCondition(new VictimTableFields()).matchesVictim(victim))
+					.fetchSingle()
+					.value1();
+		}).join();
+		assertEquals(1, victimRows, "Exactly one victim row");
+
+		int distinctVictimIds = queryExecutor.get().query((context) -> {
+			return context
+					.selectDistinct(HISTORY.VICTIM)
+					.from(HISTORY)
+					.where(HISTORY.ID.in(ids))
+					.fetch()
+					.size();
+		}).join();
+		assertEquals(1, distinctVictimIds, "All punishments share the victim row");
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.it.test.select;
+
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.punish.PunishmentDrafter;
+import space.arim.libertybans.api.select.PunishmentSelector;
+import space.arim.libertybans.api.select.SelectionOrderBuilder;
+import space.arim.libertybans.core.selector.PunishmentCache;
+import space.arim.libertybans.core.service.SettableTime;
+import space.arim.libertybans.it.DontInject;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.libertybans.it.resolver.RandomVictimResolver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that lists of punishments are the same whether they are selected in full or
+ * by id and completed from the punishment cache
+ *
+ */
+@ExtendWith(InjectionInvocationContextProvider.class)
+@ExtendWith(RandomVictimResolver.class)
+public class SelectionCacheIT {
+
+	private final PunishmentDrafter drafter;
+	private final PunishmentSelector selector;
+	private final PunishmentCache punishmentCache;
+	private final SettableTime time;
+
+	public SelectionCacheIT(PunishmentDrafter drafter, PunishmentSelector selector,
+							PunishmentCache punishmentCache, SettableTime time) {
+		this.drafter = drafter;
+		this.selector = selector;
+		this.punishmentCache = punishmentCache;
+		this.time = time;
+	}
+
+	private Punishment warn(Victim victim, String reason) {
+		Punishment warn = drafter.draftBuilder()
+				.type(PunishmentType.WARN)
+				.victim(victim)
+				.reason(reason)
+				.build()
+				.enactPunishment().toCompletableFuture().join().orElseThrow();
+		// Required to have punishment start times be correctly ordered
+		time.advanceBy(Duration.ofSeconds(1L));
+		return warn;
+	}
+
+	private SelectionOrderBuilder warnsOf(Victim victim) {
+		return selector.selectionBuilder().type(PunishmentType.WARN).victim(victim);
+	}
+
+	private static List<Punishment> select(SelectionOrderBuilder selectionBuilder) {
+		return selectionBuilder.build().getAllSpecificPunishments().toCompletableFuture().join();
+	}
+
+	@TestTemplate
+	public void hitsMissesAndMixed(@DontInject Victim victim) {
+		List<Punishment> expected = new ArrayList<>();
+		for (int n = 0; n < 4; n++) {
+			expected.add(0, warn(victim, "warning " + n));
+		}
+		// Cache misses, which fill the cache
+		assertEquals(expected, select(warnsOf(victim)));
+		// Cache hits
+		assertEquals(expected, select(warnsOf(victim)));
+		assertEquals(expected, select(warnsOf(victim)));
+
+		// Mostly hits, with one miss
+		expected.add(0, warn(victim, "another warning"));
+		assertEquals(expected, select(warnsOf(victim)));
+
+		// All misses, after having been mostly cached
+		punishmentCache.clear();
+		assertEquals(expected, select(warnsOf(victim)));
+		assertEquals(expected, select(warnsOf(victim)));
+	}
+
+	@TestTemplate
+	public void pagesShareCache(@DontInject Victim victim) {
+		List<Punishment> expected = new ArrayList<>();
+		for (int n = 0; n < 6; n++) {
+			expected.add(0, warn(victim, "warning " + n));
+		}
+		assertEquals(expected, select(warnsOf(victim)));
+		assertEquals(expected.subList(0, 3), select(warnsOf(victim).limitToRetrieve(3)));
+		assertEquals(expected.subList(3, 6), select(warnsOf(victim).skipFirstRetrieved(3).limitToRetrieve(3)));
+		Punishment last = expected.get(2);
+		assertEquals(expected.subList(3, 6),
+				select(warnsOf(victim).seekAfter(last.getStartDate(), last.getIdentifier()).limitToRetrieve(3)));
+	}
+
+	@TestTemplate
+	public void selectionsTrackedSeparately(@DontInject Victim cachedVictim, @DontInject Victim otherVictim) {
+		Punishment cachedWarn = warn(cachedVictim, "cached");
+		select(warnsOf(cachedVictim));
+		select(warnsOf(cachedVictim));
+		// The other selection has not been cached, and is selected in full
+		Punishment otherWarn = warn(otherVictim, "not cached");
+		assertEquals(List.of(otherWarn), select(warnsOf(otherVictim)));
+		assertEquals(List.of(cachedWarn), select(warnsOf(cachedVictim)));
+	}
+}
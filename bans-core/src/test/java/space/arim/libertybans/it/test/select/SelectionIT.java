@@ -82,6 +82,10 @@ public class SelectionIT {
 		return selectionBuilder.build().getAllSpecificPunishments().toCompletableFuture().join();
 	}
 
+	private static int countPunishments(SelectionOrderBuilder selectionBuilder) {
+		return selectionBuilder.build().countNumberOfPunishments().toCompletableFuture().join();
+	}
+
 	private static void assertEmpty(SelectionOrderBuilder selectionBuilder) {
 		List<Punishment> punishments = getPunishments(selectionBuilder);
 		assertTrue(punishments.isEmpty(), "Non-empty punishments, retrieved " + punishments);
@@ -161,6 +165,22 @@ public class SelectionIT {
 		);
 	}
 
+	@TestTemplate
+	public void countMultipleWarns(@DontInject Victim victim) {
+		final PunishmentType type = PunishmentType.WARN;
+		assertEquals(0, countPunishments(selectionBuilder(type)));
+
+		getPunishment(draftBuilder(type, victim, "the first warn"));
+		time.advanceBy(ONE_SECOND);
+		getPunishment(draftBuilder(type, victim, "the second warn"));
+
+		assertEquals(2, countPunishments(selectionBuilder(type)));
+		assertEquals(2, countPunishments(selectionBuilder(type).victim(victim)));
+		// Pagination is disregarded
+		assertEquals(2, countPunishments(selectionBuilder(type).victim(victim).skipFirstRetrieved(1).limitToRetrieve(1)));
+		assertEquals(0, countPunishments(selectionBuilder(PunishmentType.KICK)));
+	}
+
 	@TestTemplate
 	public void selectHistoricalBansMutes(@DontInject @SingularPunishment PunishmentType type,
 			@DontInject Victim victim) {
@@ -27,14 +27,19 @@ import space.arim.libertybans.api.PlayerVictim;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.punish.PunishmentDrafter;
+import space.arim.libertybans.api.select.SelectionOrder;
 import space.arim.libertybans.core.selector.InternalSelector;
 import space.arim.libertybans.it.InjectionInvocationContextProvider;
 import space.arim.libertybans.it.test.applicable.StrictnessAssertHelper;
 import space.arim.libertybans.it.util.RandomUtil;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.BiFunction;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @ExtendWith(InjectionInvocationContextProvider.class)
 public class SelectorIT {
@@ -61,4 +66,32 @@ public class SelectorIT {
 				.orElseThrow(AssertionError::new);
 		assertEquals(punishment, selector.getApplicableMute(uuid, address).join());
 	}
+
+	@TestTemplate
+	public void boundaryAfterSkipping(InternalSelector selector, PunishmentDrafter drafter) {
+		for (int n = 0; n < 5; n++) {
+			drafter.draftBuilder()
+					.type(PunishmentType.WARN)
+					.victim(PlayerVictim.of(UUID.randomUUID()))
+					.reason("boundary")
+					.build()
+					.enactPunishment()
+					.toCompletableFuture().join()
+					.orElseThrow(AssertionError::new);
+		}
+		SelectionOrder selection = selector.selectionBuilder().type(PunishmentType.WARN).build();
+		List<Punishment> warns = selection.getAllSpecificPunishments().toCompletableFuture().join();
+		assertEquals(5, warns.size());
+
+		BiFunction<Instant, Long, Long> toId = (startTime, id) -> id;
+		assertEquals(Long.valueOf(warns.get(1).getIdentifier()), selector.getBoundaryAfterSkipping(selection, 2, toId).join());
+		assertEquals(Long.valueOf(warns.get(4).getIdentifier()), selector.getBoundaryAfterSkipping(selection, 5, toId).join());
+		assertNull(selector.getBoundaryAfterSkipping(selection, 6, toId).join());
+
+		Punishment seekAfter = warns.get(1);
+		SelectionOrder resumed = selector.selectionBuilder().type(PunishmentType.WARN)
+				.seekAfter(seekAfter.getStartDate(), seekAfter.getIdentifier()).build();
+		assertEquals(Long.valueOf(warns.get(3).getIdentifier()), selector.getBoundaryAfterSkipping(resumed, 2, toId).join());
+		assertNull(selector.getBoundaryAfterSkipping(resumed, 4, toId).join());
+	}
 }